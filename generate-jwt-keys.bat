@@ -5,6 +5,7 @@ REM This script creates a private and public key pair in PEM format
 SET KEY_DIR=%USERPROFILE%\jwt-keys
 SET PRIVATE_KEY=%KEY_DIR%\private_key.pem
 SET PUBLIC_KEY=%KEY_DIR%\public_key.pem
+SET CERTIFICATE=%KEY_DIR%\certificate.pem
 
 echo Creating directory for JWT keys...
 if not exist "%KEY_DIR%" mkdir "%KEY_DIR%"
@@ -15,10 +16,14 @@ openssl genrsa -out "%PRIVATE_KEY%" 2048
 echo Generating RSA public key...
 openssl rsa -in "%PRIVATE_KEY%" -pubout -out "%PUBLIC_KEY%"
 
+echo Generating self-signed certificate (x5t/x5c in the JWKS)...
+openssl req -new -x509 -key "%PRIVATE_KEY%" -out "%CERTIFICATE%" -days 365 -subj "/CN=security-service"
+
 echo.
 echo Keys generated successfully!
 echo Private key: %PRIVATE_KEY%
 echo Public key:  %PUBLIC_KEY%
+echo Certificate: %CERTIFICATE%
 echo.
 echo Please keep your private key secure and do not commit it to version control.
 pause
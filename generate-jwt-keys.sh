@@ -5,6 +5,7 @@
 KEY_DIR="$HOME/jwt-keys"
 PRIVATE_KEY="$KEY_DIR/private_key.pem"
 PUBLIC_KEY="$KEY_DIR/public_key.pem"
+CERTIFICATE="$KEY_DIR/certificate.pem"
 
 echo "Creating directory for JWT keys..."
 mkdir -p "$KEY_DIR"
@@ -15,10 +16,14 @@ openssl genrsa -out "$PRIVATE_KEY" 2048
 echo "Generating RSA public key..."
 openssl rsa -in "$PRIVATE_KEY" -pubout -out "$PUBLIC_KEY"
 
+echo "Generating self-signed certificate (x5t/x5c in the JWKS)..."
+openssl req -new -x509 -key "$PRIVATE_KEY" -out "$CERTIFICATE" -days 365 -subj "/CN=security-service"
+
 echo ""
 echo "Keys generated successfully!"
 echo "Private key: $PRIVATE_KEY"
 echo "Public key:  $PUBLIC_KEY"
+echo "Certificate: $CERTIFICATE"
 echo ""
 echo "Please keep your private key secure and do not commit it to version control."
 
@@ -0,0 +1,27 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * {@link TokenMetrics} for benchmarks, recording into an in-memory registry or switched off the same way as with
+ * {@code management.metrics.enable.security.token=false}.
+ *
+ * @author Shailesh Halor
+ */
+final class BenchmarkMetrics {
+
+    private BenchmarkMetrics() {
+    }
+
+    static TokenMetrics tokenMetrics(JwtProperties properties, boolean enabled) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        if (!enabled) {
+            registry.config().meterFilter(MeterFilter.denyNameStartsWith("security.token"));
+        }
+        return new TokenMetrics(registry, new OAuth2ClientProperties(), properties);
+    }
+}
@@ -0,0 +1,88 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.service.ClientCredentialsService;
+import com.shdev.securityservice.service.ClientRegistry;
+import com.shdev.securityservice.service.CredentialVerificationCache;
+import com.shdev.securityservice.service.FailedCredentialCache;
+import com.shdev.securityservice.service.RegisteredClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link ClientCredentialsService#validateCredentials} with realistic registry sizes.
+ * Each call authenticates a random registered client, so lookups are spread over the whole registry.
+ * With {@code credentialCache=false} every call pays the production BCrypt cost.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientCredentialsBenchmark {
+
+    private static final String SECRET = "jgak824fHdK39gs8ga";
+    private static final String DOMAIN = "DEV_JET_WebGateDomain";
+
+    @Param({"10", "1000", "10000"})
+    public int clientCount;
+
+    @Param({"true", "false"})
+    public boolean credentialCache;
+
+    private ClientCredentialsService service;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        String secretHash = encoder.encode(SECRET);
+
+        List<OAuth2ClientProperties.ClientConfig> clients = new ArrayList<>(clientCount);
+        for (int i = 0; i < clientCount; i++) {
+            OAuth2ClientProperties.ClientConfig client = new OAuth2ClientProperties.ClientConfig();
+            client.setClientId(clientId(i));
+            client.setClientSecret(secretHash);
+            client.setIdentityDomain(DOMAIN);
+            client.setAllowedScopes(List.of("DEV_TokenPOC_RS.sharedcomponents"));
+            clients.add(client);
+        }
+        OAuth2ClientProperties properties = new OAuth2ClientProperties();
+        properties.setClients(clients);
+        properties.getCredentialCache().setEnabled(credentialCache);
+
+        service = new ClientCredentialsService(new ClientRegistry(properties, event -> {
+        }), encoder, new CredentialVerificationCache(properties),
+                new FailedCredentialCache(properties), new CryptoPools(properties),
+                BenchmarkMetrics.tokenMetrics(new JwtProperties(), true));
+    }
+
+    @Benchmark
+    public Optional<RegisteredClient> validateCredentials() {
+        return service.validateCredentials(clientId(ThreadLocalRandom.current().nextInt(clientCount)), SECRET, DOMAIN);
+    }
+
+    private static String clientId(int index) {
+        return "CLIENT_" + index;
+    }
+}
@@ -0,0 +1,82 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.jwt.IssuedToken;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenValidator;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.reference.ReferenceTokenStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link ReferenceTokenStore}: resolving a handle, the counterpart of
+ * {@link TokenValidationBenchmark}, and issuing one, the counterpart of {@link TokenIssuanceBenchmark}.
+ * {@code entries} is the number of other live handles in the store.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReferenceTokenBenchmark {
+
+    private static final List<String> ROLES = List.of("ADMIN", "USER");
+
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private ReferenceTokenStore store;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        JwtProperties properties = TestKeys.properties(Files.createTempDirectory("jmh-keys"), JwtAlgorithm.RS256);
+        OAuth2ClientProperties clientProperties = new OAuth2ClientProperties();
+        clientProperties.getReferenceTokens().setMaxEntries(entries + 1);
+        store = new ReferenceTokenStore(clientProperties, properties, TestKeys.metrics(properties));
+        for (int i = 0; i < entries - 1; i++) {
+            issue();
+        }
+        token = issue().value();
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    public TokenInfoResponse resolve() throws JwtTokenValidator.TokenValidationException {
+        return store.resolve(token);
+    }
+
+    @Benchmark
+    public boolean issueAndRemove() {
+        return store.remove(issue().value());
+    }
+
+    private IssuedToken issue() {
+        return store.issue("DEV_OMS_OIDMWebGateID", "DEV_TokenPOC_RS.sharedcomponents", TestKeys.DOMAIN, ROLES);
+    }
+}
@@ -0,0 +1,80 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.util.AuthorizationUtil;
+import com.shdev.securityservice.util.TypeConversionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the request-side helpers: Basic header parsing with {@link AuthorizationUtil} and the
+ * {@link TypeConversionUtil} claim mapping used by the jjwt validation path.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+
+    private final String authorization = AuthorizationUtil.createBasicAuthHeader("DEV_OMS_OIDMWebGateID", "jgak824fHdK39gs8ga");
+    private final Map<String, Object> claims = claims();
+
+    @Benchmark
+    public String[] extractClientCredentials() {
+        return AuthorizationUtil.extractClientCredentials(authorization);
+    }
+
+    @Benchmark
+    public TokenInfoResponse mapClaims() {
+        List<String> roles = TypeConversionUtil.toStringList(claims.get("roles"));
+        return TokenInfoResponse.builder()
+                .issuer(TypeConversionUtil.toString(claims.get("iss")))
+                .audience(TypeConversionUtil.toStringList(claims.get("aud")))
+                .expiration(TypeConversionUtil.toLong(claims.get("exp")))
+                .jwtId(TypeConversionUtil.toString(claims.get("jti")))
+                .issuedAt(TypeConversionUtil.toLong(claims.get("iat")))
+                .subject(TypeConversionUtil.toString(claims.get("sub")))
+                .client(TypeConversionUtil.toString(claims.get("client")))
+                .scope(TypeConversionUtil.toStringList(claims.get("scope")))
+                .domain(TypeConversionUtil.toString(claims.get("domain")))
+                .version(TypeConversionUtil.toString(claims.get("v")))
+                .userRole(roles.isEmpty() ? null : String.join(":", roles))
+                .build();
+    }
+
+    /**
+     * Claims as jjwt returns them: {@code aud} as a set, numeric dates as longs, arrays as lists.
+     */
+    private static Map<String, Object> claims() {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", "https://localhost:8090/oauth2");
+        claims.put("aud", new LinkedHashSet<>(List.of("https://localhost:8090/oauth2", "DEV_TokenPOC_RS")));
+        claims.put("exp", 1_765_885_144L);
+        claims.put("jti", "NjE0ZDM3ZTgtOGJlNC00Mj");
+        claims.put("iat", 1_765_881_544L);
+        claims.put("sub", "DEV_OMS_OIDMWebGateID");
+        claims.put("client", "DEV_OMS_OIDMWebGateID");
+        claims.put("scope", List.of("DEV_TokenPOC_RS.sharedcomponents"));
+        claims.put("domain", "DEV_JET_WebGateDomain");
+        claims.put("roles", List.of("ADMIN", "USER"));
+        claims.put("v", "1.0");
+        return claims;
+    }
+}
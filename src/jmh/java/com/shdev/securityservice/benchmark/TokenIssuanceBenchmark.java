@@ -0,0 +1,67 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.jwt.FastJwtEncoder;
+import com.shdev.securityservice.jwt.IssuedToken;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenGenerator;
+import com.shdev.securityservice.jwt.TestKeys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link JwtTokenGenerator#generateToken} per signing algorithm, with and without the template-based
+ * fast path, and with the {@link com.shdev.securityservice.metrics.TokenMetrics} timers on and off.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenIssuanceBenchmark {
+
+    private static final List<String> ROLES = List.of("ADMIN", "USER");
+
+    @Param({"RS256", "ES256", "EdDSA", "HS256"})
+    public JwtAlgorithm algorithm;
+
+    @Param({"true", "false"})
+    public boolean fastPath;
+
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private JwtTokenGenerator generator;
+
+    @Setup
+    public void setUp() throws IOException {
+        JwtProperties properties = TestKeys.properties(Files.createTempDirectory("jmh-keys"), algorithm);
+        properties.getFastPath().setSigning(fastPath);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        generator = new JwtTokenGenerator(properties, keyRing, new FastJwtEncoder(properties),
+                BenchmarkMetrics.tokenMetrics(properties, metrics));
+    }
+
+    @Benchmark
+    public IssuedToken generateToken() {
+        return generator.generateToken("DEV_OMS_OIDMWebGateID", "DEV_TokenPOC_RS.sharedcomponents", TestKeys.DOMAIN, ROLES);
+    }
+}
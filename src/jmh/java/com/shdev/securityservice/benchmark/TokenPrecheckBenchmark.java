@@ -0,0 +1,89 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.jwt.TokenInfoDecoder;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link TokenInfoDecoder#precheck}, which runs on the request thread before verification.
+ * <ul>
+ *     <li>{@code precheck} - on the benchmark thread, as with the fixed Tomcat pool</li>
+ *     <li>{@code precheckOnVirtualThread} - on a new virtual thread per call, as with
+ *     {@code spring.threads.virtual.enabled}</li>
+ *     <li>{@code virtualThread} - an empty virtual thread per call, the baseline to subtract from the former</li>
+ * </ul>
+ * Run with {@code -prof gc}: the {@code gc.alloc.rate.norm} of {@code precheckOnVirtualThread} minus
+ * {@code virtualThread} is the per-request allocation of the pre-check in virtual thread mode, and must stay close to
+ * {@code precheck}. Buffers held per thread would show up there as several KB per call.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenPrecheckBenchmark {
+
+    private TokenInfoDecoder decoder;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        JwtProperties properties = TestKeys.properties(Files.createTempDirectory("jmh-keys"), JwtAlgorithm.RS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        TokenMetrics tokenMetrics = BenchmarkMetrics.tokenMetrics(properties, true);
+
+        token = TestKeys.generator(properties, keyRing, tokenMetrics)
+                .generateToken("DEV_OMS_OIDMWebGateID", "DEV_TokenPOC_RS.sharedcomponents", TestKeys.DOMAIN,
+                        List.of("ADMIN", "USER"))
+                .value();
+        decoder = new TokenInfoDecoder(properties, keyRing, tokenMetrics);
+    }
+
+    @Benchmark
+    public TokenInfoDecoder.Prechecked precheck() throws Exception {
+        return decoder.precheck(token);
+    }
+
+    @Benchmark
+    public Object precheckOnVirtualThread() throws Exception {
+        Object[] result = new Object[1];
+        Thread thread = Thread.ofVirtual().start(() -> {
+            try {
+                result[0] = decoder.precheck(token);
+            } catch (Exception e) {
+                result[0] = e;
+            }
+        });
+        thread.join();
+        return result[0];
+    }
+
+    @Benchmark
+    public Object virtualThread() throws InterruptedException {
+        Object[] result = new Object[1];
+        Thread thread = Thread.ofVirtual().start(() -> result[0] = token);
+        thread.join();
+        return result[0];
+    }
+}
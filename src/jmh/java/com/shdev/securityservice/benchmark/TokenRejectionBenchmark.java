@@ -0,0 +1,134 @@
+package com.shdev.securityservice.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.FastJwtEncoder;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenGenerator;
+import com.shdev.securityservice.jwt.JwtTokenValidator;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.jwt.TokenInfoDecoder;
+import com.shdev.securityservice.jwt.VerifiedTokenCache;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link JwtTokenValidator#validateToken} with tokens it rejects, to compare against the acceptance cost
+ * in {@link TokenValidationBenchmark}.
+ * <ul>
+ *     <li>{@code malformed} - two segments only</li>
+ *     <li>{@code signature} - last signature bytes replaced</li>
+ *     <li>{@code expired} - validly signed, expired a minute before it was issued</li>
+ *     <li>{@code issuer} - validly signed by a trusted key, but for another issuer</li>
+ *     <li>{@code oversized} - 16 KB payload with a foreign signature</li>
+ * </ul>
+ * Log output is formatted at the production INFO level and then discarded, so the logging cost is included without
+ * flooding the benchmark output. The verified-token cache is disabled as in the {@code fast}/{@code jjwt} modes of
+ * {@link TokenValidationBenchmark}; failures are never cached anyway.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenRejectionBenchmark {
+
+    @Param({"RS256", "HS256"})
+    public JwtAlgorithm algorithm;
+
+    @Param({"fast", "jjwt"})
+    public String mode;
+
+    @Param({"malformed", "signature", "expired", "issuer", "oversized"})
+    public String kind;
+
+    private JwtTokenValidator validator;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        discardLogOutput();
+        JwtProperties properties = TestKeys.properties(Files.createTempDirectory("jmh-keys"), algorithm);
+        properties.getValidationCache().setEnabled(false);
+        properties.getFastPath().setVerification("fast".equals(mode));
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        TokenMetrics tokenMetrics = BenchmarkMetrics.tokenMetrics(properties, true);
+        JwtTokenGenerator generator = new JwtTokenGenerator(properties, keyRing, new FastJwtEncoder(properties), tokenMetrics);
+
+        if ("expired".equals(kind)) {
+            properties.setExpirationSeconds(-60);
+        }
+        String issuer = properties.getIssuer();
+        if ("issuer".equals(kind)) {
+            properties.setIssuer("https://other.example.com/oauth2");
+        }
+        String valid = generator.generateToken("DEV_OMS_OIDMWebGateID", "DEV_TokenPOC_RS.sharedcomponents",
+                TestKeys.DOMAIN, List.of("ADMIN", "USER")).value();
+        String[] parts = valid.split("\\.");
+        token = switch (kind) {
+            case "malformed" -> parts[0] + "." + parts[1];
+            case "signature" -> parts[0] + "." + parts[1] + "." + parts[2].substring(0, parts[2].length() - 4) + "AAAA";
+            case "expired", "issuer" -> valid;
+            case "oversized" -> parts[0] + "." + "A".repeat(16 * 1024) + "." + parts[2];
+            default -> throw new IllegalArgumentException(kind);
+        };
+        properties.setIssuer(issuer);
+        validator = new JwtTokenValidator(properties, keyRing, new VerifiedTokenCache(properties),
+                new TokenInfoDecoder(properties, keyRing, tokenMetrics), new RevocationStore(properties), new CryptoPools(new OAuth2ClientProperties()), tokenMetrics);
+    }
+
+    @Benchmark
+    public Object rejectToken() {
+        try {
+            return validator.validateToken(token);
+        } catch (JwtTokenValidator.TokenValidationException e) {
+            return e;
+        }
+    }
+
+    private static void discardLogOutput() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.addAppender(appender);
+        root.setLevel(Level.INFO);
+    }
+}
@@ -0,0 +1,85 @@
+package com.shdev.securityservice.benchmark;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.jwt.FastJwtEncoder;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenGenerator;
+import com.shdev.securityservice.jwt.JwtTokenValidator;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.jwt.TokenInfoDecoder;
+import com.shdev.securityservice.jwt.VerifiedTokenCache;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link JwtTokenValidator#validateToken} per signing algorithm.
+ * <ul>
+ *     <li>{@code cached} - verified-token cache hit (steady state for repeated introspection)</li>
+ *     <li>{@code fast} - cache disabled, streaming {@link TokenInfoDecoder}</li>
+ *     <li>{@code jjwt} - cache disabled, jjwt parser</li>
+ * </ul>
+ * {@code metrics=false} switches the {@link com.shdev.securityservice.metrics.TokenMetrics} timers off to measure
+ * their overhead.
+ *
+ * @author Shailesh Halor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenValidationBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA", "HS256"})
+    public JwtAlgorithm algorithm;
+
+    @Param({"cached", "fast", "jjwt"})
+    public String mode;
+
+    @Param({"true", "false"})
+    public boolean metrics;
+
+    private JwtTokenValidator validator;
+    private String token;
+
+    @Setup
+    public void setUp() throws IOException {
+        JwtProperties properties = TestKeys.properties(Files.createTempDirectory("jmh-keys"), algorithm);
+        properties.getValidationCache().setEnabled("cached".equals(mode));
+        properties.getFastPath().setVerification(!"jjwt".equals(mode));
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        TokenMetrics tokenMetrics = BenchmarkMetrics.tokenMetrics(properties, metrics);
+
+        token = new JwtTokenGenerator(properties, keyRing, new FastJwtEncoder(properties), tokenMetrics)
+                .generateToken("DEV_OMS_OIDMWebGateID", "DEV_TokenPOC_RS.sharedcomponents", TestKeys.DOMAIN, List.of("ADMIN", "USER"))
+                .value();
+        validator = new JwtTokenValidator(properties, keyRing, new VerifiedTokenCache(properties),
+                new TokenInfoDecoder(properties, keyRing, tokenMetrics), new RevocationStore(properties), new CryptoPools(new OAuth2ClientProperties()), tokenMetrics);
+    }
+
+    @Benchmark
+    public TokenInfoResponse validateToken() throws JwtTokenValidator.TokenValidationException {
+        return validator.validateToken(token);
+    }
+}
@@ -0,0 +1,80 @@
+package com.shdev.securityservice.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters for one endpoint.
+ * Latencies are recorded from the intended send time, so queueing delay caused by a slow server is included
+ * (no coordinated omission).
+ *
+ * @author Shailesh Halor
+ */
+final class EndpointStats {
+
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(MAX_TRACKABLE_NANOS, 3);
+    private final LongAdder errors = new LongAdder();
+    private final Histogram total = new Histogram(MAX_TRACKABLE_NANOS, 3);
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void recordSuccess(long latencyNanos) {
+        recorder.recordValue(Math.min(latencyNanos, MAX_TRACKABLE_NANOS));
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Discard everything recorded so far, e.g. at the end of the warmup.
+     */
+    void reset() {
+        recorder.reset();
+        errors.reset();
+        total.reset();
+    }
+
+    /**
+     * Move the recorded interval into the total histogram.
+     */
+    Histogram harvest() {
+        total.add(recorder.getIntervalHistogram());
+        return total;
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    void print(PrintStream out, double seconds) {
+        Histogram histogram = harvest();
+        out.printf("%-12s %9d ok %7d err %10.1f req/s   p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms%n",
+                name,
+                histogram.getTotalCount(),
+                errors(),
+                histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,75 @@
+package com.shdev.securityservice.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the load test.
+ *
+ * @param rate          total requests per second across both endpoints (open loop)
+ * @param duration      measured run length
+ * @param warmup        unmeasured run length before the measurement
+ * @param clients       number of synthetic registered clients
+ * @param issueRatio    share of requests that go to the token endpoint, the rest go to token info
+ * @param tokenPool     number of pre-issued tokens used for introspection
+ * @param reportDir     directory for percentile distribution files
+ * @param appProperties additional application properties ({@code --property key=value})
+ * @author Shailesh Halor
+ */
+record LoadTestOptions(
+        int rate,
+        Duration duration,
+        Duration warmup,
+        int clients,
+        double issueRatio,
+        int tokenPool,
+        String reportDir,
+        Map<String, String> appProperties
+) {
+
+    static LoadTestOptions parse(String[] args) {
+        int rate = 500;
+        Duration duration = Duration.ofSeconds(30);
+        Duration warmup = Duration.ofSeconds(10);
+        int clients = 100;
+        double issueRatio = 0.2;
+        int tokenPool = 1000;
+        String reportDir = "target/loadtest";
+        Map<String, String> appProperties = new LinkedHashMap<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--rate" -> rate = Integer.parseInt(required(args[i], value));
+                case "--duration" -> duration = Duration.ofSeconds(Long.parseLong(required(args[i], value)));
+                case "--warmup" -> warmup = Duration.ofSeconds(Long.parseLong(required(args[i], value)));
+                case "--clients" -> clients = Integer.parseInt(required(args[i], value));
+                case "--issue-ratio" -> issueRatio = Double.parseDouble(required(args[i], value));
+                case "--token-pool" -> tokenPool = Integer.parseInt(required(args[i], value));
+                case "--report-dir" -> reportDir = required(args[i], value);
+                case "--property" -> {
+                    String property = required(args[i], value);
+                    int separator = property.indexOf('=');
+                    if (separator <= 0) {
+                        throw new IllegalArgumentException("Expected key=value for --property: " + property);
+                    }
+                    appProperties.put(property.substring(0, separator), property.substring(separator + 1));
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            i++;
+        }
+        if (rate <= 0 || clients <= 0 || tokenPool <= 0 || issueRatio < 0 || issueRatio > 1) {
+            throw new IllegalArgumentException("rate, clients and token-pool must be positive and issue-ratio within [0, 1]");
+        }
+        return new LoadTestOptions(rate, duration, warmup, clients, issueRatio, tokenPool, reportDir, appProperties);
+    }
+
+    private static String required(String option, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,228 @@
+package com.shdev.securityservice.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shdev.securityservice.SecurityServiceApplication;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.util.AuthorizationUtil;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the token and token info endpoints.
+ * <p>
+ * Boots the application on a random local port with a generated RS256 key and a synthetic client set, pre-issues a
+ * pool of tokens, then sends a mixed issuance/introspection workload at a fixed arrival rate with the JDK
+ * {@link HttpClient}. Requests are sent on schedule whether or not earlier ones completed, and latency is measured
+ * from the scheduled send time, so server-side queueing shows up in the percentiles.
+ * </p>
+ * <pre>
+ * ./mvnw -Pload-test test-compile exec:exec -Dloadtest.args="--rate 800 --duration 60 --issue-ratio 0.1"
+ * </pre>
+ *
+ * @author Shailesh Halor
+ */
+public final class LoadTestRunner {
+
+    private static final String SECRET = "load-test-secret";
+    private static final String DOMAIN = "LOAD_TEST_DOMAIN";
+    private static final String SCOPE = "LOAD_TEST_RS.read";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final LoadTestOptions options;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final EndpointStats tokenStats = new EndpointStats("token");
+    private final EndpointStats infoStats = new EndpointStats("token/info");
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private URI tokenUri;
+    private HttpRequest[] tokenRequests;
+    private HttpRequest[] infoRequests;
+
+    private LoadTestRunner(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        // A devtools restart would relaunch this main method without the load test options
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        new LoadTestRunner(LoadTestOptions.parse(args)).run();
+    }
+
+    private void run() throws Exception {
+        Path keyDir = Files.createTempDirectory("loadtest-keys");
+        ConfigurableApplicationContext context = null;
+        try {
+            context = startApplication(keyDir);
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String baseUrl = "http://localhost:" + port + "/oauth2/rest/token";
+            tokenUri = URI.create(baseUrl);
+
+            prepareRequests(baseUrl);
+            System.out.printf("Running %d req/s (%.0f%% issuance) for %ds after %ds warmup against %s%n",
+                    options.rate(), options.issueRatio() * 100, options.duration().toSeconds(), options.warmup().toSeconds(), baseUrl);
+
+            drive();
+            report(System.out);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            FileSystemUtils.deleteRecursively(keyDir);
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(Path keyDir) {
+        JwtProperties.KeyConfig key = TestKeys.writeKey(keyDir, JwtAlgorithm.RS256, "loadtest");
+        String secretHash = new BCryptPasswordEncoder().encode(SECRET);
+
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("security.jwt.private-key-path", key.getPrivateKeyPath());
+        properties.put("security.jwt.public-key-path", key.getPublicKeyPath());
+        properties.put("security.jwt.certificate-path", "");
+        properties.put("security.jwt.rotation.watch", "false");
+        // Every request comes from one address; enable with --property to measure the limiter itself
+        properties.put("oauth2.rate-limit.enabled", "false");
+        // Keep the application's per-request logging cost but out of the report output
+        properties.put("logging.file.name", options.reportDir() + "/application.log");
+        properties.put("logging.threshold.console", "OFF");
+        properties.put("spring.main.banner-mode", "off");
+        for (int i = 0; i < options.clients(); i++) {
+            String prefix = "oauth2.clients[" + i + "].";
+            properties.put(prefix + "client-id", clientId(i));
+            properties.put(prefix + "client-secret", secretHash);
+            properties.put(prefix + "identity-domain", DOMAIN);
+            properties.put(prefix + "allowed-scopes[0]", SCOPE);
+        }
+        properties.putAll(options.appProperties());
+
+        System.out.printf("Starting application with %d synthetic clients%n", options.clients());
+        // Passed as command line arguments so they are in place before logging is initialised
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(SecurityServiceApplication.class).run(args);
+    }
+
+    /**
+     * Build one token request per client and pre-issue the token pool used for introspection.
+     */
+    private void prepareRequests(String baseUrl) throws IOException, InterruptedException {
+        String form = "grant_type=CLIENT_CREDENTIALS&scope=" + URLEncoder.encode(SCOPE, StandardCharsets.UTF_8);
+        tokenRequests = new HttpRequest[options.clients()];
+        for (int i = 0; i < tokenRequests.length; i++) {
+            tokenRequests[i] = HttpRequest.newBuilder(tokenUri)
+                    .header("Authorization", AuthorizationUtil.createBasicAuthHeader(clientId(i), SECRET))
+                    .header("X-OAUTH-IDENTITY-DOMAIN-NAME", DOMAIN)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+        }
+
+        System.out.printf("Pre-issuing %d tokens%n", options.tokenPool());
+        infoRequests = new HttpRequest[options.tokenPool()];
+        for (int i = 0; i < infoRequests.length; i++) {
+            HttpResponse<String> response = httpClient.send(tokenRequests[i % tokenRequests.length], HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Token request failed with " + response.statusCode() + ": " + response.body());
+            }
+            String token = JSON.readTree(response.body()).get("access_token").asText();
+            infoRequests[i] = HttpRequest.newBuilder(URI.create(baseUrl + "/info?access_token=" + token))
+                    .header("X-OAUTH-IDENTITY-DOMAIN-NAME", DOMAIN)
+                    .GET()
+                    .build();
+        }
+    }
+
+    /**
+     * Send requests on a fixed schedule; results before the end of the warmup are discarded.
+     */
+    private void drive() throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long start = System.nanoTime();
+        long measureStart = start + options.warmup().toNanos();
+        long end = measureStart + options.duration().toNanos();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (long intended = start; intended < end; intended += intervalNanos) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean issue = random.nextDouble() < options.issueRatio();
+            HttpRequest request = issue
+                    ? tokenRequests[random.nextInt(tokenRequests.length)]
+                    : infoRequests[random.nextInt(infoRequests.length)];
+            send(request, issue ? tokenStats : infoStats, intended, intended >= measureStart);
+        }
+
+        // Wait for stragglers so their latency is counted
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void send(HttpRequest request, EndpointStats stats, long intendedNanos, boolean measured) {
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    inFlight.decrementAndGet();
+                    if (!measured) {
+                        return;
+                    }
+                    if (failure != null || response.statusCode() != 200) {
+                        stats.recordError();
+                    } else {
+                        stats.recordSuccess(System.nanoTime() - intendedNanos);
+                    }
+                });
+    }
+
+    private void report(PrintStream out) throws IOException {
+        double seconds = options.duration().toNanos() / 1e9;
+        out.println();
+        tokenStats.print(out, seconds);
+        infoStats.print(out, seconds);
+
+        Path reportDir = Path.of(options.reportDir());
+        Files.createDirectories(reportDir);
+        for (EndpointStats stats : new EndpointStats[]{tokenStats, infoStats}) {
+            Path file = reportDir.resolve(stats.name().replace('/', '-') + ".hgrm");
+            try (PrintStream hgrm = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8)) {
+                // Values are recorded in nanoseconds; the distribution is written in milliseconds
+                stats.harvest().outputPercentileDistribution(hgrm, 1_000_000.0);
+            }
+        }
+        out.printf("Percentile distributions written to %s%n", reportDir.toAbsolutePath());
+    }
+
+    private static String clientId(int index) {
+        return "LOAD_CLIENT_" + index;
+    }
+}
@@ -0,0 +1,119 @@
+package com.shdev.securityservice.audit;
+
+import java.time.Instant;
+
+/**
+ * One audit record. Built on the request thread from values the request already holds and formatted by the writer
+ * thread, so creating it costs one small allocation. There is deliberately no field that could carry a client secret
+ * or a token.
+ *
+ * @param timestamp     {@link System#currentTimeMillis()} when the event happened
+ * @param action        what was attempted
+ * @param clientId      client ID, as claimed for failed authentications; may be null
+ * @param domain        identity domain; may be null
+ * @param scope         requested scope of an issuance; may be null
+ * @param tokenId       {@code jti} of an introspected or revoked token; may be null
+ * @param remoteAddress caller's address where the endpoint knows it; may be null
+ * @param outcome       {@value #SUCCESS} or an OAuth2 error code
+ * @author Shailesh Halor
+ */
+public record AuditEvent(long timestamp, Action action, String clientId, String domain, String scope, String tokenId,
+                         String remoteAddress, String outcome) {
+
+    public static final String SUCCESS = "success";
+
+    /**
+     * Client authentication at the token endpoints.
+     */
+    public static AuditEvent authentication(String clientId, String domain, String remoteAddress, String outcome) {
+        return new AuditEvent(System.currentTimeMillis(), Action.AUTHENTICATE, clientId, domain, null, null,
+                remoteAddress, outcome);
+    }
+
+    /**
+     * Issuance of a token for one scope.
+     */
+    public static AuditEvent issuance(String clientId, String domain, String scope, String outcome) {
+        return new AuditEvent(System.currentTimeMillis(), Action.ISSUE, clientId, domain, scope, null, null, outcome);
+    }
+
+    /**
+     * Introspection of a token; client, domain and token ID are only known for valid tokens.
+     */
+    public static AuditEvent introspection(String clientId, String domain, String tokenId, String outcome) {
+        return new AuditEvent(System.currentTimeMillis(), Action.INTROSPECT, clientId, domain, null, tokenId, null,
+                outcome);
+    }
+
+    /**
+     * Revocation of a token by the client it was issued to; the token ID is only known for valid tokens.
+     */
+    public static AuditEvent revocation(String clientId, String domain, String tokenId, String remoteAddress,
+                                        String outcome) {
+        return new AuditEvent(System.currentTimeMillis(), Action.REVOKE, clientId, domain, null, tokenId,
+                remoteAddress, outcome);
+    }
+
+    /**
+     * Append the event as one line of JSON, leaving out null fields.
+     *
+     * @param line target buffer
+     */
+    void appendJson(StringBuilder line) {
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(timestamp)).append('"');
+        appendField(line, "action", action.value());
+        appendField(line, "client", clientId);
+        appendField(line, "domain", domain);
+        appendField(line, "scope", scope);
+        appendField(line, "jti", tokenId);
+        appendField(line, "address", remoteAddress);
+        appendField(line, "outcome", outcome);
+        line.append("}\n");
+    }
+
+    private static void appendField(StringBuilder line, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        // Client IDs and scopes come from the request, so escape everything that could break the line
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20 || c == 0x2028 || c == 0x2029) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Audited actions.
+     */
+    public enum Action {
+        AUTHENTICATE("authenticate"),
+        ISSUE("issue"),
+        INTROSPECT("introspect"),
+        REVOKE("revoke");
+
+        private final String value;
+
+        Action(String value) {
+            this.value = value;
+        }
+
+        public String value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.shdev.securityservice.audit;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.util.RateLimitedLogger;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only audit file with rotation by size and age. Used by the audit writer thread only.
+ * <p>
+ * The active file is {@code <file-name>.log}. It is rotated before a batch would push it past
+ * {@code max-file-size}, or once it is older than {@code rotation-interval}, by renaming it to
+ * {@code <file-name>-<UTC timestamp>.log}, or {@code <file-name>-<UTC timestamp>-<n>.log} if that name is taken;
+ * rotated files beyond {@code max-files} are deleted oldest first, by timestamp and then by {@code n}. If the
+ * rename fails the active file is reopened and keeps growing until a later rotation succeeds.
+ * Each batch is encoded into one buffer and written with a single call.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+final class AuditFileWriter implements Closeable {
+
+    private static final DateTimeFormatter ROTATED_SUFFIX =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+    private static final RateLimitedLogger ROTATION_LOG = new RateLimitedLogger(log, 1, Duration.ofMinutes(1));
+
+    private final Path directory;
+    private final String fileName;
+    private final Path activeFile;
+    private final long maxFileSize;
+    private final long rotationIntervalMillis;
+    private final int maxFiles;
+    private final Clock clock;
+    private final Pattern rotatedName;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private FileChannel channel;
+    private long size;
+    private long openedAt;
+    private String lastSuffix;
+    private int collision;
+
+    AuditFileWriter(OAuth2ClientProperties.Audit config, Clock clock) throws IOException {
+        this.directory = Path.of(config.getDirectory());
+        this.fileName = config.getFileName();
+        this.activeFile = directory.resolve(fileName + ".log");
+        this.maxFileSize = config.getMaxFileSize().toBytes();
+        this.rotationIntervalMillis = config.getRotationInterval().toMillis();
+        this.maxFiles = config.getMaxFiles();
+        this.clock = clock;
+        this.rotatedName = Pattern.compile(Pattern.quote(fileName) + "-(\\d{8}-\\d{6}-\\d{3})(?:-(\\d{1,9}))?\\.log");
+        Files.createDirectories(directory);
+        open();
+    }
+
+    /**
+     * Append a batch of events, rotating first if needed.
+     *
+     * @param events events in queue order
+     * @throws IOException if the file cannot be written or rotated
+     */
+    void write(List<AuditEvent> events) throws IOException {
+        line.setLength(0);
+        for (AuditEvent event : events) {
+            event.appendJson(line);
+        }
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (size > 0 && (size + bytes.length > maxFileSize || clock.millis() - openedAt >= rotationIntervalMillis)) {
+            rotate();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        size += bytes.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    Path activeFile() {
+        return activeFile;
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(activeFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        size = channel.size();
+        // An existing file keeps its age across restarts
+        openedAt = size > 0 ? Files.getLastModifiedTime(activeFile).toMillis() : clock.millis();
+    }
+
+    private void rotate() throws IOException {
+        close();
+        String suffix = ROTATED_SUFFIX.format(Instant.ofEpochMilli(clock.millis()));
+        // Count on from the last rotation so a name freed by deleteExcessFiles is not reused for a newer file
+        collision = suffix.equals(lastSuffix) ? collision + 1 : 0;
+        lastSuffix = suffix;
+        Path rotated = rotatedFile(suffix, collision);
+        while (Files.exists(rotated)) {
+            rotated = rotatedFile(suffix, ++collision);
+        }
+        try {
+            Files.move(activeFile, rotated);
+        } catch (IOException e) {
+            // Keep appending to the active file rather than losing events; the next batch tries to rotate again
+            open();
+            ROTATION_LOG.warn("Failed to rotate audit log, still appending to {}: {}", activeFile, e.toString());
+            return;
+        }
+        log.debug("Rotated audit log to {}", rotated);
+        open();
+        deleteExcessFiles();
+    }
+
+    private Path rotatedFile(String suffix, int collision) {
+        return directory.resolve(fileName + "-" + suffix + (collision == 0 ? "" : "-" + collision) + ".log");
+    }
+
+    private void deleteExcessFiles() throws IOException {
+        List<RotatedFile> rotatedFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, fileName + "-*.log")) {
+            for (Path file : files) {
+                Matcher name = rotatedName.matcher(file.getFileName().toString());
+                if (name.matches()) {
+                    rotatedFiles.add(new RotatedFile(file, name.group(1),
+                            name.group(2) == null ? 0 : Integer.parseInt(name.group(2))));
+                }
+            }
+        }
+        if (rotatedFiles.size() <= maxFiles) {
+            return;
+        }
+        // Plain name order would put "-<n>" before the first file of its timestamp and "-10" before "-2"
+        rotatedFiles.sort(Comparator.comparing(RotatedFile::timestamp).thenComparingInt(RotatedFile::collision));
+        for (RotatedFile file : rotatedFiles.subList(0, rotatedFiles.size() - maxFiles)) {
+            Files.deleteIfExists(file.path());
+        }
+    }
+
+    private record RotatedFile(Path path, String timestamp, int collision) {
+    }
+}
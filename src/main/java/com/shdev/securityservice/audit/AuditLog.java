@@ -0,0 +1,179 @@
+package com.shdev.securityservice.audit;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit trail of client authentication, token issuance, introspection and revocation, written off the request path.
+ * <p>
+ * {@link #record} puts the event on a lock-free {@link AuditRingBuffer}; a single background thread drains it in
+ * batches into an {@link AuditFileWriter}, so a request pays one CAS and no I/O. When the buffer is full the
+ * {@code oauth2.audit.overflow} policy applies: {@code DROP} discards the event, {@code BLOCK} waits up to
+ * {@code block-timeout} for the writer before discarding it. Dropped events and write failures are counted and
+ * published as metrics. On shutdown the writer drains the buffer before closing the file.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class AuditLog implements MeterBinder {
+
+    private static final long BLOCK_PARK_NANOS = 100_000;
+
+    private final boolean enabled;
+    private final OAuth2ClientProperties.Overflow overflow;
+    private final long blockTimeoutNanos;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final AuditFileWriter writer;
+    private final Thread writerThread;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private volatile boolean running = true;
+
+    public AuditLog(OAuth2ClientProperties clientProperties) {
+        OAuth2ClientProperties.Audit config = clientProperties.getAudit();
+        this.enabled = config.isEnabled();
+        this.overflow = config.getOverflow();
+        this.blockTimeoutNanos = config.getBlockTimeout().toNanos();
+        this.batchSize = Math.max(1, config.getBatchSize());
+        this.flushIntervalNanos = config.getFlushInterval().toNanos();
+        if (!enabled) {
+            this.buffer = null;
+            this.writer = null;
+            this.writerThread = null;
+            log.info("Audit log disabled");
+            return;
+        }
+        if (!StringUtils.hasText(config.getDirectory())) {
+            throw new IllegalStateException("oauth2.audit.directory must be set when the audit log is enabled");
+        }
+        this.buffer = new AuditRingBuffer<>(config.getBufferSize());
+        try {
+            this.writer = new AuditFileWriter(config, Clock.systemUTC());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit log in " + config.getDirectory(), e);
+        }
+        this.writerThread = Thread.ofPlatform().name("audit-writer").daemon().start(this::drainLoop);
+        log.info("Audit log writing to {}, buffer: {}, overflow: {}", writer.activeFile(), buffer.capacity(), overflow);
+    }
+
+    /**
+     * Queue an event for the audit file. Never throws and never does I/O.
+     *
+     * @param event the event
+     */
+    public void record(AuditEvent event) {
+        if (!enabled || buffer.offer(event)) {
+            return;
+        }
+        if (overflow == OAuth2ClientProperties.Overflow.BLOCK && awaitSpace(event)) {
+            return;
+        }
+        dropped.increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("security.audit.queue.size", buffer, AuditRingBuffer::size)
+                .description("Audit events waiting for the writer")
+                .register(registry);
+        FunctionCounter.builder("security.audit.events.written", written, LongAdder::sum)
+                .description("Audit events written to the audit file")
+                .register(registry);
+        FunctionCounter.builder("security.audit.events.dropped", dropped, LongAdder::sum)
+                .description("Audit events discarded because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("security.audit.write.failures", writeFailures, LongAdder::sum)
+                .description("Batches that could not be written to the audit file")
+                .register(registry);
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    long writtenCount() {
+        return written.sum();
+    }
+
+    private boolean awaitSpace(AuditEvent event) {
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        do {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        } while (System.nanoTime() - deadline < 0);
+        return false;
+    }
+
+    private void drainLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            boolean stopping = !running;
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                if (stopping) {
+                    break;
+                }
+                // Producers do not wake the writer, so an idle writer polls at the flush interval
+                LockSupport.parkNanos(flushIntervalNanos);
+                continue;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("Failed to close audit log", e);
+        }
+    }
+
+    private void writeBatch(List<AuditEvent> batch) {
+        try {
+            writer.write(batch);
+            written.add(batch.size());
+        } catch (IOException e) {
+            writeFailures.increment();
+            dropped.add(batch.size());
+            log.error("Failed to write {} audit events", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.shdev.securityservice.concurrent;
+
+import com.shdev.securityservice.exception.ServiceOverloadedException;
+import com.shdev.securityservice.metrics.RequestTiming;
+import com.shdev.securityservice.util.RateLimitedLogger;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed pool of platform threads for one kind of cryptographic work, with a bounded queue and a per-call deadline.
+ * <p>
+ * A call is rejected with {@link ServiceOverloadedException} when the queue is full, and abandoned with the same
+ * exception when it has not completed within the deadline; an abandoned call that is still queued never runs.
+ * Callers therefore fail within the deadline instead of piling up behind a burst. Rejections reuse one stackless
+ * exception per {@link Rejection}, are counted per reason and logged rate-limited, so shedding a flood costs less
+ * than serving it.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+public class BoundedCryptoPool {
+
+    private static final RateLimitedLogger REJECTION_LOG = new RateLimitedLogger(log, 10, Duration.ofMinutes(1));
+
+    private final String name;
+    private final Duration deadline;
+    private final ThreadPoolExecutor executor;
+    private final ServiceOverloadedException[] exceptions = new ServiceOverloadedException[Rejection.values().length];
+    private final LongAdder[] rejected = new LongAdder[Rejection.values().length];
+
+    public BoundedCryptoPool(String name, int threads, int queueDepth, Duration deadline, Duration retryAfter) {
+        this.name = name;
+        this.deadline = deadline;
+        for (Rejection rejection : Rejection.values()) {
+            exceptions[rejection.ordinal()] =
+                    new ServiceOverloadedException("The service is temporarily overloaded, retry later", retryAfter);
+            rejected[rejection.ordinal()] = new LongAdder();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                task -> Thread.ofPlatform().name("crypto-" + name + "-" + threadCount.incrementAndGet()).daemon().unstarted(task),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Crypto pool '{}' started with {} threads, queue depth: {}, deadline: {}", name, threads, queueDepth, deadline);
+    }
+
+    /**
+     * Run a task on the pool and wait for its result.
+     *
+     * @param task the cryptographic operation
+     * @param <T>  result type
+     * @param <E>  checked exception thrown by the task
+     * @return the task's result
+     * @throws E                          if the task fails
+     * @throws ServiceOverloadedException if the queue is full or the deadline passes
+     */
+    public <T, E extends Exception> T call(CryptoTask<T, E> task) throws E {
+        Callable<T> callable = task::call;
+        // Sampled requests keep collecting their Server-Timing phases on the pool thread
+        RequestTiming timing = RequestTiming.current();
+        FutureTask<T> future = new FutureTask<>(timing == null ? callable : timing.wrap(callable));
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            throw overloaded(Rejection.QUEUE_FULL);
+        }
+
+        try {
+            return future.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            abandon(future);
+            throw overloaded(Rejection.DEADLINE);
+        } catch (InterruptedException e) {
+            abandon(future);
+            Thread.currentThread().interrupt();
+            throw overloaded(Rejection.INTERRUPTED);
+        } catch (ExecutionException e) {
+            throw BoundedCryptoPool.<E>rethrow(e.getCause());
+        }
+    }
+
+    /**
+     * Number of calls rejected or abandoned since startup.
+     *
+     * @return rejected call count
+     */
+    public long rejectedCount() {
+        long total = 0;
+        for (LongAdder count : rejected) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Number of calls rejected for one reason since startup.
+     *
+     * @param rejection the reason
+     * @return rejected call count
+     */
+    public long rejectedCount(Rejection rejection) {
+        return rejected[rejection.ordinal()].sum();
+    }
+
+    /**
+     * Number of tasks waiting for a thread.
+     *
+     * @return current queue length
+     */
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Cancel a call the caller no longer waits for and free its queue slot right away.
+     */
+    private void abandon(FutureTask<?> future) {
+        future.cancel(false);
+        executor.remove(future);
+    }
+
+    private ServiceOverloadedException overloaded(Rejection rejection) {
+        rejected[rejection.ordinal()].increment();
+        REJECTION_LOG.warn("Crypto pool '{}' rejected a call: {}", name, rejection.description);
+        return exceptions[rejection.ordinal()];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Exception> E rethrow(Throwable cause) throws E {
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return (E) cause;
+    }
+
+    /**
+     * Why a call was shed.
+     */
+    public enum Rejection {
+
+        QUEUE_FULL("queue_full", "queue is full"),
+        DEADLINE("deadline", "deadline exceeded"),
+        INTERRUPTED("interrupted", "interrupted while waiting");
+
+        private final String tagValue;
+        private final String description;
+
+        Rejection(String tagValue, String description) {
+            this.tagValue = tagValue;
+            this.description = description;
+        }
+
+        /**
+         * Value of the {@code reason} tag of the rejection counter.
+         */
+        public String tagValue() {
+            return tagValue;
+        }
+    }
+
+    /**
+     * Cryptographic operation that may throw a checked exception.
+     *
+     * @param <T> result type
+     * @param <E> checked exception type
+     */
+    @FunctionalInterface
+    public interface CryptoTask<T, E extends Exception> {
+        T call() throws E;
+    }
+}
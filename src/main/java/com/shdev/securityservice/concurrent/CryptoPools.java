@@ -0,0 +1,89 @@
+package com.shdev.securityservice.concurrent;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Dedicated worker pools for the CPU-heavy cryptography of each request type.
+ * <p>
+ * Client secret hashing (BCrypt) and token signing serve issuance, verification serves introspection. Each has its
+ * own threads and queue, so a credential-stuffing burst against the token endpoint fills the hashing queue and is
+ * shed with 503 while token info keeps its full capacity. Because the work runs on these platform threads, a
+ * request thread - platform or virtual - only waits, and at most the configured number of operations of each kind
+ * compete for CPU.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Component
+public class CryptoPools implements MeterBinder {
+
+    private final BoundedCryptoPool hashing;
+    private final BoundedCryptoPool signing;
+    private final BoundedCryptoPool verification;
+
+    public CryptoPools(OAuth2ClientProperties clientProperties) {
+        OAuth2ClientProperties.Crypto crypto = clientProperties.getCrypto();
+        this.hashing = create("hashing", crypto.getHashing(), crypto);
+        this.signing = create("signing", crypto.getSigning(), crypto);
+        this.verification = create("verification", crypto.getVerification(), crypto);
+    }
+
+    /**
+     * Pool for client secret hashing.
+     *
+     * @return hashing pool
+     */
+    public BoundedCryptoPool hashing() {
+        return hashing;
+    }
+
+    /**
+     * Pool for token signing.
+     *
+     * @return signing pool
+     */
+    public BoundedCryptoPool signing() {
+        return signing;
+    }
+
+    /**
+     * Pool for token signature verification.
+     *
+     * @return verification pool
+     */
+    public BoundedCryptoPool verification() {
+        return verification;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (BoundedCryptoPool pool : List.of(hashing, signing, verification)) {
+            for (BoundedCryptoPool.Rejection rejection : BoundedCryptoPool.Rejection.values()) {
+                FunctionCounter.builder("security.crypto.rejections", pool, p -> p.rejectedCount(rejection))
+                        .description("Calls shed by a crypto pool with 503")
+                        .tag("pool", pool.name())
+                        .tag("reason", rejection.tagValue())
+                        .register(registry);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashing.shutdown();
+        signing.shutdown();
+        verification.shutdown();
+    }
+
+    private static BoundedCryptoPool create(String name, OAuth2ClientProperties.Pool pool, OAuth2ClientProperties.Crypto crypto) {
+        int threads = pool.getThreads() > 0 ? pool.getThreads() : Runtime.getRuntime().availableProcessors();
+        return new BoundedCryptoPool(name, threads, pool.getQueueDepth(), pool.getDeadline(), crypto.getRetryAfter());
+    }
+}
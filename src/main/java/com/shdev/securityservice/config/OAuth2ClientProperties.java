@@ -1,9 +1,12 @@
 package com.shdev.securityservice.config;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,6 +22,24 @@ public class OAuth2ClientProperties {
 
     private List<ClientConfig> clients = new ArrayList<>();
 
+    private ClientsFile clientsFile = new ClientsFile();
+
+    private CredentialCache credentialCache = new CredentialCache();
+
+    private FailedAuthentication failedAuthentication = new FailedAuthentication();
+
+    private Batch batch = new Batch();
+
+    private Crypto crypto = new Crypto();
+
+    private RateLimit rateLimit = new RateLimit();
+
+    private ServerTiming serverTiming = new ServerTiming();
+
+    private Audit audit = new Audit();
+
+    private ReferenceTokens referenceTokens = new ReferenceTokens();
+
     @Data
     public static class ClientConfig {
         private String clientId;
@@ -26,6 +47,113 @@ public class OAuth2ClientProperties {
         private List<String> allowedScopes = new ArrayList<>();
         private String identityDomain;
         private List<String> roles = new ArrayList<>();  // User roles for this client
+        private boolean reuseTokens = false;  // Hand out the same token for identical requests until near expiry
+        private boolean referenceTokens = false;  // Issue opaque handles resolved by /token/info instead of JWTs
+        private Limit rateLimit;  // Overrides oauth2.rate-limit.per-client for this client
+    }
+
+    @Data
+    public static class ClientsFile {
+        private String path;  // YAML file with an oauth2.clients list, re-read when it changes; unset disables reloading
+        private Duration checkInterval = Duration.ofSeconds(10);  // How often the file's size and timestamp are checked
+    }
+
+    @Data
+    public static class CredentialCache {
+        private boolean enabled = true;
+        private Duration ttl = Duration.ofMinutes(15);  // How long a successful secret match is remembered
+        private long maximumSize = 10_000;
+    }
+
+    @Data
+    public static class FailedAuthentication {
+        private boolean enabled = true;
+        private Duration ttl = Duration.ofMinutes(15);  // How long a failed (client, domain, secret) tuple is remembered
+        private long maximumSize = 100_000;
+        private int backoffThreshold = 5;  // Consecutive failures before a client is backed off
+        private Duration initialBackoff = Duration.ofSeconds(1);  // Doubles with every further failure
+        private Duration maxBackoff = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Batch {
+        private int maxTokens = 500;  // Tokens per batch introspection request
+        private int maxScopes = 50;  // Scopes per batch issuance request
+        private int parallelism = 0;  // Worker threads; 0 uses one per available processor
+        private int queueDepth = 1000;  // Items waiting for a worker; a batch that does not fit is shed with 503
+        private DataSize maxRequestSize = DataSize.ofKilobytes(512);  // Body of a batch introspection request
     }
-}
 
+    @Data
+    public static class Crypto {
+        private Duration retryAfter = Duration.ofSeconds(1);  // Retry-After sent with 503 when a pool is saturated
+        private Pool hashing = new Pool(64, Duration.ofSeconds(2));  // BCrypt client secret checks
+        private Pool signing = new Pool(256, Duration.ofMillis(500));  // Token signing (issuance)
+        private Pool verification = new Pool(256, Duration.ofMillis(500));  // Signature verification (introspection)
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Pool {
+        private int threads = 0;  // 0 uses one per available processor
+        private int queueDepth = 256;  // Calls waiting beyond this are rejected immediately
+        private Duration deadline = Duration.ofMillis(500);  // Calls not completed in time are abandoned
+
+        Pool(int queueDepth, Duration deadline) {
+            this.queueDepth = queueDepth;
+            this.deadline = deadline;
+        }
+    }
+
+    @Data
+    public static class RateLimit {
+        private boolean enabled = true;
+        private Limit perClient = new Limit(20, 40);  // Token requests per claimed client ID
+        private Limit perAddress = new Limit(100, 200);  // Token requests per remote address
+        private long maximumKeys = 100_000;  // Buckets kept per kind; least recently used are evicted beyond this
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Limit {
+        private double requestsPerSecond = 20;  // Sustained rate
+        private int burst = 40;  // Requests allowed at once after an idle period
+
+        Limit(double requestsPerSecond, int burst) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+        }
+    }
+
+    @Data
+    public static class ServerTiming {
+        private boolean enabled = false;  // Add a Server-Timing header to sampled token endpoint responses
+        private double sampleRate = 0.01;  // Share of requests that get the header, 0.0 to 1.0
+    }
+
+    @Data
+    public static class ReferenceTokens {
+        private int maxEntries = 100_000;  // Live handles kept; when full, clients get JWTs until handles expire
+        private Duration purgeInterval = Duration.ofMinutes(1);  // How often expired handles are removed
+    }
+
+    @Data
+    public static class Audit {
+        private boolean enabled = false;  // Write issuance, introspection and authentication events to the audit log
+        private String directory;  // Required when enabled, e.g. /var/log/security-service/audit
+        private String fileName = "audit";  // Active file is <file-name>.log, rotated files get a timestamp suffix
+        private int bufferSize = 8192;  // Events queued for the writer, rounded up to a power of two
+        private int batchSize = 256;  // Events written per file write
+        private Duration flushInterval = Duration.ofMillis(200);  // Writer idle time when the queue is empty
+        private DataSize maxFileSize = DataSize.ofMegabytes(100);  // Rotate when the active file would exceed this
+        private Duration rotationInterval = Duration.ofDays(1);  // Rotate an active file older than this
+        private int maxFiles = 30;  // Rotated files kept; the oldest are deleted
+        private Overflow overflow = Overflow.DROP;  // What a request does when the queue is full
+        private Duration blockTimeout = Duration.ofMillis(50);  // Longest BLOCK wait before the event is dropped
+    }
+
+    public enum Overflow {
+        DROP,  // Drop the event and count it, the request never waits
+        BLOCK  // Wait up to block-timeout for the writer to make room, then drop
+    }
+}
@@ -4,14 +4,22 @@ import com.shdev.securityservice.dto.ErrorResponse;
 import com.shdev.securityservice.exception.InvalidClientException;
 import com.shdev.securityservice.exception.InvalidRequestException;
 import com.shdev.securityservice.exception.InvalidTokenException;
+import com.shdev.securityservice.exception.RateLimitExceededException;
+import com.shdev.securityservice.exception.ServiceOverloadedException;
 import com.shdev.securityservice.exception.UnsupportedGrantTypeException;
+import com.shdev.securityservice.metrics.TokenRequestObservationConvention;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
 
 /**
  * OAuth2-specific exception handler that returns OAuth2-compliant error responses.
@@ -28,12 +36,9 @@ public class OAuth2ExceptionHandler {
      */
     @ExceptionHandler(InvalidTokenException.class)
     public ResponseEntity<ErrorResponse> handleInvalidTokenException(InvalidTokenException ex) {
-        log.warn("Invalid token: {}", ex.getMessage());
+        log.debug("Invalid token: {}", ex.getMessage());  // Logged rate-limited by the validator
 
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .error("invalid_token")
-                .errorDescription(ex.getMessage())
-                .build();
+        ErrorResponse errorResponse = errorResponse("invalid_token", ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
     }
@@ -45,10 +50,7 @@ public class OAuth2ExceptionHandler {
     public ResponseEntity<ErrorResponse> handleInvalidClientException(InvalidClientException ex) {
         log.warn("Invalid client: {}", ex.getMessage());
 
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .error("invalid_client")
-                .errorDescription(ex.getMessage())
-                .build();
+        ErrorResponse errorResponse = errorResponse("invalid_client", ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
     }
@@ -60,10 +62,7 @@ public class OAuth2ExceptionHandler {
     public ResponseEntity<ErrorResponse> handleUnsupportedGrantTypeException(UnsupportedGrantTypeException ex) {
         log.warn("Unsupported grant type: {}", ex.getMessage());
 
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .error("unsupported_grant_type")
-                .errorDescription(ex.getMessage())
-                .build();
+        ErrorResponse errorResponse = errorResponse("unsupported_grant_type", ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
@@ -75,12 +74,59 @@ public class OAuth2ExceptionHandler {
     public ResponseEntity<ErrorResponse> handleInvalidRequestException(InvalidRequestException ex) {
         log.warn("Invalid request: {}", ex.getMessage());
 
-        ErrorResponse errorResponse = ErrorResponse.builder()
-                .error("invalid_request")
-                .errorDescription(ex.getMessage())
-                .build();
+        ErrorResponse errorResponse = errorResponse("invalid_request", ex.getMessage());
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
-}
 
+    /**
+     * Handle requests shed because the service is at capacity.
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> handleServiceOverloadedException(ServiceOverloadedException ex) {
+        // Counted and logged rate-limited where the request was shed
+        log.debug("Service overloaded: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = errorResponse("temporarily_unavailable", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Handle callers that exceeded their rate limit.
+     */
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimitExceededException(RateLimitExceededException ex) {
+        log.debug("Rate limit exceeded: {}", ex.getMessage());
+
+        ErrorResponse errorResponse = errorResponse("too_many_requests", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(ex.getRetryAfter()))
+                .body(errorResponse);
+    }
+
+    /**
+     * Build the error response and note its error code for the request metrics.
+     */
+    private static ErrorResponse errorResponse(String error, String description) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(TokenRequestObservationConvention.ERROR_ATTRIBUTE, error, RequestAttributes.SCOPE_REQUEST);
+        }
+        return ErrorResponse.builder()
+                .error(error)
+                .errorDescription(description)
+                .build();
+    }
+
+    /**
+     * Retry-After in whole seconds, rounded up and at least 1.
+     */
+    private static String retryAfterSeconds(Duration retryAfter) {
+        long millis = retryAfter.toMillis();
+        return String.valueOf(Math.max(1, (millis + 999) / 1000));
+    }
+}
@@ -1,6 +1,9 @@
 package com.shdev.securityservice.config;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementServerProperties;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -9,10 +12,15 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Objects;
 
 /**
  * Security configuration class that sets up HTTP security for the application.
  * It permits all requests to health check endpoints and requires authentication for all other requests.
+ * The Prometheus scrape endpoint is open only on the separate management port ({@code management.server.port}),
+ * which is meant to stay on the internal network.
  */
 @Slf4j
 @Configuration
@@ -21,21 +29,28 @@ public class SecurityConfig {
 
     /**
      * Configures the security filter chain.
-     * Permits all requests to /api/health and /actuator/health endpoints.
+     * Permits all requests to /api/health and /actuator/health endpoints, and to /actuator/prometheus when it is
+     * reached on a management port other than the application port.
      * Requires authentication for all other requests.
      *
-     * @param http the HttpSecurity to modify
+     * @param http             the HttpSecurity to modify
+     * @param server           the application server settings
+     * @param managementServer the management server settings
      * @return the configured SecurityFilterChain
      * @throws Exception if an error occurs while configuring security
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, ServerProperties server,
+                                                   ManagementServerProperties managementServer) throws Exception {
         log.info("Configuring security filter chain");
+        RequestMatcher internalMetrics = internalMetrics(server.getPort(), managementServer.getPort());
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers("/api/health", "/actuator/health").permitAll()
                         .requestMatchers("/oauth2/rest/**").permitAll()  // OAuth2 endpoints handle authentication manually
+                        .requestMatchers("/.well-known/**").permitAll()  // Public key discovery
+                        .requestMatchers(internalMetrics).permitAll()  // Metrics scraping on the management port only
                         .anyRequest().authenticated()
                 );
         // Removed .httpBasic() - OAuth2 endpoints validate credentials manually in the controller
@@ -44,6 +59,22 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Matches Prometheus scrapes that arrive on a dedicated management port. Without one, the endpoint shares the
+     * public port and is not opened.
+     */
+    private static RequestMatcher internalMetrics(Integer serverPort, Integer managementPort) {
+        if (managementPort == null || managementPort <= 0 || Objects.equals(managementPort, serverPort)) {
+            log.warn("management.server.port is not a separate port, /actuator/prometheus requires authentication");
+            return request -> false;
+        }
+        return request -> request.getLocalPort() == managementPort && isPrometheus(request);
+    }
+
+    private static boolean isPrometheus(HttpServletRequest request) {
+        return "/actuator/prometheus".equals(request.getRequestURI());
+    }
+
     /**
      * Password encoder bean for BCrypt hashing.
      *
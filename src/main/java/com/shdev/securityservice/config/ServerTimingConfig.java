@@ -0,0 +1,34 @@
+package com.shdev.securityservice.config;
+
+import com.shdev.securityservice.metrics.ServerTimingInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the Server-Timing sampling on the token endpoints when {@code oauth2.server-timing.enabled} is true.
+ * With the property off nothing is registered and no request carries a timing.
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "oauth2.server-timing", name = "enabled", havingValue = "true")
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+    private final OAuth2ClientProperties clientProperties;
+
+    public ServerTimingConfig(OAuth2ClientProperties clientProperties) {
+        this.clientProperties = clientProperties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        log.info("Adding Server-Timing to {}% of token endpoint responses",
+                clientProperties.getServerTiming().getSampleRate() * 100);
+        registry.addInterceptor(new ServerTimingInterceptor(clientProperties))
+                .addPathPatterns("/oauth2/rest/token/**");
+    }
+}
@@ -26,7 +26,7 @@ public class HealthController {
      */
     @GetMapping("/health")
     public HealthComponent getHealth() {
-        log.info("Received request for health status");
+        log.debug("Received request for health status");
         return healthEndpoint.health();
     }
 
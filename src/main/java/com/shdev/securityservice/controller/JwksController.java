@@ -0,0 +1,51 @@
+package com.shdev.securityservice.controller;
+
+import com.shdev.securityservice.jwt.JwksPublisher;
+import com.shdev.securityservice.jwt.JwtProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * REST controller publishing the token verification keys as a JWK set.
+ * Resource servers fetch it once, cache it for the advertised max-age and revalidate with {@code If-None-Match}.
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwksPublisher jwksPublisher;
+    private final JwtProperties jwtProperties;
+
+    /**
+     * Public keys for local token verification.
+     *
+     * @param request the web request, used for conditional GET handling
+     * @return JWK set, or 304 Not Modified if the client's copy is current
+     */
+    @GetMapping(value = {"/oauth2/rest/jwks", "/.well-known/jwks.json"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getJwks(WebRequest request) {
+        JwksPublisher.JwksDocument document = jwksPublisher.document();
+        CacheControl cacheControl = CacheControl.maxAge(jwtProperties.getJwks().getMaxAge()).cachePublic();
+
+        if (request.checkNotModified(document.etag())) {
+            log.debug("JWK set not modified");
+            return ResponseEntity.status(304).eTag(document.etag()).cacheControl(cacheControl).build();
+        }
+
+        log.debug("Serving JWK set");
+        return ResponseEntity.ok()
+                .eTag(document.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(document.body());
+    }
+}
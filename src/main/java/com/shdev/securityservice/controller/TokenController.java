@@ -1,20 +1,36 @@
 package com.shdev.securityservice.controller;
 
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shdev.securityservice.audit.AuditEvent;
+import com.shdev.securityservice.audit.AuditLog;
 import com.shdev.securityservice.config.OAuth2ClientProperties;
 import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.dto.TokenInfoResult;
 import com.shdev.securityservice.dto.TokenResponse;
+import com.shdev.securityservice.dto.TokenResult;
 import com.shdev.securityservice.exception.InvalidClientException;
 import com.shdev.securityservice.exception.InvalidRequestException;
+import com.shdev.securityservice.exception.RateLimitExceededException;
 import com.shdev.securityservice.exception.UnsupportedGrantTypeException;
+import com.shdev.securityservice.metrics.TokenMetrics;
 import com.shdev.securityservice.service.ClientCredentialsService;
+import com.shdev.securityservice.service.ClientRateLimiter;
+import com.shdev.securityservice.service.RegisteredClient;
+import com.shdev.securityservice.service.TokenBatchService;
 import com.shdev.securityservice.service.TokenService;
 import com.shdev.securityservice.util.AuthorizationUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -29,8 +45,17 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class TokenController {
 
+    private static final TypeReference<List<String>> TOKEN_LIST = new TypeReference<>() {
+    };
+
     private final TokenService tokenService;
     private final ClientCredentialsService clientCredentialsService;
+    private final TokenBatchService tokenBatchService;
+    private final ClientRateLimiter clientRateLimiter;
+    private final TokenMetrics metrics;
+    private final AuditLog auditLog;
+    private final OAuth2ClientProperties clientProperties;
+    private final ObjectMapper objectMapper;
 
     /**
      * Generate JWT access token (OAuth2 token endpoint).
@@ -39,6 +64,7 @@ public class TokenController {
      * @param authorization      Basic authentication header
      * @param grantType          OAuth2 grant type (must be CLIENT_CREDENTIALS)
      * @param scope              token scope
+     * @param request            the HTTP request, for the caller's address
      * @return TokenResponse with access token
      */
     @PostMapping(consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
@@ -46,59 +72,157 @@ public class TokenController {
             @RequestHeader(value = "X-OAUTH-IDENTITY-DOMAIN-NAME", required = false) String identityDomainName,
             @RequestHeader(value = "Authorization", required = false) String authorization,
             @RequestParam(value = "grant_type") String grantType,
-            @RequestParam(value = "scope") String scope) {
+            @RequestParam(value = "scope") String scope,
+            HttpServletRequest request) {
+
+        log.debug("Received token generation request for domain: {}, grant_type: {}", identityDomainName, grantType);
+
+        RegisteredClient client = authenticate(identityDomainName, authorization, grantType, request.getRemoteAddr());
+        String clientId = client.clientId();
+
+        // Validate scope
+        if (!clientCredentialsService.isScopeAllowed(client, scope)) {
+            log.debug("Scope not allowed for client {}: {}", clientId, scope);
+            auditLog.record(AuditEvent.issuance(clientId, client.identityDomain(), scope, "invalid_request"));
+            throw new InvalidRequestException("Scope '" + scope + "' is not allowed for this client");
+        }
+
+        // Roles are resolved by the client registry (USER if none configured)
+        TokenResponse response = tokenService.generateToken(client, scope);
+        log.debug("Token generated successfully for client: {} with roles: {}", clientId, client.roles());
+        return response;
+    }
+
+    /**
+     * Generate one JWT access token per requested scope in a single request (batch token endpoint).
+     * The client is authenticated once; each scope is checked against its allowed scopes.
+     *
+     * @param identityDomainName identity domain name from header
+     * @param authorization      Basic authentication header
+     * @param grantType          OAuth2 grant type (must be CLIENT_CREDENTIALS)
+     * @param scopes             requested scopes, space-delimited and/or repeated
+     * @param request            the HTTP request, for the caller's address
+     * @return per-scope token or OAuth2 error, in request order
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public List<TokenResult> generateTokens(
+            @RequestHeader(value = "X-OAUTH-IDENTITY-DOMAIN-NAME", required = false) String identityDomainName,
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestParam(value = "grant_type") String grantType,
+            @RequestParam(value = "scope") List<String> scopes,
+            HttpServletRequest request) {
+
+        log.debug("Received batch token generation request for domain: {}, grant_type: {}", identityDomainName, grantType);
+
+        RegisteredClient client = authenticate(identityDomainName, authorization, grantType, request.getRemoteAddr());
+
+        List<String> requestedScopes = scopes.stream()
+                .flatMap(scope -> Arrays.stream(scope.trim().split("\\s+")))
+                .filter(StringUtils::hasText)
+                .toList();
+        List<TokenResult> results = tokenBatchService.generateTokens(client, requestedScopes);
+        log.debug("Batch of {} tokens generated for client: {}", results.size(), client.clientId());
+        return results;
+    }
+
+    /**
+     * Revoke a token issued to the calling client (token revocation endpoint, RFC 7009).
+     * Invalid, expired and already revoked tokens are answered with 200 as well.
+     *
+     * @param identityDomainName identity domain name from header
+     * @param authorization      Basic authentication header
+     * @param token              JWT token to revoke
+     * @param request            the HTTP request, for the caller's address
+     */
+    @PostMapping(value = "/revoke", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public void revokeToken(
+            @RequestHeader(value = "X-OAUTH-IDENTITY-DOMAIN-NAME", required = false) String identityDomainName,
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestParam(value = "token") String token,
+            HttpServletRequest request) {
 
-        log.info("Received token generation request for domain: {}, grant_type: {}", identityDomainName, grantType);
+        log.debug("Received token revocation request for domain: {}", identityDomainName);
 
+        RegisteredClient client = authenticateClient(identityDomainName, authorization, request.getRemoteAddr());
+        if (!StringUtils.hasText(token)) {
+            throw new InvalidRequestException("Missing token parameter");
+        }
+        tokenService.revokeToken(client, token, request.getRemoteAddr());
+    }
+
+    /**
+     * Check the grant type, then authenticate the client.
+     *
+     * @param identityDomainName identity domain name from header
+     * @param authorization      Basic authentication header
+     * @param grantType          OAuth2 grant type
+     * @param remoteAddress      the caller's address
+     * @return the authenticated client
+     */
+    private RegisteredClient authenticate(String identityDomainName, String authorization, String grantType,
+                                          String remoteAddress) {
         // Validate grant type
         if (!"CLIENT_CREDENTIALS".equals(grantType)) {
-            log.warn("Invalid grant type: {}", grantType);
+            log.debug("Invalid grant type: {}", grantType);
             throw new UnsupportedGrantTypeException("Only CLIENT_CREDENTIALS grant type is supported");
         }
+        return authenticateClient(identityDomainName, authorization, remoteAddress);
+    }
 
+    /**
+     * Check the domain header, apply the rate limits, then authenticate the client from the Basic authentication
+     * header.
+     *
+     * @param identityDomainName identity domain name from header
+     * @param authorization      Basic authentication header
+     * @param remoteAddress      the caller's address
+     * @return the authenticated client
+     */
+    private RegisteredClient authenticateClient(String identityDomainName, String authorization, String remoteAddress) {
         // Validate domain
         if (!StringUtils.hasText(identityDomainName)) {
-            log.warn("Missing X-OAUTH-IDENTITY-DOMAIN-NAME header");
+            log.debug("Missing X-OAUTH-IDENTITY-DOMAIN-NAME header");
             throw new InvalidRequestException("Missing X-OAUTH-IDENTITY-DOMAIN-NAME header");
         }
 
         // Validate and extract Basic Auth credentials
+        long parseStart = System.nanoTime();
         String[] credentials = AuthorizationUtil.extractClientCredentials(authorization);
         if (credentials == null || credentials.length != 2) {
-            log.warn("Missing or invalid Authorization header");
+            metrics.failure(TokenMetrics.Stage.AUTH_PARSE, identityDomainName, "invalid_client", parseStart);
+            log.debug("Missing or invalid Authorization header");
+            auditLog.record(AuditEvent.authentication(null, identityDomainName, remoteAddress, "invalid_client"));
             throw new InvalidClientException("Invalid or missing client credentials");
         }
+        metrics.success(TokenMetrics.Stage.AUTH_PARSE, identityDomainName, parseStart);
 
         String clientId = credentials[0];
         String clientSecret = credentials[1];
 
-        log.info("Validating client credentials for client: [{}], clientSecret: [{}], identityDomainName: [{}]", clientId, clientSecret, identityDomainName);
-
-        // Validate client credentials
-        Optional<OAuth2ClientProperties.ClientConfig> clientConfig =
-                clientCredentialsService.validateCredentials(clientId, clientSecret, identityDomainName);
+        // Throttle before any hashing or signing is spent on the request
+        clientRateLimiter.acquire(identityDomainName, clientId, remoteAddress);
 
-        if (clientConfig.isEmpty()) {
-            log.warn("Invalid client credentials for client: {}", clientId);
-            throw new InvalidClientException("Invalid client credentials");
-        }
+        log.debug("Validating client credentials for client: [{}], identityDomainName: [{}]", clientId, identityDomainName);
 
-        // Validate scope
-        if (!clientCredentialsService.isScopeAllowed(clientConfig.get(), scope)) {
-            log.warn("Scope not allowed for client {}: {}", clientId, scope);
-            throw new InvalidRequestException("Scope '" + scope + "' is not allowed for this client");
+        // Validate client credentials
+        Optional<RegisteredClient> client;
+        try {
+            client = clientCredentialsService.validateCredentials(clientId, clientSecret, identityDomainName);
+        } catch (RateLimitExceededException e) {
+            // Same error code as the 429 response written by OAuth2ExceptionHandler
+            auditLog.record(AuditEvent.authentication(clientId, identityDomainName, remoteAddress,
+                    "too_many_requests"));
+            throw e;
         }
 
-        // Get roles from client configuration (default to empty list if not configured)
-        java.util.List<String> roles = clientConfig.get().getRoles();
-        if (roles == null || roles.isEmpty()) {
-            roles = java.util.List.of("USER");  // Default role if none configured
-            log.debug("No roles configured for client {}, using default: USER", clientId);
+        if (client.isEmpty()) {
+            log.debug("Invalid client credentials for client: {}", clientId);
+            auditLog.record(AuditEvent.authentication(clientId, identityDomainName, remoteAddress, "invalid_client"));
+            throw new InvalidClientException("Invalid client credentials");
         }
+        auditLog.record(AuditEvent.authentication(clientId, identityDomainName, remoteAddress, AuditEvent.SUCCESS));
 
-        TokenResponse response = tokenService.generateToken(clientId, scope, identityDomainName, roles);
-        log.info("Token generated successfully for client: {} with roles: {}", clientId, roles);
-        return response;
+        return client.get();
     }
 
     /**
@@ -113,16 +237,58 @@ public class TokenController {
             @RequestParam(value = "access_token") String accessToken,
             @RequestHeader(value = "X-OAUTH-IDENTITY-DOMAIN-NAME", required = false) String identityDomainName) {
 
-        log.info("Received token validation request for domain: {}", identityDomainName);
+        log.debug("Received token validation request for domain: {}", identityDomainName);
 
         if (!StringUtils.hasText(accessToken)) {
-            log.warn("Missing access_token parameter");
+            log.debug("Missing access_token parameter");
             throw new InvalidRequestException("Missing access_token parameter");
         }
 
         TokenInfoResponse response = tokenService.validateToken(accessToken);
-        log.info("Token validated successfully for subject: {}", response.subject());
+        log.debug("Token validated successfully for subject: {}", response.subject());
         return response;
     }
-}
 
+    /**
+     * Validate a batch of JWT tokens in one request (batch token info endpoint).
+     * The endpoint is unauthenticated, so it is rate-limited per remote address and the body is read up to
+     * {@code oauth2.batch.max-request-size} before anything is parsed.
+     *
+     * @param identityDomainName identity domain name from header
+     * @param request            the HTTP request, a JSON array of JWT tokens
+     * @return per-token info or OAuth2 error, in request order
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/info/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<TokenInfoResult> validateTokens(
+            @RequestHeader(value = "X-OAUTH-IDENTITY-DOMAIN-NAME", required = false) String identityDomainName,
+            HttpServletRequest request) throws IOException {
+
+        log.debug("Received batch token validation request for domain: {}", identityDomainName);
+
+        clientRateLimiter.acquire(null, null, request.getRemoteAddr());
+        List<TokenInfoResult> results = tokenBatchService.validateTokens(readTokens(request));
+        log.debug("Batch of {} tokens validated", results.size());
+        return results;
+    }
+
+    /**
+     * Read the JSON array of tokens, refusing bodies over the configured size without reading them further.
+     */
+    private List<String> readTokens(HttpServletRequest request) throws IOException {
+        long maxBytes = clientProperties.getBatch().getMaxRequestSize().toBytes();
+        String tooLarge = "Request body exceeds " + maxBytes + " bytes";
+        if (request.getContentLengthLong() > maxBytes) {
+            throw new InvalidRequestException(tooLarge);
+        }
+        byte[] body = request.getInputStream().readNBytes((int) Math.min(Integer.MAX_VALUE - 1, maxBytes) + 1);
+        if (body.length > maxBytes) {
+            throw new InvalidRequestException(tooLarge);
+        }
+        try {
+            return objectMapper.readValue(body, TOKEN_LIST);
+        } catch (JacksonException e) {
+            throw new InvalidRequestException("Request body must be a JSON array of tokens");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shdev.securityservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Per-token entry of a batch introspection response: either the token info or an OAuth2 error.
+ *
+ * @author Shailesh Halor
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TokenInfoResult(
+        @JsonProperty("token_info") TokenInfoResponse tokenInfo,
+        @JsonProperty("error") String error,
+        @JsonProperty("error_description") String errorDescription
+) {
+
+    public static TokenInfoResult success(TokenInfoResponse tokenInfo) {
+        return new TokenInfoResult(tokenInfo, null, null);
+    }
+
+    public static TokenInfoResult failure(String error, String errorDescription) {
+        return new TokenInfoResult(null, error, errorDescription);
+    }
+}
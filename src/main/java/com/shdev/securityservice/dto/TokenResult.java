@@ -0,0 +1,26 @@
+package com.shdev.securityservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Per-scope entry of a batch token response: either the issued token or an OAuth2 error.
+ *
+ * @author Shailesh Halor
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TokenResult(
+        @JsonProperty("scope") String scope,
+        @JsonProperty("token") TokenResponse token,
+        @JsonProperty("error") String error,
+        @JsonProperty("error_description") String errorDescription
+) {
+
+    public static TokenResult success(String scope, TokenResponse token) {
+        return new TokenResult(scope, token, null, null);
+    }
+
+    public static TokenResult failure(String scope, String error, String errorDescription) {
+        return new TokenResult(scope, null, error, errorDescription);
+    }
+}
@@ -2,12 +2,13 @@ package com.shdev.securityservice.exception;
 
 /**
  * Exception thrown when token validation fails.
+ * Stackless: invalid tokens are expected client errors, and a flood of them should not pay for stack traces.
  */
 public class InvalidTokenException extends RuntimeException {
     public InvalidTokenException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
     public InvalidTokenException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.shdev.securityservice.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a caller exceeds its request rate.
+ * Created without a stack trace, since rejections are expected in bulk and must stay cheap; the wait is kept in
+ * nanoseconds so throwing one allocates nothing else.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterNanos;
+
+    public RateLimitExceededException(String message, long retryAfterNanos) {
+        super(message, null, false, false);
+        this.retryAfterNanos = retryAfterNanos;
+    }
+
+    public long getRetryAfterNanos() {
+        return retryAfterNanos;
+    }
+
+    public Duration getRetryAfter() {
+        return Duration.ofNanos(retryAfterNanos);
+    }
+}
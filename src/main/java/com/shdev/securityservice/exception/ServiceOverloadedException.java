@@ -0,0 +1,24 @@
+package com.shdev.securityservice.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a request is shed because the service is at capacity.
+ * <p>
+ * Shedding must stay cheaper than serving, so the exception is stackless and immutable and can be preallocated and
+ * thrown repeatedly, like {@link com.shdev.securityservice.jwt.RejectionReason}'s exceptions.
+ * </p>
+ */
+public class ServiceOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceOverloadedException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,45 @@
+package com.shdev.securityservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for one client credential check in {@code ClientCredentialsService}; checks shed by the hashing pool are
+ * not recorded.
+ * Disabled unless enabled by a recording's settings, e.g. {@code jfr/security-service.jfc}.
+ *
+ * @author Shailesh Halor
+ */
+@Name("com.shdev.securityservice.ClientAuthentication")
+@Label("Client Authentication")
+@Description("Checking a client ID and secret")
+@Category({"Security Service", "Client"})
+@Enabled(false)
+@StackTrace(false)
+public class ClientAuthenticationEvent extends jdk.jfr.Event {
+
+    @Label("Client ID")
+    @Description("Client ID as presented, not necessarily a registered one")
+    public String clientId;
+
+    @Label("Identity Domain")
+    public String domain;
+
+    @Label("Result")
+    @Description("authenticated, rejected, backoff, known_failure or missing_credentials")
+    public String result;
+
+    @Label("Cache Hit")
+    @Description("Accepted from the credential verification cache without BCrypt")
+    public boolean cacheHit;
+
+    @Label("BCrypt Time")
+    @Description("Time of the BCrypt check including the wait for a hashing pool thread, 0 if BCrypt was not run")
+    @Timespan(Timespan.NANOSECONDS)
+    public long bcryptTime;
+}
@@ -0,0 +1,39 @@
+package com.shdev.securityservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for building and signing one token in {@code JwtTokenGenerator}; failed signings are not recorded.
+ * Disabled unless enabled by a recording's settings, e.g. {@code jfr/security-service.jfc}.
+ *
+ * @author Shailesh Halor
+ */
+@Name("com.shdev.securityservice.TokenSigning")
+@Label("Token Signing")
+@Description("Building and signing an access token")
+@Category({"Security Service", "Token"})
+@Enabled(false)
+@StackTrace(false)
+public class TokenSigningEvent extends jdk.jfr.Event {
+
+    @Label("Client ID")
+    public String clientId;
+
+    @Label("Identity Domain")
+    public String domain;
+
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Key ID")
+    public String keyId;
+
+    @Label("Fast Path")
+    @Description("Signed with the template-based encoder rather than the jjwt builder")
+    public boolean fastPath;
+}
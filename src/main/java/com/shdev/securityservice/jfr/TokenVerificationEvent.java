@@ -0,0 +1,43 @@
+package com.shdev.securityservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for validating one token in {@code JwtTokenValidator}, from the verified-token cache lookup to the decoded
+ * claims. On a cache miss the duration includes the wait for a verification pool thread.
+ * Disabled unless enabled by a recording's settings, e.g. {@code jfr/security-service.jfc}.
+ *
+ * @author Shailesh Halor
+ */
+@Name("com.shdev.securityservice.TokenVerification")
+@Label("Token Verification")
+@Description("Validating an access token, answered from the verified-token cache or by checking its signature")
+@Category({"Security Service", "Token"})
+@Enabled(false)
+@StackTrace(false)
+public class TokenVerificationEvent extends jdk.jfr.Event {
+
+    @Label("Client ID")
+    @Description("Client claim of the token, null if it was rejected")
+    public String clientId;
+
+    @Label("Identity Domain")
+    @Description("Domain claim of the token, null if it was rejected")
+    public String domain;
+
+    @Label("Algorithm")
+    @Description("Algorithm of the key that verified the token, null if the token was rejected")
+    public String algorithm;
+
+    @Label("Cache Hit")
+    public boolean cacheHit;
+
+    @Label("Error")
+    @Description("Reason the token was rejected, null if it is valid")
+    public String error;
+}
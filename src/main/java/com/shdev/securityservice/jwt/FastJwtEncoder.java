@@ -0,0 +1,270 @@
+package com.shdev.securityservice.jwt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shdev.securityservice.util.Base64UrlUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Template-based JWT encoder producing the same bytes as the jjwt builder in {@link JwtTokenGenerator}.
+ * <p>
+ * Everything in a token except {@code exp}, {@code jti} and {@code iat} is constant for a given key, client, scope,
+ * domain and role set. The header segment and the JSON around the dynamic claims are serialized once per such
+ * combination and cached; each token then only writes the dynamic fields into a per-thread buffer, Base64URL encodes
+ * it and signs it with a per-thread pre-initialised signer.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class FastJwtEncoder {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final byte[] JTI_START = ",\"jti\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IAT_START = "\",\"iat\":".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_TEMPLATES = 10_000;
+
+    private final JwtProperties jwtProperties;
+    private final Cache<TemplateKey, TokenTemplate> templates = Caffeine.newBuilder().maximumSize(MAX_TEMPLATES).build();
+    private final Map<String, JwsSigner> signers = new ConcurrentHashMap<>();
+    private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    public FastJwtEncoder(JwtProperties jwtProperties) {
+        this.jwtProperties = jwtProperties;
+    }
+
+    /**
+     * Encode and sign a token.
+     *
+     * @param key       signing key
+     * @param clientId  the client ID (subject and client claim)
+     * @param scope     the scope
+     * @param domain    the identity domain name
+     * @param roles     the user roles
+     * @param jti       the JWT ID (Base64URL characters only)
+     * @param issuedAt  the {@code iat} claim
+     * @param expiresAt the {@code exp} claim
+     * @return compact JWT, or null if the claims cannot be templated and the jjwt builder must be used
+     */
+    public String encode(SigningKey key, String clientId, String scope, String domain, List<String> roles,
+                         String jti, Instant issuedAt, Instant expiresAt) {
+        TokenTemplate template = template(key, clientId, scope, domain, roles);
+        if (template == null) {
+            return null;
+        }
+
+        Buffers buf = buffers.get();
+
+        // Payload JSON: static prefix, exp, jti, iat, static suffix
+        byte[] json = buf.json(template.claimsPrefix.length + template.claimsSuffix.length + jti.length() + 64);
+        int p = put(json, 0, template.claimsPrefix);
+        p = putLong(json, p, expiresAt.getEpochSecond());
+        p = put(json, p, JTI_START);
+        for (int i = 0; i < jti.length(); i++) {
+            json[p++] = (byte) jti.charAt(i);
+        }
+        p = put(json, p, IAT_START);
+        p = putLong(json, p, issuedAt.getEpochSecond());
+        p = put(json, p, template.claimsSuffix);
+
+        // Signing input: header segment '.' payload segment
+        int signingInputLength = template.headerSegment.length + 1 + Base64UrlUtil.encodedLength(p);
+        byte[] out = buf.out(signingInputLength + 1 + Base64UrlUtil.encodedLength(JwsSigner.MAX_SIGNATURE_LENGTH));
+        int o = put(out, 0, template.headerSegment);
+        out[o++] = '.';
+        o += Base64UrlUtil.encode(json, 0, p, out, o);
+
+        try {
+            int signatureLength = template.signer.sign(out, o, buf.signature);
+            out[o++] = '.';
+            o += Base64UrlUtil.encode(buf.signature, 0, signatureLength, out, o);
+        } catch (GeneralSecurityException e) {
+            log.error("Failed to sign JWT token with key ID: {}", key.keyId(), e);
+            throw new IllegalStateException("Failed to sign JWT token", e);
+        }
+
+        return new String(out, 0, o, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Discard cached templates and signers, e.g. after keys were replaced.
+     */
+    public void clear() {
+        templates.invalidateAll();
+        signers.clear();
+    }
+
+    /**
+     * Drop templates and signers built for keys that have been rotated out. Retiring a key does not change what
+     * tokens are signed with, so events that only retire keys are ignored.
+     *
+     * @param event key rotation event
+     */
+    @EventListener
+    public void onKeysRotated(JwtKeysRotatedEvent event) {
+        if (event.keyIds().isEmpty()) {
+            return;
+        }
+        log.info("JWT keys rotated to {}, clearing cached templates and signers", event.keyIds());
+        clear();
+    }
+
+    private TokenTemplate template(SigningKey key, String clientId, String scope, String domain, List<String> roles) {
+        TemplateKey templateKey = new TemplateKey(key.keyId(), clientId, scope, domain, roles);
+        TokenTemplate template = templates.getIfPresent(templateKey);
+        if (template != null && template.signer.key() == key) {
+            return template;
+        }
+
+        template = buildTemplate(key, clientId, scope, domain, roles);
+        if (template != null) {
+            templates.put(templateKey, template);
+        }
+        return template;
+    }
+
+    private TokenTemplate buildTemplate(SigningKey key, String clientId, String scope, String domain, List<String> roles) {
+        if (!StringUtils.hasText(clientId) || !StringUtils.hasText(scope) || !StringUtils.hasText(domain) || roles == null
+                || !nullOrText(jwtProperties.getIssuer()) || !nullOrText(jwtProperties.getVersion())) {
+            log.debug("Claims for client {} cannot be templated, using jjwt builder", clientId);
+            return null;
+        }
+
+        try {
+            // Same member order as the jjwt builder: user header fields first, then alg
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("kid", key.keyId());
+            if (key.thumbprint() != null) {
+                header.put("x5t", key.thumbprint());
+            }
+            header.put("alg", key.algorithm().headerName());
+            byte[] headerJson = JSON.writeValueAsBytes(header);
+            byte[] headerSegment = new byte[Base64UrlUtil.encodedLength(headerJson.length)];
+            Base64UrlUtil.encode(headerJson, 0, headerJson.length, headerSegment, 0);
+
+            Map<String, Object> leading = new LinkedHashMap<>();
+            if (jwtProperties.getIssuer() != null) {
+                leading.put("iss", jwtProperties.getIssuer());
+            }
+            if (jwtProperties.getAudience() != null && !jwtProperties.getAudience().isEmpty()) {
+                leading.put("aud", new LinkedHashSet<>(jwtProperties.getAudience()));
+            }
+
+            Map<String, Object> trailing = new LinkedHashMap<>();
+            trailing.put("sub", clientId);
+            trailing.put("client", clientId);
+            trailing.put("scope", List.of(scope));
+            trailing.put("domain", domain);
+            trailing.put("roles", roles);
+            if (jwtProperties.getVersion() != null) {
+                trailing.put("v", jwtProperties.getVersion());
+            }
+
+            return new TokenTemplate(
+                    headerSegment,
+                    claimsPrefix(leading),
+                    claimsSuffix(trailing),
+                    signer(key));
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to build token template for client {}, using jjwt builder", clientId, e);
+            return null;
+        }
+    }
+
+    private JwsSigner signer(SigningKey key) {
+        return signers.compute(key.keyId(), (keyId, existing) ->
+                existing != null && existing.key() == key ? existing : new JwsSigner(key));
+    }
+
+    /**
+     * {@code {"iss":..,"aud":[..],"exp":}
+     */
+    private static byte[] claimsPrefix(Map<String, Object> leading) throws JsonProcessingException {
+        String json = leading.isEmpty() ? "{" : stripLast(JSON.writeValueAsString(leading)) + ",";
+        return (json + "\"exp\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@code ,"sub":..,"v":..}}
+     */
+    private static byte[] claimsSuffix(Map<String, Object> trailing) throws JsonProcessingException {
+        return ("," + JSON.writeValueAsString(trailing).substring(1)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String stripLast(String json) {
+        return json.substring(0, json.length() - 1);
+    }
+
+    /**
+     * jjwt drops null and blank string claims; blank values are left to the builder.
+     */
+    private static boolean nullOrText(String value) {
+        return value == null || StringUtils.hasText(value);
+    }
+
+    private static int put(byte[] dst, int offset, byte[] src) {
+        System.arraycopy(src, 0, dst, offset, src.length);
+        return offset + src.length;
+    }
+
+    private static int putLong(byte[] dst, int offset, long value) {
+        if (value < 0) {
+            dst[offset++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long remaining = value / 10; remaining > 0; remaining /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            dst[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    private record TemplateKey(String keyId, String clientId, String scope, String domain, List<String> roles) {
+    }
+
+    private record TokenTemplate(byte[] headerSegment, byte[] claimsPrefix, byte[] claimsSuffix, JwsSigner signer) {
+    }
+
+    /**
+     * Per-thread scratch buffers, grown on demand and reused across tokens.
+     */
+    private static final class Buffers {
+        private byte[] json = new byte[1024];
+        private byte[] out = new byte[2048];
+        private final byte[] signature = new byte[JwsSigner.MAX_SIGNATURE_LENGTH];
+
+        byte[] json(int capacity) {
+            if (json.length < capacity) {
+                json = Arrays.copyOf(json, Math.max(capacity, json.length * 2));
+            }
+            return json;
+        }
+
+        byte[] out(int capacity) {
+            if (out.length < capacity) {
+                out = Arrays.copyOf(out, Math.max(capacity, out.length * 2));
+            }
+            return out;
+        }
+    }
+}
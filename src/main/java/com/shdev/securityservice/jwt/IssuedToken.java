@@ -0,0 +1,20 @@
+package com.shdev.securityservice.jwt;
+
+import java.time.Instant;
+
+/**
+ * A signed JWT together with the time claims it was issued with.
+ *
+ * @param value     the compact JWT string
+ * @param jti       the JWT ID
+ * @param issuedAt  the {@code iat} claim
+ * @param expiresAt the {@code exp} claim
+ * @author Shailesh Halor
+ */
+public record IssuedToken(
+        String value,
+        String jti,
+        Instant issuedAt,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,154 @@
+package com.shdev.securityservice.jwt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shdev.securityservice.util.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serializes the public keys of the {@link JwtKeyRing} as a JWK set (RFC 7517) for resource servers that verify
+ * tokens locally.
+ * <p>
+ * The document is built once per key ring generation and reused for every request together with its strong ETag.
+ * It is rebuilt when keys are reloaded or when a rotated-out key leaves its overlap window.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class JwksPublisher {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final Map<String, Integer> OKP_KEY_BYTES = Map.of("Ed25519", 32, "Ed448", 57);
+
+    private final JwtKeyRing keyRing;
+    private volatile JwksDocument document;
+
+    public JwksPublisher(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    /**
+     * Current JWK set document.
+     *
+     * @return serialized JWK set with its ETag
+     */
+    public JwksDocument document() {
+        JwksDocument current = document;
+        if (current != null && current.generation() == keyRing.generation()
+                && (current.validUntil() == null || Instant.now().isBefore(current.validUntil()))) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    private synchronized JwksDocument rebuild() {
+        JwtKeyRing.PublishedKeys published = keyRing.publishedKeys();
+        List<Map<String, Object>> keys = new ArrayList<>(published.keys().size());
+        published.keys().forEach((keyId, key) -> keys.add(jwk(keyId, key)));
+
+        byte[] body;
+        try {
+            body = JSON.writeValueAsBytes(Map.of("keys", keys));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize JWK set", e);
+        }
+        String etag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(DigestUtil.sha256(body)) + "\"";
+
+        JwksDocument rebuilt = new JwksDocument(body, etag, published.generation(), published.validUntil());
+        document = rebuilt;
+        log.info("Published JWK set with key IDs: {}", published.keys().keySet());
+        return rebuilt;
+    }
+
+    static Map<String, Object> jwk(String keyId, SigningKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        switch (key.verificationKey()) {
+            case RSAPublicKey rsa -> {
+                jwk.put("kty", "RSA");
+                jwk.put("n", base64Url(unsigned(rsa.getModulus())));
+                jwk.put("e", base64Url(unsigned(rsa.getPublicExponent())));
+            }
+            case ECPublicKey ec -> {
+                int coordinateBytes = (ec.getParams().getCurve().getField().getFieldSize() + 7) / 8;
+                jwk.put("kty", "EC");
+                jwk.put("crv", curve(keyId, ec));
+                jwk.put("x", base64Url(fixedLength(ec.getW().getAffineX(), coordinateBytes)));
+                jwk.put("y", base64Url(fixedLength(ec.getW().getAffineY(), coordinateBytes)));
+            }
+            case EdECPublicKey ed -> {
+                String curve = curve(keyId, ed);
+                // The raw key is the trailing bytes of the X.509 SubjectPublicKeyInfo encoding
+                byte[] encoded = ed.getEncoded();
+                jwk.put("kty", "OKP");
+                jwk.put("crv", curve);
+                jwk.put("x", base64Url(Arrays.copyOfRange(encoded, encoded.length - OKP_KEY_BYTES.get(curve), encoded.length)));
+            }
+            default -> throw new IllegalStateException("Unsupported public key type for key ID: " + keyId);
+        }
+        jwk.put("use", "sig");
+        jwk.put("alg", key.algorithm().headerName());
+        jwk.put("kid", keyId);
+        if (key.certificate() != null) {
+            jwk.put("x5t", key.thumbprint());
+            jwk.put("x5t#S256", JwtKeyRing.thumbprint(key.certificate(), "SHA-256"));
+            try {
+                jwk.put("x5c", List.of(Base64.getEncoder().encodeToString(key.certificate().getEncoded())));
+            } catch (CertificateEncodingException e) {
+                throw new IllegalStateException("Failed to encode certificate for key ID: " + keyId, e);
+            }
+        }
+        return jwk;
+    }
+
+    private static String curve(String keyId, PublicKey key) {
+        String curve = JwtKeyLoader.curve(key);
+        if (curve == null || (key instanceof EdECPublicKey && !OKP_KEY_BYTES.containsKey(curve))) {
+            throw new IllegalStateException("Unsupported curve for key ID: " + keyId);
+        }
+        return curve;
+    }
+
+    private static byte[] unsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return bytes.length > 1 && bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    private static byte[] fixedLength(BigInteger value, int length) {
+        byte[] bytes = unsigned(value);
+        byte[] padded = new byte[length];
+        System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+        return padded;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Serialized JWK set.
+     *
+     * @param body       JSON body
+     * @param etag       strong entity tag of the body, quoted
+     * @param generation key ring generation the body was built from
+     * @param validUntil when the body must be rebuilt because a key retires, or null
+     */
+    public record JwksDocument(byte[] body, String etag, long generation, Instant validUntil) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.shdev.securityservice.jwt;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Signature;
+
+/**
+ * Produces JWS signatures for one {@link SigningKey} using per-thread, pre-initialised JCA instances.
+ * A {@link Signature} or {@link Mac} returns to its initialised state after each signature, so every thread
+ * initialises its instance with the key once and reuses it for all subsequent tokens.
+ *
+ * @author Shailesh Halor
+ */
+final class JwsSigner {
+
+    /**
+     * Upper bound for signature sizes (RSA-4096 produces 512 bytes).
+     */
+    static final int MAX_SIGNATURE_LENGTH = 1024;
+
+    private final SigningKey key;
+    private final ThreadLocal<Signature> signature;
+    private final ThreadLocal<Mac> mac;
+
+    JwsSigner(SigningKey key) {
+        this.key = key;
+        if (key.algorithm().isSymmetric()) {
+            this.signature = null;
+            this.mac = ThreadLocal.withInitial(this::newMac);
+        } else {
+            this.signature = ThreadLocal.withInitial(this::newSignature);
+            this.mac = null;
+        }
+    }
+
+    /**
+     * The key this signer was created for.
+     *
+     * @return signing key
+     */
+    SigningKey key() {
+        return key;
+    }
+
+    /**
+     * Sign a byte range and write the JWS signature into the output array.
+     *
+     * @param data   bytes to sign
+     * @param length number of bytes to sign from the start of {@code data}
+     * @param out    output array with room for {@link #MAX_SIGNATURE_LENGTH} bytes
+     * @return signature length
+     * @throws GeneralSecurityException if signing fails
+     */
+    int sign(byte[] data, int length, byte[] out) throws GeneralSecurityException {
+        if (mac != null) {
+            Mac hmac = mac.get();
+            hmac.update(data, 0, length);
+            int macLength = hmac.getMacLength();
+            hmac.doFinal(out, 0);
+            return macLength;
+        }
+
+        Signature sig = signature.get();
+        sig.update(data, 0, length);
+        return sig.sign(out, 0, out.length);
+    }
+
+    private Signature newSignature() {
+        try {
+            Signature sig = Signature.getInstance(key.algorithm().signatureAlgorithm());
+            sig.initSign((PrivateKey) key.signingKey());
+            return sig;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise " + key.algorithm() + " signer", e);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac hmac = Mac.getInstance(key.algorithm().signatureAlgorithm());
+            hmac.init(key.signingKey());
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise " + key.algorithm() + " signer", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.shdev.securityservice.jwt;
+
+import javax.crypto.Mac;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+
+/**
+ * Verifies JWS signatures for one {@link SigningKey} using per-thread, pre-initialised JCA instances.
+ * Counterpart of {@link JwsSigner}: each thread initialises its {@link Signature} or {@link Mac} with the
+ * verification key once and reuses it for every token signed by that key.
+ *
+ * @author Shailesh Halor
+ */
+final class JwsVerifier {
+
+    private final SigningKey key;
+    private final ThreadLocal<Signature> signature;
+    private final ThreadLocal<Mac> mac;
+    private final ThreadLocal<byte[]> expected;
+
+    JwsVerifier(SigningKey key) {
+        this.key = key;
+        if (key.algorithm().isSymmetric()) {
+            this.signature = null;
+            this.mac = ThreadLocal.withInitial(this::newMac);
+            this.expected = ThreadLocal.withInitial(() -> new byte[JwsSigner.MAX_SIGNATURE_LENGTH]);
+        } else {
+            this.signature = ThreadLocal.withInitial(this::newSignature);
+            this.mac = null;
+            this.expected = null;
+        }
+    }
+
+    /**
+     * The key this verifier was created for.
+     *
+     * @return verification key
+     */
+    SigningKey key() {
+        return key;
+    }
+
+    /**
+     * Verify a JWS signature over a byte range.
+     *
+     * @param data            signed bytes
+     * @param length          number of signed bytes from the start of {@code data}
+     * @param signatureBytes  array holding the decoded signature
+     * @param signatureLength signature length
+     * @return true if the signature is valid
+     * @throws GeneralSecurityException if the signature cannot be processed
+     */
+    boolean verify(byte[] data, int length, byte[] signatureBytes, int signatureLength) throws GeneralSecurityException {
+        if (mac != null) {
+            Mac hmac = mac.get();
+            byte[] computed = expected.get();
+            hmac.update(data, 0, length);
+            int macLength = hmac.getMacLength();
+            hmac.doFinal(computed, 0);
+            return macLength == signatureLength && constantTimeEquals(computed, signatureBytes, macLength);
+        }
+
+        Signature sig = signature.get();
+        try {
+            sig.update(data, 0, length);
+            return sig.verify(signatureBytes, 0, signatureLength);
+        } catch (GeneralSecurityException e) {
+            // The instance state is unspecified after a failure; the next call on this thread starts afresh
+            signature.remove();
+            throw e;
+        }
+    }
+
+    private static boolean constantTimeEquals(byte[] a, byte[] b, int length) {
+        int result = 0;
+        for (int i = 0; i < length; i++) {
+            result |= a[i] ^ b[i];
+        }
+        return result == 0;
+    }
+
+    private Signature newSignature() {
+        try {
+            Signature sig = Signature.getInstance(key.algorithm().signatureAlgorithm());
+            sig.initVerify((PublicKey) key.verificationKey());
+            return sig;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise " + key.algorithm() + " verifier", e);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac hmac = Mac.getInstance(key.algorithm().signatureAlgorithm());
+            hmac.init(key.verificationKey());
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise " + key.algorithm() + " verifier", e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.shdev.securityservice.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+
+import java.security.Key;
+
+/**
+ * JWS algorithms supported for signing and validating tokens.
+ *
+ * @author Shailesh Halor
+ */
+public enum JwtAlgorithm {
+
+    /**
+     * RSASSA-PKCS1-v1_5 with SHA-256 (default)
+     */
+    RS256("RS256", "RSA", null, "SHA256withRSA", Jwts.SIG.RS256),
+
+    /**
+     * ECDSA on P-256 with SHA-256
+     */
+    ES256("ES256", "EC", "P-256", "SHA256withECDSAinP1363Format", Jwts.SIG.ES256),
+
+    /**
+     * EdDSA with Ed25519 keys
+     */
+    EdDSA("EdDSA", "Ed25519", "Ed25519", "Ed25519", Jwts.SIG.EdDSA),
+
+    /**
+     * HMAC with SHA-256, for internal-only audiences sharing the secret
+     */
+    HS256("HS256", "HmacSHA256", null, "HmacSHA256", Jwts.SIG.HS256);
+
+    private final String headerName;
+    private final String keyAlgorithm;
+    private final String curve;
+    private final String signatureAlgorithm;
+    private final SecureDigestAlgorithm<?, ?> jwsAlgorithm;
+
+    JwtAlgorithm(String headerName, String keyAlgorithm, String curve, String signatureAlgorithm,
+                 SecureDigestAlgorithm<?, ?> jwsAlgorithm) {
+        this.headerName = headerName;
+        this.keyAlgorithm = keyAlgorithm;
+        this.curve = curve;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.jwsAlgorithm = jwsAlgorithm;
+    }
+
+    /**
+     * Value of the {@code alg} header for this algorithm.
+     *
+     * @return JWS algorithm name
+     */
+    public String headerName() {
+        return headerName;
+    }
+
+    /**
+     * JCA algorithm name used to load keys for this algorithm.
+     *
+     * @return key algorithm name
+     */
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    /**
+     * JWK name of the only curve keys for this algorithm may use.
+     *
+     * @return curve name, or null for algorithms without curves
+     */
+    public String curve() {
+        return curve;
+    }
+
+    /**
+     * JCA {@code Signature} (or {@code Mac} for HMAC) algorithm producing JWS-formatted signatures.
+     *
+     * @return signature algorithm name
+     */
+    public String signatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    /**
+     * Whether the same secret key is used for signing and validation.
+     *
+     * @return true for HMAC algorithms
+     */
+    public boolean isSymmetric() {
+        return this == HS256;
+    }
+
+    /**
+     * jjwt algorithm instance used by the token builder.
+     *
+     * @return jjwt signature or MAC algorithm
+     */
+    @SuppressWarnings("unchecked")
+    public SecureDigestAlgorithm<Key, Key> jwsAlgorithm() {
+        return (SecureDigestAlgorithm<Key, Key>) jwsAlgorithm;
+    }
+}
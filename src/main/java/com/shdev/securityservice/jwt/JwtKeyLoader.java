@@ -0,0 +1,193 @@
+package com.shdev.securityservice.jwt;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECKey;
+import java.security.interfaces.EdECKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Loads PEM encoded key files for the configured {@link JwtAlgorithm}.
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+public final class JwtKeyLoader {
+
+    private static final int MIN_HMAC_KEY_BYTES = 32;
+    private static final Map<String, ECParameterSpec> EC_CURVES = Map.of(
+            "P-256", ecParameters("secp256r1"),
+            "P-384", ecParameters("secp384r1"),
+            "P-521", ecParameters("secp521r1"));
+
+    private JwtKeyLoader() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Load a PKCS#8 PEM private key.
+     *
+     * @param path      key file path
+     * @param algorithm algorithm the key is used with
+     * @return PrivateKey instance
+     */
+    public static PrivateKey loadPrivateKey(String path, JwtAlgorithm algorithm) {
+        log.info("Loading {} private key from: {}", algorithm, path);
+        String pem = readKeyFile(path, "private");
+        try {
+            byte[] keyBytes = decodePem(pem);
+            PrivateKey key = KeyFactory.getInstance(algorithm.keyAlgorithm()).generatePrivate(new PKCS8EncodedKeySpec(keyBytes));
+            requireCurve(key, algorithm, "Private");
+            log.info("Private key loaded successfully");
+            return key;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.error("Failed to parse private key", e);
+            throw new RuntimeException("Failed to parse private key", e);
+        }
+    }
+
+    /**
+     * Load an X.509 PEM public key.
+     *
+     * @param path      key file path
+     * @param algorithm algorithm the key is used with
+     * @return PublicKey instance
+     */
+    public static PublicKey loadPublicKey(String path, JwtAlgorithm algorithm) {
+        log.info("Loading {} public key from: {}", algorithm, path);
+        String pem = readKeyFile(path, "public");
+        try {
+            byte[] keyBytes = decodePem(pem);
+            PublicKey key = KeyFactory.getInstance(algorithm.keyAlgorithm()).generatePublic(new X509EncodedKeySpec(keyBytes));
+            requireCurve(key, algorithm, "Public");
+            log.info("Public key loaded successfully");
+            return key;
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.error("Failed to parse public key", e);
+            throw new RuntimeException("Failed to parse public key", e);
+        }
+    }
+
+    /**
+     * Load a Base64 encoded HMAC secret key of at least 256 bits.
+     *
+     * @param path      key file path
+     * @param algorithm algorithm the key is used with
+     * @return SecretKey instance
+     */
+    public static SecretKey loadSecretKey(String path, JwtAlgorithm algorithm) {
+        log.info("Loading {} secret key from: {}", algorithm, path);
+        byte[] keyBytes;
+        try {
+            keyBytes = Base64.getDecoder().decode(readKeyFile(path, "secret").replaceAll("\\s", ""));
+        } catch (IllegalArgumentException e) {
+            log.error("Failed to parse secret key", e);
+            throw new RuntimeException("Failed to parse secret key", e);
+        }
+        if (keyBytes.length < MIN_HMAC_KEY_BYTES) {
+            throw new RuntimeException("Secret key for " + algorithm + " must be at least 256 bits");
+        }
+        log.info("Secret key loaded successfully");
+        return new SecretKeySpec(keyBytes, algorithm.keyAlgorithm());
+    }
+
+    /**
+     * Load an X.509 PEM certificate.
+     *
+     * @param path certificate file path
+     * @return X509Certificate instance
+     */
+    public static X509Certificate loadCertificate(String path) {
+        log.info("Loading certificate from: {}", path);
+        String pem = readKeyFile(path, "certificate");
+        try {
+            byte[] certificateBytes = decodePem(pem);
+            X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(certificateBytes));
+            log.info("Certificate loaded successfully, subject: {}", certificate.getSubjectX500Principal());
+            return certificate;
+        } catch (CertificateException | IllegalArgumentException e) {
+            log.error("Failed to parse certificate", e);
+            throw new RuntimeException("Failed to parse certificate", e);
+        }
+    }
+
+    /**
+     * JWK name of the curve an elliptic curve or Edwards-curve key is on.
+     *
+     * @param key key to inspect
+     * @return curve name such as {@code P-256} or {@code Ed25519}, or null if the key has no known curve
+     */
+    static String curve(Key key) {
+        if (key instanceof ECKey ec) {
+            ECParameterSpec params = ec.getParams();
+            return EC_CURVES.entrySet().stream()
+                    .filter(entry -> entry.getValue().getCurve().equals(params.getCurve())
+                            && entry.getValue().getOrder().equals(params.getOrder()))
+                    .map(Map.Entry::getKey)
+                    .findFirst()
+                    .orElse(null);
+        }
+        if (key instanceof EdECKey ed) {
+            return ed.getParams().getName();
+        }
+        return null;
+    }
+
+    private static void requireCurve(Key key, JwtAlgorithm algorithm, String type) {
+        // KeyFactory("EC") accepts any named curve, so a P-384 key would otherwise fail only when signing
+        if (algorithm.curve() != null && !algorithm.curve().equals(curve(key))) {
+            throw new RuntimeException(type + " key for " + algorithm + " must be on curve " + algorithm.curve());
+        }
+    }
+
+    private static ECParameterSpec ecParameters(String name) {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(name));
+            return parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Curve " + name + " is not available", e);
+        }
+    }
+
+    private static String readKeyFile(String path, String type) {
+        if (path == null) {
+            throw new RuntimeException("No " + type + " key path configured");
+        }
+        try {
+            return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            log.error("Failed to read {} key file: {}", type, path, e);
+            throw new RuntimeException("Failed to load " + type + " key", e);
+        }
+    }
+
+    private static byte[] decodePem(String pem) {
+        // Remove PEM headers/footers and whitespace
+        String key = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "")
+                .replaceAll("\\s", "");
+        return Base64.getDecoder().decode(key);
+    }
+}
@@ -0,0 +1,506 @@
+package com.shdev.securityservice.jwt;
+
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.util.DigestUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key ring holding the signing and verification keys of every identity domain, indexed by key ID.
+ * <p>
+ * Identity domains listed under {@code security.jwt.domains} use their own key and algorithm; all other domains use
+ * the default key configured directly under {@code security.jwt}. All keys are loaded at startup. The key directories
+ * are watched and, when key files change, the new keys are published atomically under a new key ID while the
+ * previous keys keep verifying tokens for the configured overlap window. Key IDs are the configured key ID followed by
+ * a version derived from the key, so they stay stable across restarts and change with the key material. When that window ends the previous keys are
+ * dropped and a {@link JwtKeysRotatedEvent} names them, as it names newly activated keys.
+ * </p>
+ * <p>
+ * Lookups read a volatile immutable snapshot and never lock; only reloads, which are serialized, build a new one.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class JwtKeyRing {
+
+    private static final String KEY_ID_PREFIX = "KeyPair_";
+    private static final int FINGERPRINT_LENGTH = 8;
+    private static final long SETTLE_MILLIS = 500;
+    private static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of());
+
+    private final JwtProperties.KeyRotation rotation;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TokenMetrics metrics;
+    private final String defaultKeyId;
+    private final Instant legacyKeyIdsUntil;
+    private final Map<String, String> keyIdsByDomain = new HashMap<>();
+    private final Map<String, String> domainsByKeyId = new HashMap<>();
+    private final Map<String, JwtProperties.KeyConfig> configsByKeyId = new LinkedHashMap<>();
+    private volatile Snapshot snapshot = EMPTY;
+    private WatchService watchService;
+
+    public JwtKeyRing(JwtProperties jwtProperties, ApplicationEventPublisher eventPublisher, TokenMetrics metrics) {
+        this.rotation = jwtProperties.getRotation();
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.legacyKeyIdsUntil = Instant.now().plusSeconds(jwtProperties.getExpirationSeconds());
+
+        JwtProperties.KeyConfig defaultConfig = new JwtProperties.KeyConfig();
+        defaultConfig.setAlgorithm(jwtProperties.getAlgorithm());
+        defaultConfig.setPrivateKeyPath(jwtProperties.getPrivateKeyPath());
+        defaultConfig.setPublicKeyPath(jwtProperties.getPublicKeyPath());
+        defaultConfig.setCertificatePath(jwtProperties.getCertificatePath());
+        defaultConfig.setSecretKeyPath(jwtProperties.getSecretKeyPath());
+        defaultConfig.setKeyId(jwtProperties.getKeyId());
+
+        this.defaultKeyId = register(jwtProperties.getIdentityDomainName(), defaultConfig);
+        jwtProperties.getDomains().forEach((domain, config) -> keyIdsByDomain.put(domain, register(domain, config)));
+
+        log.info("JWT keys configured: default key ID: {}, domain keys: {}", defaultKeyId, keyIdsByDomain);
+        reload();
+    }
+
+    /**
+     * Key used to sign tokens for an identity domain.
+     *
+     * @param domain the identity domain name
+     * @return signing key
+     */
+    public SigningKey signingKey(String domain) {
+        String keyId = keyIdsByDomain.getOrDefault(domain, defaultKeyId);
+        SigningKey key = snapshot.active().get(keyId);
+        if (key == null || key.signingKey() == null) {
+            throw new RuntimeException("No signing key configured for key ID: " + keyId);
+        }
+        return key;
+    }
+
+    /**
+     * Algorithm configured for an identity domain's signing key.
+     *
+     * @param domain the identity domain name
+     * @return signing algorithm
+     */
+    public JwtAlgorithm algorithm(String domain) {
+        return configsByKeyId.get(keyIdsByDomain.getOrDefault(domain, defaultKeyId)).getAlgorithm();
+    }
+
+    /**
+     * Key used to verify tokens carrying the given {@code kid} header.
+     * <p>
+     * Earlier releases signed every token with the default key under {@code KeyPair_<request domain>}. For one token
+     * lifetime after startup, such key IDs that name no configured key resolve to the default key, so tokens issued
+     * before an upgrade keep validating until they expire.
+     * </p>
+     *
+     * @param keyId the key ID from the token header, or null to use the default key
+     * @return verification key, or null if the key ID is unknown or its overlap window has ended
+     */
+    public SigningKey verificationKey(String keyId) {
+        Map<String, KeyEntry> byKeyId = snapshot.byKeyId();
+        KeyEntry entry = byKeyId.get(keyId != null ? keyId : defaultKeyId);
+        if (entry == null && keyId != null && keyId.startsWith(KEY_ID_PREFIX)
+                && Instant.now().isBefore(legacyKeyIdsUntil)) {
+            entry = byKeyId.get(defaultKeyId);
+        }
+        if (entry == null || entry.key().verificationKey() == null) {
+            return null;
+        }
+        if (entry.retireAt() != null && !Instant.now().isBefore(entry.retireAt())) {
+            return null;
+        }
+        return entry.key();
+    }
+
+    /**
+     * Version of the key ring, incremented every time keys are reloaded.
+     *
+     * @return current generation
+     */
+    public long generation() {
+        return snapshot.generation();
+    }
+
+    /**
+     * Public keys currently accepted for verification, for publication as a JWK set. Secret keys are never included.
+     *
+     * @return published keys with the generation they belong to
+     */
+    public PublishedKeys publishedKeys() {
+        Snapshot current = snapshot;
+        Instant now = Instant.now();
+        Map<String, SigningKey> keys = new TreeMap<>();
+        Instant validUntil = null;
+        for (Map.Entry<String, KeyEntry> entry : current.byKeyId().entrySet()) {
+            KeyEntry keyEntry = entry.getValue();
+            SigningKey key = keyEntry.key();
+            // Startup keys are also indexed under the configured key ID; each key is published once, under its own key ID
+            if (key.algorithm().isSymmetric() || key.verificationKey() == null || !entry.getKey().equals(key.keyId())) {
+                continue;
+            }
+            if (keyEntry.retireAt() != null) {
+                if (!now.isBefore(keyEntry.retireAt())) {
+                    continue;
+                }
+                validUntil = validUntil == null || keyEntry.retireAt().isBefore(validUntil) ? keyEntry.retireAt() : validUntil;
+            }
+            keys.put(entry.getKey(), key);
+        }
+        return new PublishedKeys(current.generation(), Collections.unmodifiableMap(keys), validUntil);
+    }
+
+    /**
+     * Re-read all key files and publish keys whose material changed.
+     * Keys that fail to load keep their current version.
+     */
+    public synchronized void reload() {
+        Snapshot current = snapshot;
+        Instant now = Instant.now();
+        Map<String, SigningKey> active = new HashMap<>(current.active());
+        Map<String, KeyEntry> byKeyId = new HashMap<>(current.byKeyId());
+        List<String> activated = new ArrayList<>();
+
+        configsByKeyId.forEach((baseKeyId, config) -> {
+            SigningKey previous = current.active().get(baseKeyId);
+            SigningKey loaded;
+            String domain = domainsByKeyId.get(baseKeyId);
+            long start = System.nanoTime();
+            try {
+                loaded = loadKey(baseKeyId, config);
+                metrics.success(TokenMetrics.Stage.KEY_LOAD, domain, start);
+            } catch (RuntimeException e) {
+                metrics.failure(TokenMetrics.Stage.KEY_LOAD, domain, e, start);
+                if (previous == null) {
+                    log.error("Failed to load JWT key {}, tokens for its domains cannot be issued or verified", baseKeyId, e);
+                } else {
+                    log.warn("Failed to reload JWT key {}, keeping key ID {}", baseKeyId, previous.keyId(), e);
+                }
+                return;
+            }
+            if (previous != null && sameMaterial(previous, loaded)) {
+                return;
+            }
+
+            // Keys sign under a versioned key ID, so one kid never names two different keys, not even across
+            // restarts. The key loaded at startup is also indexed under the configured key ID, which only verifies
+            // tokens issued under it by earlier releases and retires with that key
+            SigningKey key = withKeyId(loaded, baseKeyId + "_" + version(loaded, config));
+            if (previous == null) {
+                byKeyId.putIfAbsent(baseKeyId, new KeyEntry(key, null));
+            } else {
+                Instant retireAt = now.plus(rotation.getOverlap());
+                byKeyId.replaceAll((keyId, entry) -> entry.key() == previous ? new KeyEntry(previous, retireAt) : entry);
+                log.info("Rotated JWT key {}: signing with key ID {}, key ID {} accepted until {}",
+                        baseKeyId, key.keyId(), previous.keyId(), retireAt);
+            }
+            active.put(baseKeyId, key);
+            byKeyId.put(key.keyId(), new KeyEntry(key, null));
+            activated.add(key.keyId());
+        });
+
+        List<String> retired = removeRetired(byKeyId, now);
+        snapshot = new Snapshot(current.generation() + 1, Map.copyOf(active), Map.copyOf(byKeyId));
+        if ((!activated.isEmpty() || !retired.isEmpty()) && current != EMPTY) {
+            eventPublisher.publishEvent(new JwtKeysRotatedEvent(List.copyOf(activated), retired));
+        }
+    }
+
+    /**
+     * Drop keys whose overlap window has ended and tell listeners, so that caches holding tokens verified with them
+     * are cleared. Called by the key watcher when the next key is due to retire.
+     */
+    public synchronized void retireExpired() {
+        Snapshot current = snapshot;
+        Map<String, KeyEntry> byKeyId = new HashMap<>(current.byKeyId());
+        List<String> retired = removeRetired(byKeyId, Instant.now());
+        if (retired.isEmpty()) {
+            return;
+        }
+        snapshot = new Snapshot(current.generation() + 1, current.active(), Map.copyOf(byKeyId));
+        log.info("Retired JWT key IDs {}", retired);
+        eventPublisher.publishEvent(new JwtKeysRotatedEvent(List.of(), retired));
+    }
+
+    /**
+     * Start watching the key directories for changed key files.
+     */
+    @PostConstruct
+    public void startWatching() {
+        if (!rotation.isWatch()) {
+            log.info("JWT key file watching disabled");
+            return;
+        }
+
+        Set<Path> directories = new LinkedHashSet<>();
+        configsByKeyId.values().forEach(config -> {
+            addDirectory(directories, config.getPrivateKeyPath());
+            addDirectory(directories, config.getPublicKeyPath());
+            addDirectory(directories, config.getCertificatePath());
+            addDirectory(directories, config.getSecretKeyPath());
+        });
+        if (directories.isEmpty()) {
+            return;
+        }
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            for (Path directory : directories) {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            log.error("Failed to watch JWT key directories {}, key rotation requires a restart", directories, e);
+            return;
+        }
+
+        Thread.ofPlatform().name("jwt-key-watcher").daemon().start(this::watch);
+        log.info("Watching JWT key directories {} for rotation, overlap window: {}", directories, rotation.getOverlap());
+    }
+
+    /**
+     * Stop watching the key directories.
+     */
+    @PreDestroy
+    public void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Failed to close JWT key watcher", e);
+            }
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey changed = nextChange();
+                if (changed == null) {
+                    retireExpired();
+                    continue;
+                }
+                drain(changed);
+                // Let writers finish replacing every file of a key pair before reloading
+                WatchKey more;
+                while ((more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    drain(more);
+                }
+                reload();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("JWT key watcher stopped");
+        }
+    }
+
+    /**
+     * Wait for a key file change, but no longer than until the next rotated-out key is due to retire.
+     *
+     * @return the signalled watch key, or null when a key is due to retire
+     */
+    private WatchKey nextChange() throws InterruptedException {
+        Instant retireAt = null;
+        for (KeyEntry entry : snapshot.byKeyId().values()) {
+            if (entry.retireAt() != null && (retireAt == null || entry.retireAt().isBefore(retireAt))) {
+                retireAt = entry.retireAt();
+            }
+        }
+        if (retireAt == null) {
+            return watchService.take();
+        }
+        long millis = Duration.between(Instant.now(), retireAt).toMillis() + 1;
+        return millis > 0 ? watchService.poll(millis, TimeUnit.MILLISECONDS) : null;
+    }
+
+    /**
+     * Remove the keys whose overlap window has ended from a verification index.
+     *
+     * @return the removed key IDs
+     */
+    private static List<String> removeRetired(Map<String, KeyEntry> byKeyId, Instant now) {
+        List<String> retired = new ArrayList<>();
+        byKeyId.forEach((keyId, entry) -> {
+            if (entry.retireAt() != null && !now.isBefore(entry.retireAt())) {
+                retired.add(keyId);
+            }
+        });
+        retired.forEach(byKeyId::remove);
+        return List.copyOf(retired);
+    }
+
+    private static void drain(WatchKey key) {
+        key.pollEvents();
+        key.reset();
+    }
+
+    private static void addDirectory(Set<Path> directories, String keyPath) {
+        if (!StringUtils.hasText(keyPath)) {
+            return;
+        }
+        Path directory = Path.of(keyPath).toAbsolutePath().getParent();
+        if (directory != null && Files.isDirectory(directory)) {
+            directories.add(directory);
+        } else {
+            log.warn("JWT key directory for {} does not exist, it will not be watched", keyPath);
+        }
+    }
+
+    private String register(String domain, JwtProperties.KeyConfig config) {
+        String keyId = StringUtils.hasText(config.getKeyId()) ? config.getKeyId() : KEY_ID_PREFIX + domain;
+        if (configsByKeyId.putIfAbsent(keyId, config) != null) {
+            throw new IllegalStateException("Duplicate JWT key ID: " + keyId);
+        }
+        domainsByKeyId.put(keyId, domain);
+        return keyId;
+    }
+
+    private static SigningKey loadKey(String keyId, JwtProperties.KeyConfig config) {
+        JwtAlgorithm algorithm = config.getAlgorithm();
+        if (algorithm.isSymmetric()) {
+            Key secretKey = JwtKeyLoader.loadSecretKey(config.getSecretKeyPath(), algorithm);
+            return new SigningKey(keyId, algorithm, secretKey, secretKey, null, null);
+        }
+
+        Key privateKey = StringUtils.hasText(config.getPrivateKeyPath())
+                ? JwtKeyLoader.loadPrivateKey(config.getPrivateKeyPath(), algorithm)
+                : null;
+        Key publicKey = StringUtils.hasText(config.getPublicKeyPath())
+                ? JwtKeyLoader.loadPublicKey(config.getPublicKeyPath(), algorithm)
+                : null;
+        X509Certificate certificate = loadCertificate(keyId, config.getCertificatePath());
+        if (certificate != null) {
+            if (publicKey == null) {
+                publicKey = certificate.getPublicKey();
+            } else if (!Arrays.equals(publicKey.getEncoded(), certificate.getPublicKey().getEncoded())) {
+                throw new IllegalStateException("Certificate does not match the public key for key ID: " + keyId);
+            }
+        }
+        return new SigningKey(keyId, algorithm, privateKey, publicKey, thumbprint(certificate, "SHA-1"), certificate);
+    }
+
+    /**
+     * The certificate only adds x5t/x5c metadata, so a missing or unreadable one does not disable the key.
+     */
+    private static X509Certificate loadCertificate(String keyId, String path) {
+        if (!StringUtils.hasText(path)) {
+            return null;
+        }
+        try {
+            return JwtKeyLoader.loadCertificate(path);
+        } catch (RuntimeException e) {
+            log.warn("No usable certificate for JWT key {}, tokens are issued without x5t", keyId);
+            return null;
+        }
+    }
+
+    private static SigningKey withKeyId(SigningKey key, String keyId) {
+        return new SigningKey(keyId, key.algorithm(), key.signingKey(), key.verificationKey(), key.thumbprint(), key.certificate());
+    }
+
+    private static boolean sameMaterial(SigningKey a, SigningKey b) {
+        return a.algorithm() == b.algorithm()
+                && Arrays.equals(encoded(a.signingKey()), encoded(b.signingKey()))
+                && Arrays.equals(encoded(a.verificationKey()), encoded(b.verificationKey()))
+                && Objects.equals(a.certificate(), b.certificate());
+    }
+
+    private static byte[] encoded(Key key) {
+        return key != null ? key.getEncoded() : null;
+    }
+
+    /**
+     * Short stable identifier of a key version, used to derive key IDs: a fingerprint of the public
+     * key, or for secret keys, which must not leak into the {@code kid} header in any form, the modification time of
+     * the secret key file. Both stay the same across restarts as long as the key files are not replaced.
+     */
+    private static String version(SigningKey key, JwtProperties.KeyConfig config) {
+        if (key.algorithm().isSymmetric()) {
+            try {
+                long modified = Files.getLastModifiedTime(Path.of(config.getSecretKeyPath())).toMillis();
+                return Long.toString(modified, Character.MAX_RADIX);
+            } catch (IOException e) {
+                return Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+            }
+        }
+        Key material = key.verificationKey() != null ? key.verificationKey() : key.signingKey();
+        byte[] digest = DigestUtil.sha256(material.getEncoded());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, FINGERPRINT_LENGTH);
+    }
+
+    /**
+     * Certificate thumbprint as used by the {@code x5t} ({@code SHA-1}) and {@code x5t#S256} ({@code SHA-256})
+     * parameters.
+     *
+     * @param certificate     the certificate, may be null
+     * @param digestAlgorithm digest algorithm name
+     * @return Base64URL digest of the DER encoded certificate, or null without a certificate
+     */
+    static String thumbprint(X509Certificate certificate, String digestAlgorithm) {
+        if (certificate == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance(digestAlgorithm).digest(certificate.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+            throw new IllegalStateException("Failed to compute " + digestAlgorithm + " certificate thumbprint", e);
+        }
+    }
+
+    /**
+     * A key in the verification index; {@code retireAt} is set once the key has been rotated out.
+     */
+    private record KeyEntry(SigningKey key, Instant retireAt) {
+    }
+
+    /**
+     * Immutable view of the ring: the current key per configured key ID and every accepted key by key ID.
+     */
+    private record Snapshot(long generation, Map<String, SigningKey> active, Map<String, KeyEntry> byKeyId) {
+    }
+
+    /**
+     * Public keys accepted for verification at one point in time.
+     *
+     * @param generation key ring version they were taken from
+     * @param keys       public keys by key ID, sorted by key ID
+     * @param validUntil when the next of these keys leaves its overlap window, or null if none is retiring
+     */
+    public record PublishedKeys(long generation, Map<String, SigningKey> keys, Instant validUntil) {
+    }
+}
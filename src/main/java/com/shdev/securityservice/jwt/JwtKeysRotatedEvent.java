@@ -0,0 +1,13 @@
+package com.shdev.securityservice.jwt;
+
+import java.util.List;
+
+/**
+ * Event published after {@link JwtKeyRing} starts signing with newly loaded keys or stops accepting rotated-out keys.
+ *
+ * @param keyIds        key IDs of the newly activated keys
+ * @param retiredKeyIds key IDs whose overlap window has ended and that no longer verify tokens
+ * @author Shailesh Halor
+ */
+public record JwtKeysRotatedEvent(List<String> keyIds, List<String> retiredKeyIds) {
+}
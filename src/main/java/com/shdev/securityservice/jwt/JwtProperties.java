@@ -3,8 +3,12 @@ package com.shdev.securityservice.jwt;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration properties for JWT token generation and validation.
@@ -32,15 +36,35 @@ public class JwtProperties {
     private long expirationSeconds = 3600;
 
     /**
-     * Path to RSA private key file for signing tokens
+     * Signing algorithm of the default key (default: RS256)
+     */
+    private JwtAlgorithm algorithm = JwtAlgorithm.RS256;
+
+    /**
+     * Path to PKCS#8 PEM private key file for signing tokens
      */
     private String privateKeyPath;
 
     /**
-     * Path to RSA public key file for validating tokens
+     * Path to X.509 PEM public key file for validating tokens
      */
     private String publicKeyPath;
 
+    /**
+     * Path to X.509 PEM certificate of the public key, published in the JWKS and used for the x5t header
+     */
+    private String certificatePath;
+
+    /**
+     * Path to Base64 encoded secret key file (HS256 only)
+     */
+    private String secretKeyPath;
+
+    /**
+     * Key ID of the default key (default: "KeyPair_" + identity domain name)
+     */
+    private String keyId;
+
     /**
      * JWT version (default: "1.0")
      */
@@ -50,5 +74,101 @@ public class JwtProperties {
      * Identity domain name for OAuth2
      */
     private String identityDomainName;
-}
 
+    /**
+     * Signing keys for specific identity domains; other domains use the default key
+     */
+    private Map<String, KeyConfig> domains = new LinkedHashMap<>();
+
+    /**
+     * Cache of already verified tokens used by the token info endpoint
+     */
+    private ValidationCache validationCache = new ValidationCache();
+
+    /**
+     * Cache of issued tokens handed out again to clients with token reuse enabled
+     */
+    private IssuanceCache issuanceCache = new IssuanceCache();
+
+    /**
+     * Cheap checks of a token's structure and claims before its signature is verified
+     */
+    private Precheck precheck = new Precheck();
+
+    /**
+     * Revoked token IDs, checked on every validation and persisted across restarts
+     */
+    private Revocation revocation = new Revocation();
+
+    /**
+     * Switches for the low-allocation token encoding path
+     */
+    private FastPath fastPath = new FastPath();
+
+    /**
+     * Reloading of changed key files without a restart
+     */
+    private KeyRotation rotation = new KeyRotation();
+
+    /**
+     * HTTP caching of the published JWK set
+     */
+    private Jwks jwks = new Jwks();
+
+    @Data
+    public static class KeyConfig {
+        private JwtAlgorithm algorithm = JwtAlgorithm.RS256;
+        private String privateKeyPath;
+        private String publicKeyPath;
+        private String certificatePath;  // Optional, enables x5t/x5c
+        private String secretKeyPath;  // HS256 only
+        private String keyId;  // Defaults to "KeyPair_" + domain
+    }
+
+    @Data
+    public static class ValidationCache {
+        private boolean enabled = true;
+        private long maximumSize = 10_000;  // Maximum number of verified tokens kept in memory
+    }
+
+    @Data
+    public static class IssuanceCache {
+        private boolean enabled = true;
+        private Duration refreshMargin = Duration.ofMinutes(5);  // Issue a new token once the cached one is this close to expiry
+        private long maximumSize = 10_000;
+    }
+
+    @Data
+    public static class Precheck {
+        private int maxTokenLength = 8192;  // Longer tokens are rejected before they are hashed or decoded
+        private boolean requireIssuer = true;  // iss must equal security.jwt.issuer
+        private boolean requireAudience = true;  // aud must contain one of security.jwt.audience
+    }
+
+    @Data
+    public static class Revocation {
+        private boolean enabled = false;  // Needs a file; POST /token/revoke is refused while disabled
+        private String file;  // Memory-mapped revocation log, an absolute path on persistent storage
+        private DataSize initialLogSize = DataSize.ofMegabytes(1);  // Mapped size of a new log; compaction grows it when full
+        private int expectedEntries = 100_000;  // Bloom filter sizing; it is rebuilt larger if more tokens are revoked
+        private double falsePositiveRate = 0.01;  // Share of valid tokens that need an exact lookup
+        private Duration purgeInterval = Duration.ofMinutes(1);  // How often revocations of expired tokens are dropped
+    }
+
+    @Data
+    public static class FastPath {
+        private boolean signing = true;  // Template-based encoder instead of the jjwt builder
+        private boolean verification = true;  // Streaming decoder instead of the jjwt parser
+    }
+
+    @Data
+    public static class KeyRotation {
+        private boolean watch = true;  // Watch the key directories and load changed key files
+        private Duration overlap = Duration.ofHours(1);  // How long tokens signed with a replaced key stay valid
+    }
+
+    @Data
+    public static class Jwks {
+        private Duration maxAge = Duration.ofMinutes(5);  // Cache-Control max-age; keep well below the rotation overlap
+    }
+}
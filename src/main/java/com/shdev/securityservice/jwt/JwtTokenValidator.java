@@ -1,111 +1,324 @@
 package com.shdev.securityservice.jwt;
 
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.jfr.TokenVerificationEvent;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import com.shdev.securityservice.util.RateLimitedLogger;
+import com.shdev.securityservice.util.TypeConversionUtil;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.SignatureException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.security.KeyFactory;
-import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
-import java.util.Base64;
-import java.util.Map;
+import java.security.Key;
+import java.time.Duration;
+import java.util.List;
 
 /**
- * JWT token validator using RS256 algorithm.
+ * JWT token validator that picks the verification key and algorithm from the token header.
+ * <p>
+ * By default tokens are verified and decoded by the low-allocation {@link TokenInfoDecoder}; with
+ * {@code security.jwt.fast-path.verification=false} the jjwt parser is used instead. Both paths accept the same
+ * tokens and produce the same {@link TokenInfoResponse}, and both reject oversized tokens and tokens with an unknown
+ * key, a foreign issuer or audience, or an expiry in the past before any signature is verified. That pre-check runs
+ * on the request thread; only the signature check is handed to the verification pool of {@link CryptoPools}.
+ * </p>
+ * <p>
+ * Revocation is checked after the verified-token cache, so revoking a token takes effect for cached tokens too.
+ * </p>
  *
  * @author Shailesh Halor
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtTokenValidator {
 
-    private final JwtProperties jwtProperties;
-    private PublicKey publicKey;
+    /**
+     * Error tag of rejected tokens in {@link TokenMetrics}, the OAuth2 error code they are reported with
+     */
+    static final String ERROR_INVALID_TOKEN = "invalid_token";
+
+    /**
+     * Rejections are logged at most this often, the rest are only counted
+     */
+    static final int REJECTION_LOG_PERMITS = 10;
+    static final Duration REJECTION_LOG_WINDOW = Duration.ofMinutes(1);
+
+    private static final RateLimitedLogger REJECTION_LOG =
+            new RateLimitedLogger(log, REJECTION_LOG_PERMITS, REJECTION_LOG_WINDOW);
+
+    private final JwtKeyRing keyRing;
+    private final TokenMetrics metrics;
+    private final TokenInfoDecoder tokenInfoDecoder;
+    private final int maxTokenLength;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final RevocationStore revocationStore;
+    private final JwtParser parser;
+    private final VerifiedTokenCache.TokenVerifier verifier;
+
+    public JwtTokenValidator(JwtProperties jwtProperties, JwtKeyRing keyRing,
+                             VerifiedTokenCache verifiedTokenCache, TokenInfoDecoder tokenInfoDecoder,
+                             RevocationStore revocationStore, CryptoPools cryptoPools, TokenMetrics metrics) {
+        this.keyRing = keyRing;
+        this.metrics = metrics;
+        this.tokenInfoDecoder = tokenInfoDecoder;
+        this.maxTokenLength = jwtProperties.getPrecheck().getMaxTokenLength();
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.revocationStore = revocationStore;
+        // Immutable and thread-safe, so one parser serves every request
+        this.parser = Jwts.parser().keyLocator(this::locateVerificationKey).build();
+        SignatureVerifier signatureVerifier = jwtProperties.getFastPath().isVerification()
+                ? tokenInfoDecoder::verify
+                : (token, prechecked) -> verifyToken(token);
+        // Only cache misses that pass the pre-check reach the verification pool; hits and tokens rejected by the
+        // pre-check are answered on the request thread, so a flood of invalid tokens cannot fill the pool's queue
+        this.verifier = token -> {
+            TokenInfoDecoder.Prechecked prechecked = tokenInfoDecoder.precheck(token);
+            Object result = cryptoPools.verification()
+                    .call(() -> verifyOrReject(signatureVerifier, token, prechecked));
+            if (result instanceof TokenValidationException e) {
+                throw e;
+            }
+            return (TokenInfoResponse) result;
+        };
+        log.info("JWT verification fast path enabled: {}", jwtProperties.getFastPath().isVerification());
+    }
 
     /**
-     * Validate JWT token and return claims.
+     * Run the verifier, returning a rejection instead of throwing it: thrown from a pool task, it would be wrapped in
+     * an {@link java.util.concurrent.ExecutionException} that captures the request thread's stack.
+     */
+    private static Object verifyOrReject(SignatureVerifier verifier, String token,
+                                         TokenInfoDecoder.Prechecked prechecked) {
+        try {
+            return verifier.verify(token, prechecked);
+        } catch (TokenValidationException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Validate JWT token and return its decoded claims.
      *
      * @param token the JWT token string
-     * @return map of claims
+     * @return token information
      * @throws TokenValidationException if token is invalid
      */
-    public Map<String, Object> validateToken(String token) throws TokenValidationException {
+    public TokenInfoResponse validateToken(String token) throws TokenValidationException {
         log.debug("Validating JWT token");
+        if (token.length() > maxTokenLength) {
+            // Before the cache, which would hash the whole token
+            throw rejected(RejectionReason.OVERSIZED, token.length(), System.nanoTime());
+        }
+        TokenVerificationEvent event = new TokenVerificationEvent();
+        if (!event.isEnabled()) {
+            return notRevoked(verifiedTokenCache.get(token, verifier));
+        }
+        return validateRecorded(token, event);
+    }
 
-        if (publicKey == null) {
-            publicKey = loadPublicKey();
+    /**
+     * Validate a token while recording a JFR event, noting whether the verifier had to run.
+     *
+     * @param token the JWT token string
+     * @param event enabled verification event
+     * @return token information
+     * @throws TokenValidationException if token is invalid
+     */
+    private TokenInfoResponse validateRecorded(String token, TokenVerificationEvent event) throws TokenValidationException {
+        event.begin();
+        event.cacheHit = true;
+        try {
+            TokenInfoResponse response = notRevoked(verifiedTokenCache.get(token, t -> {
+                event.cacheHit = false;
+                return verifier.verify(t);
+            }));
+            event.clientId = response.client();
+            event.domain = response.domain();
+            event.algorithm = verifyingAlgorithm(token);
+            return response;
+        } catch (TokenValidationException e) {
+            event.error = e.getMessage();
+            throw e;
+        } catch (RuntimeException e) {
+            event.error = e.getClass().getName();
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Algorithm of the key that verified a token, which is the one its {@code kid} header selects and which its
+     * {@code alg} header had to match; not the algorithm configured for the token's domain, which may have changed.
+     *
+     * @param token a verified JWT token string
+     * @return algorithm header name, or null if the key has been retired since
+     */
+    private String verifyingAlgorithm(String token) {
+        String keyId = VerifiedTokenCache.tokenKeyId(token);
+        SigningKey key = keyRing.verificationKey(keyId.isEmpty() ? null : keyId);
+        return key != null ? key.algorithm().headerName() : null;
+    }
+
+    /**
+     * Reject a verified token whose {@code jti} has been revoked.
+     *
+     * @param response verified token information
+     * @return the same token information
+     * @throws TokenValidationException if the token is revoked
+     */
+    private TokenInfoResponse notRevoked(TokenInfoResponse response) throws TokenValidationException {
+        if (revocationStore.isRevoked(response.jwtId())) {
+            throw rejected(RejectionReason.REVOKED, response.jwtId(), System.nanoTime());
         }
+        return response;
+    }
 
+    /**
+     * Verify the token signature and expiry with the jjwt parser, using the key selected from its header, after the
+     * checks of {@link TokenInfoDecoder#precheck} have passed on the request thread.
+     *
+     * @param token the JWT token string
+     * @return token information
+     * @throws TokenValidationException if token is invalid
+     */
+    private TokenInfoResponse verifyToken(String token) throws TokenValidationException {
+        long start = System.nanoTime();
+        Claims claims;
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(publicKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-
-            log.debug("JWT token validated successfully for subject: {}", claims.getSubject());
-            return claims;
+            claims = parser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
-            log.warn("JWT token has expired", e);
-            throw new TokenValidationException("Token has expired", e);
+            throw rejected(RejectionReason.EXPIRED, e, start);
+        } catch (PrematureJwtException e) {
+            throw rejected(RejectionReason.NOT_YET_VALID, e, start);
         } catch (SignatureException e) {
-            log.warn("JWT token signature validation failed", e);
-            throw new TokenValidationException("Invalid token signature", e);
+            throw rejected(RejectionReason.INVALID_SIGNATURE, e, start);
         } catch (MalformedJwtException e) {
-            log.warn("JWT token is malformed", e);
-            throw new TokenValidationException("Malformed token", e);
+            throw rejected(RejectionReason.MALFORMED, e, start);
+        } catch (UnsupportedJwtException e) {
+            throw rejected(RejectionReason.UNSUPPORTED, e, start);
         } catch (Exception e) {
-            log.error("JWT token validation failed", e);
-            throw new TokenValidationException("Token validation failed", e);
+            throw rejected(RejectionReason.OTHER, e, start);
         }
+        long verified = System.nanoTime();
+
+        log.debug("JWT token validated successfully for subject: {}", claims.getSubject());
+        TokenInfoResponse response = toTokenInfo(claims);
+        metrics.success(TokenMetrics.Stage.VERIFY, response.domain(), start, verified);
+        metrics.success(TokenMetrics.Stage.MAP, response.domain(), verified);
+        return response;
+    }
+
+    /**
+     * Record a token rejected by the jjwt parser and return the shared exception for the reason.
+     * jjwt has already captured a stack trace for its exception; only its message is logged.
+     */
+    private TokenValidationException rejected(RejectionReason reason, Exception cause, long start) {
+        return rejected(reason, cause.getMessage(), start);
+    }
+
+    /**
+     * Record a rejected token and return the shared exception for the reason.
+     */
+    private TokenValidationException rejected(RejectionReason reason, Object detail, long start) {
+        metrics.failure(TokenMetrics.Stage.VERIFY, null, ERROR_INVALID_TOKEN, start);
+        metrics.rejected(reason.tagValue());
+        REJECTION_LOG.warn("JWT token rejected as {}: {}", reason.tagValue(), detail);
+        return reason.exception();
     }
 
     /**
-     * Load public key from file.
+     * Map verified claims to the token info format.
      *
-     * @return PublicKey instance
+     * @param claims verified claims
+     * @return token information
      */
-    private PublicKey loadPublicKey() {
-        try {
-            log.info("Loading public key from: {}", jwtProperties.getPublicKeyPath());
-            String key = new String(Files.readAllBytes(Paths.get(jwtProperties.getPublicKeyPath())));
-
-            // Remove PEM headers/footers and whitespace
-            key = key.replace("-----BEGIN PUBLIC KEY-----", "")
-                    .replace("-----END PUBLIC KEY-----", "")
-                    .replaceAll("\\s", "");
-
-            byte[] keyBytes = Base64.getDecoder().decode(key);
-            X509EncodedKeySpec spec = new X509EncodedKeySpec(keyBytes);
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-
-            log.info("Public key loaded successfully");
-            return keyFactory.generatePublic(spec);
-        } catch (IOException e) {
-            log.error("Failed to read public key file: {}", jwtProperties.getPublicKeyPath(), e);
-            throw new RuntimeException("Failed to load public key", e);
-        } catch (Exception e) {
-            log.error("Failed to parse public key", e);
-            throw new RuntimeException("Failed to parse public key", e);
+    private static TokenInfoResponse toTokenInfo(Claims claims) {
+        // Extract roles and format as colon-separated string
+        List<String> roles = TypeConversionUtil.toStringList(claims.get("roles"));
+        String userRole = !roles.isEmpty()
+                ? String.join(":", roles)
+                : null;
+
+        return TokenInfoResponse.builder()
+                .issuer(TypeConversionUtil.toString(claims.get("iss")))
+                .audience(TypeConversionUtil.toStringList(claims.get("aud")))
+                .expiration(TypeConversionUtil.toLong(claims.get("exp")))
+                .jwtId(TypeConversionUtil.toString(claims.get("jti")))
+                .issuedAt(TypeConversionUtil.toLong(claims.get("iat")))
+                .subject(TypeConversionUtil.toString(claims.get("sub")))
+                .client(TypeConversionUtil.toString(claims.get("client")))
+                .scope(TypeConversionUtil.toStringList(claims.get("scope")))
+                .domain(TypeConversionUtil.toString(claims.get("domain")))
+                .version(TypeConversionUtil.toString(claims.get("v")))
+                .userRole(userRole)
+                .build();
+    }
+
+    /**
+     * Select the verification key from the token's {@code kid} header and check that the {@code alg} header matches
+     * the algorithm configured for that key.
+     *
+     * @param header the token header
+     * @return verification key
+     */
+    private Key locateVerificationKey(Header header) {
+        if (!(header instanceof JwsHeader jwsHeader)) {
+            throw new UnsupportedJwtException("Token is not signed");
         }
+
+        SigningKey key = keyRing.verificationKey(jwsHeader.getKeyId());
+        if (key == null) {
+            throw new UnsupportedJwtException("Unknown key ID: " + jwsHeader.getKeyId());
+        }
+        if (!key.algorithm().headerName().equals(jwsHeader.getAlgorithm())) {
+            throw new UnsupportedJwtException("Unexpected algorithm " + jwsHeader.getAlgorithm() + " for key ID: " + key.keyId());
+        }
+        return key.verificationKey();
+    }
+
+    /**
+     * Signature check of a token that passed {@link TokenInfoDecoder#precheck}, run on the verification pool.
+     */
+    @FunctionalInterface
+    private interface SignatureVerifier {
+        TokenInfoResponse verify(String token, TokenInfoDecoder.Prechecked prechecked) throws TokenValidationException;
     }
 
     /**
      * Exception thrown when token validation fails.
+     * <p>
+     * Stackless, since every instance describes an expected rejection whose origin is not interesting; the
+     * validator throws the shared instances of {@link RejectionReason}.
+     * </p>
      */
     public static class TokenValidationException extends Exception {
+
+        private final RejectionReason reason;
+
         public TokenValidationException(String message, Throwable cause) {
-            super(message, cause);
+            super(message, cause, false, false);
+            this.reason = RejectionReason.OTHER;
+        }
+
+        TokenValidationException(RejectionReason reason, String message) {
+            super(message, null, false, false);
+            this.reason = reason;
+        }
+
+        public RejectionReason reason() {
+            return reason;
         }
     }
 }
-
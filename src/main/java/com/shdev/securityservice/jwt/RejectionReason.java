@@ -0,0 +1,49 @@
+package com.shdev.securityservice.jwt;
+
+/**
+ * Why a token was rejected, with one preallocated exception per reason.
+ * <p>
+ * Invalid tokens are expected traffic and can arrive in floods, so a rejection must not cost more than an acceptance.
+ * The shared exceptions are stackless and immutable: throwing one allocates nothing and captures no stack trace. The
+ * message is what the caller sees; the detail is only logged, rate-limited, by the validator.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+public enum RejectionReason {
+
+    MALFORMED("malformed", "Malformed token"),
+    OVERSIZED("oversized", "Malformed token"),
+    INVALID_SIGNATURE("invalid_signature", "Invalid token signature"),
+    EXPIRED("expired", "Token has expired"),
+    NOT_YET_VALID("not_yet_valid", "Token validation failed"),
+    INVALID_ISSUER("invalid_issuer", "Token validation failed"),
+    INVALID_AUDIENCE("invalid_audience", "Token validation failed"),
+    REVOKED("revoked", "Token has been revoked"),
+    UNKNOWN_REFERENCE("unknown_reference", "Token validation failed"),  // Opaque handle not issued or already removed
+    UNKNOWN_KEY("unknown_key", "Token validation failed"),
+    UNSUPPORTED("unsupported", "Token validation failed"),  // Unsigned, unexpected algorithm or critical headers
+    OTHER("other", "Token validation failed");
+
+    private final String tagValue;
+    private final JwtTokenValidator.TokenValidationException exception;
+
+    RejectionReason(String tagValue, String message) {
+        this.tagValue = tagValue;
+        this.exception = new JwtTokenValidator.TokenValidationException(this, message);
+    }
+
+    /**
+     * Value of the {@code reason} tag of the rejection counter.
+     */
+    public String tagValue() {
+        return tagValue;
+    }
+
+    /**
+     * The shared exception to throw for this reason.
+     */
+    public JwtTokenValidator.TokenValidationException exception() {
+        return exception;
+    }
+}
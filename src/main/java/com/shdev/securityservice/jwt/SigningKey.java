@@ -0,0 +1,26 @@
+package com.shdev.securityservice.jwt;
+
+import java.security.Key;
+import java.security.cert.X509Certificate;
+
+/**
+ * Key material for one key ID: the key used to sign tokens and the key used to verify them.
+ * For HS256 both are the same secret key.
+ *
+ * @param keyId           the {@code kid} header value
+ * @param algorithm       the signing algorithm
+ * @param signingKey      private or secret key used for signing
+ * @param verificationKey public or secret key used for validation
+ * @param thumbprint      the {@code x5t} header value (SHA-1 certificate thumbprint), or null without a certificate
+ * @param certificate     X.509 certificate of the public key, or null if none is configured
+ * @author Shailesh Halor
+ */
+public record SigningKey(
+        String keyId,
+        JwtAlgorithm algorithm,
+        Key signingKey,
+        Key verificationKey,
+        String thumbprint,
+        X509Certificate certificate
+) {
+}
@@ -0,0 +1,446 @@
+package com.shdev.securityservice.jwt;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.util.Base64UrlUtil;
+import com.shdev.securityservice.util.RateLimitedLogger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low-allocation JWS verifier that decodes a compact token straight into a {@link TokenInfoResponse}.
+ * <p>
+ * The token segments are Base64URL decoded into reused buffers, the signature is checked over the raw bytes with
+ * a per-thread pre-initialised {@link JwsVerifier}, and the header and payload are read with a streaming JSON parser.
+ * {@link #precheck} runs on the request thread, which with virtual threads is a new thread per request, so its
+ * buffers come from a small shared pool rather than a thread-local; {@link #verify} runs on the long-lived
+ * verification pool threads and keeps per-thread buffers.
+ * No intermediate claims map is built; roles are joined into the {@code userRole} format while parsing.
+ * Accepts the same tokens as the jjwt parser in {@link JwtTokenValidator}: the {@code kid} header selects the key,
+ * the {@code alg} header must match it, {@code crit} headers are rejected and {@code exp}/{@code nbf} are enforced.
+ * {@code iss} and {@code aud} must match {@link JwtProperties} unless {@code security.jwt.precheck} relaxes them. All
+ * of these checks make up {@link #precheck}, which runs before the signature is verified by {@link #verify}, so a
+ * token that fails them costs no key operation.
+ * Rejections throw the preallocated exceptions of {@link RejectionReason} and are logged rate-limited.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class TokenInfoDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final String ROLE_SEPARATOR = ":";
+    private static final RateLimitedLogger REJECTION_LOG = new RateLimitedLogger(log,
+            JwtTokenValidator.REJECTION_LOG_PERMITS, JwtTokenValidator.REJECTION_LOG_WINDOW);
+
+    private final JwtKeyRing keyRing;
+    private final TokenMetrics metrics;
+    private final String requiredIssuer;
+    private final Set<String> acceptedAudiences;
+    private final Map<String, JwsVerifier> verifiers = new ConcurrentHashMap<>();
+    private final BlockingQueue<Buffers> precheckBuffers =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+    private final ThreadLocal<Buffers> verifyBuffers = ThreadLocal.withInitial(Buffers::new);
+
+    public TokenInfoDecoder(JwtProperties jwtProperties, JwtKeyRing keyRing, TokenMetrics metrics) {
+        this.keyRing = keyRing;
+        this.metrics = metrics;
+        JwtProperties.Precheck precheck = jwtProperties.getPrecheck();
+        this.requiredIssuer = precheck.isRequireIssuer() ? jwtProperties.getIssuer() : null;
+        List<String> audience = jwtProperties.getAudience();
+        this.acceptedAudiences = precheck.isRequireAudience() && audience != null && !audience.isEmpty()
+                ? Set.copyOf(audience)
+                : null;
+    }
+
+    /**
+     * Verify a compact JWS and decode its claims: {@link #precheck} followed by {@link #verify} on the same thread.
+     *
+     * @param token the JWT token string
+     * @return decoded token information
+     * @throws JwtTokenValidator.TokenValidationException if the token is malformed, not validly signed or expired
+     */
+    public TokenInfoResponse decode(String token) throws JwtTokenValidator.TokenValidationException {
+        return verify(token, precheck(token));
+    }
+
+    /**
+     * Apply every check that comes before the signature: structure, {@code kid}/{@code alg}, {@code exp}/{@code nbf},
+     * {@code iss} and {@code aud}. Cheap enough for the request thread, so tokens that fail it never reach the
+     * verification pool. Rejected tokens are recorded as a failed {@code verify} stage.
+     *
+     * @param token the JWT token string
+     * @return the verification key and decoded claims, for {@link #verify}
+     * @throws JwtTokenValidator.TokenValidationException if the token would be rejected whatever its signature
+     */
+    public Prechecked precheck(String token) throws JwtTokenValidator.TokenValidationException {
+        long start = System.nanoTime();
+        try {
+            return checkBeforeSignature(token);
+        } catch (JwtTokenValidator.TokenValidationException e) {
+            recordRejection(e, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Verify the signature of a token that passed {@link #precheck}, without repeating its checks.
+     * Rejected tokens are recorded as a failed {@code verify} stage.
+     *
+     * @param token      the JWT token string
+     * @param prechecked result of {@link #precheck} for the same token
+     * @return decoded token information
+     * @throws JwtTokenValidator.TokenValidationException if the signature is not valid
+     */
+    public TokenInfoResponse verify(String token, Prechecked prechecked)
+            throws JwtTokenValidator.TokenValidationException {
+        long start = System.nanoTime();
+        TokenInfoResponse response = prechecked.response();
+        try {
+            verifySignature(prechecked.key(), token, prechecked.signingInputLength());
+        } catch (JwtTokenValidator.TokenValidationException e) {
+            recordRejection(e, start);
+            throw e;
+        }
+        metrics.success(TokenMetrics.Stage.VERIFY, response.domain(), start);
+        metrics.success(TokenMetrics.Stage.MAP, response.domain(), prechecked.mapStart(), prechecked.mapEnd());
+        return response;
+    }
+
+    private Prechecked checkBeforeSignature(String token) throws JwtTokenValidator.TokenValidationException {
+        int firstDot = token.indexOf('.');
+        int secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+            throw rejected(RejectionReason.MALFORMED, "token must have exactly three segments");
+        }
+
+        // Pool misses, e.g. more concurrent requests than the pool holds, allocate buffers that are dropped afterwards
+        Buffers polled = precheckBuffers.poll();
+        Buffers buf = polled != null ? polled : new Buffers();
+        try {
+            byte[] header = buf.header(Base64UrlUtil.decodedLength(firstDot));
+            int headerLength = Base64UrlUtil.decode(token, 0, firstDot, header);
+            int payloadChars = secondDot - firstDot - 1;
+            byte[] payload = buf.payload(Base64UrlUtil.decodedLength(payloadChars));
+            int payloadLength = Base64UrlUtil.decode(token, firstDot + 1, payloadChars, payload);
+            if (headerLength < 0 || payloadLength < 0 || signatureLength(token, secondDot, buf) <= 0) {
+                throw rejected(RejectionReason.MALFORMED, "token segments are not valid Base64URL");
+            }
+
+            SigningKey key = resolveKey(header, headerLength);
+            // Claims are read and checked before the signature, so tokens that fail them never reach the key operation
+            long mapStart = System.nanoTime();
+            TokenInfoResponse response = readClaims(payload, payloadLength);
+            return new Prechecked(key, response, secondDot, mapStart, System.nanoTime());
+        } finally {
+            precheckBuffers.offer(buf);
+        }
+    }
+
+    /**
+     * Discard cached verifiers, e.g. after keys were replaced.
+     */
+    public void clear() {
+        verifiers.clear();
+    }
+
+    /**
+     * Drop verifiers built for keys that have been rotated out; once keys retire, only their verifiers are dropped.
+     *
+     * @param event key rotation event
+     */
+    @EventListener
+    public void onKeysRotated(JwtKeysRotatedEvent event) {
+        if (event.keyIds().isEmpty()) {
+            event.retiredKeyIds().forEach(verifiers::remove);
+            return;
+        }
+        log.info("JWT keys rotated to {}, clearing cached verifiers", event.keyIds());
+        clear();
+    }
+
+    /**
+     * Read {@code alg} and {@code kid} from the header and select the verification key.
+     */
+    private SigningKey resolveKey(byte[] header, int length) throws JwtTokenValidator.TokenValidationException {
+        String alg = null;
+        String kid = null;
+        try (JsonParser parser = JSON.createParser(header, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw rejected(RejectionReason.MALFORMED, "token header is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (name) {
+                    case "alg" -> alg = parser.getValueAsString();
+                    case "kid" -> kid = parser.getValueAsString();
+                    case "crit" -> throw rejected(RejectionReason.UNSUPPORTED, "critical header parameters");
+                    default -> {
+                        if (value.isStructStart()) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw rejected(RejectionReason.MALFORMED, "token header is not valid JSON");
+        }
+
+        SigningKey key = keyRing.verificationKey(kid);
+        if (key == null) {
+            throw rejected(RejectionReason.UNKNOWN_KEY, kid);
+        }
+        if (!key.algorithm().headerName().equals(alg)) {
+            throw rejected(RejectionReason.UNSUPPORTED, alg);
+        }
+        return key;
+    }
+
+    private void verifySignature(SigningKey key, String token, int signingInputLength)
+            throws JwtTokenValidator.TokenValidationException {
+        Buffers buf = verifyBuffers.get();
+        int signatureLength = signatureLength(token, signingInputLength, buf);
+        // Segments were validated as Base64URL, so every character of the signing input is ASCII
+        byte[] signingInput = buf.signingInput(signingInputLength);
+        for (int i = 0; i < signingInputLength; i++) {
+            signingInput[i] = (byte) token.charAt(i);
+        }
+
+        boolean valid;
+        try {
+            valid = verifier(key).verify(signingInput, signingInputLength, buf.signature(signatureLength),
+                    signatureLength);
+        } catch (GeneralSecurityException e) {
+            throw rejected(RejectionReason.INVALID_SIGNATURE, e);
+        }
+        if (!valid) {
+            throw rejected(RejectionReason.INVALID_SIGNATURE, key.keyId());
+        }
+    }
+
+    /**
+     * Decode the signature segment into the signature buffer.
+     *
+     * @return signature length in bytes, negative if the segment is not valid Base64URL
+     */
+    private static int signatureLength(String token, int secondDot, Buffers buf) {
+        int signatureChars = token.length() - secondDot - 1;
+        byte[] signature = buf.signature(Base64UrlUtil.decodedLength(signatureChars));
+        return Base64UrlUtil.decode(token, secondDot + 1, signatureChars, signature);
+    }
+
+    private void recordRejection(JwtTokenValidator.TokenValidationException e, long start) {
+        metrics.failure(TokenMetrics.Stage.VERIFY, null, JwtTokenValidator.ERROR_INVALID_TOKEN, start);
+        metrics.rejected(e.reason().tagValue());
+    }
+
+    private TokenInfoResponse readClaims(byte[] payload, int length) throws JwtTokenValidator.TokenValidationException {
+        TokenInfoResponse.TokenInfoResponseBuilder builder = TokenInfoResponse.builder()
+                .scope(List.of());
+        String issuer = null;
+        List<String> audience = List.of();
+        Long expiration = null;
+        Long notBefore = null;
+
+        try (JsonParser parser = JSON.createParser(payload, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw rejected(RejectionReason.MALFORMED, "token payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "iss" -> issuer = text(parser);
+                    case "aud" -> audience = textList(parser);
+                    case "exp" -> expiration = number(parser);
+                    case "nbf" -> notBefore = number(parser);
+                    case "jti" -> builder.jwtId(text(parser));
+                    case "iat" -> builder.issuedAt(number(parser));
+                    case "sub" -> builder.subject(text(parser));
+                    case "client" -> builder.client(text(parser));
+                    case "scope" -> builder.scope(textList(parser));
+                    case "domain" -> builder.domain(text(parser));
+                    case "v" -> builder.version(text(parser));
+                    case "roles" -> builder.userRole(joinedRoles(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw rejected(RejectionReason.MALFORMED, "token payload is not valid JSON");
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        if (expiration != null && expiration <= now) {
+            throw rejected(RejectionReason.EXPIRED, expiration);
+        }
+        if (notBefore != null && notBefore > now) {
+            throw rejected(RejectionReason.NOT_YET_VALID, notBefore);
+        }
+        if (requiredIssuer != null && !requiredIssuer.equals(issuer)) {
+            throw rejected(RejectionReason.INVALID_ISSUER, issuer);
+        }
+        if (acceptedAudiences != null && !containsAny(acceptedAudiences, audience)) {
+            throw rejected(RejectionReason.INVALID_AUDIENCE, audience);
+        }
+
+        return builder.issuer(issuer).audience(audience).expiration(expiration).build();
+    }
+
+    private JwsVerifier verifier(SigningKey key) {
+        JwsVerifier verifier = verifiers.get(key.keyId());
+        if (verifier != null && verifier.key() == key) {
+            return verifier;
+        }
+        return verifiers.compute(key.keyId(), (keyId, existing) ->
+                existing != null && existing.key() == key ? existing : new JwsVerifier(key));
+    }
+
+    private static boolean containsAny(Set<String> accepted, List<String> values) {
+        for (String value : values) {
+            if (accepted.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scalar claim as text; structured values are skipped and read as null.
+     */
+    private static String text(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getValueAsString();
+    }
+
+    /**
+     * Array claim as a list of strings; a single value becomes a one-element list.
+     */
+    private static List<String> textList(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return List.of();
+        }
+        if (token != JsonToken.START_ARRAY) {
+            String value = text(parser);
+            return value != null ? List.of(value) : List.of();
+        }
+        List<String> values = new ArrayList<>(2);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(text(parser));
+        }
+        return values;
+    }
+
+    /**
+     * Roles array joined with {@code :} while it is read; null when there are no roles.
+     */
+    private static String joinedRoles(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token != JsonToken.START_ARRAY) {
+            return token == JsonToken.VALUE_NULL ? null : text(parser);
+        }
+        StringBuilder roles = null;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String role = text(parser);
+            if (roles == null) {
+                roles = new StringBuilder();
+            } else {
+                roles.append(ROLE_SEPARATOR);
+            }
+            roles.append(role);
+        }
+        return roles != null ? roles.toString() : null;
+    }
+
+    /**
+     * NumericDate claim in seconds.
+     */
+    private static Long number(JsonParser parser) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_NUMBER_INT -> parser.getLongValue();
+            case VALUE_NUMBER_FLOAT -> (long) parser.getDoubleValue();
+            case VALUE_STRING -> Long.parseLong(parser.getText());
+            case VALUE_NULL -> null;
+            default -> throw new NumberFormatException("Expected a numeric date");
+        };
+    }
+
+    /**
+     * Log the rejection, rate-limited, and return the shared exception for the reason.
+     *
+     * @param reason why the token is rejected
+     * @param detail what exactly was wrong, for the log only
+     */
+    private static JwtTokenValidator.TokenValidationException rejected(RejectionReason reason, Object detail) {
+        REJECTION_LOG.warn("JWT token rejected as {}: {}", reason.tagValue(), detail);
+        return reason.exception();
+    }
+
+    /**
+     * Token that passed {@link #precheck}: the key its header selects, its decoded claims, where its signing input
+     * ends and when its claims were mapped.
+     *
+     * @param key                verification key
+     * @param response           decoded token information
+     * @param signingInputLength length of the header and payload segments with the dot between them
+     * @param mapStart           start of claim mapping, in {@link System#nanoTime()}
+     * @param mapEnd             end of claim mapping, in {@link System#nanoTime()}
+     */
+    public record Prechecked(SigningKey key, TokenInfoResponse response, int signingInputLength, long mapStart,
+                             long mapEnd) {
+    }
+
+    /**
+     * Scratch buffers, allocated on first use, grown on demand and reused across tokens. Pre-check buffers never
+     * allocate a signing input, verification buffers never allocate a header or payload.
+     */
+    private static final class Buffers {
+        private static final byte[] EMPTY = new byte[0];
+
+        private byte[] header = EMPTY;
+        private byte[] payload = EMPTY;
+        private byte[] signature = EMPTY;
+        private byte[] signingInput = EMPTY;
+
+        byte[] header(int capacity) {
+            return header = ensure(header, capacity);
+        }
+
+        byte[] payload(int capacity) {
+            return payload = ensure(payload, capacity);
+        }
+
+        byte[] signature(int capacity) {
+            return signature = ensure(signature, capacity);
+        }
+
+        byte[] signingInput(int capacity) {
+            return signingInput = ensure(signingInput, capacity);
+        }
+
+        private static byte[] ensure(byte[] buffer, int capacity) {
+            return buffer.length < capacity ? Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2)) : buffer;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.shdev.securityservice.jwt;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.util.DigestUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of already verified and decoded tokens, keyed by the SHA-256 digest of the token.
+ * <p>
+ * Entries live until the token's {@code exp} time and are evicted by size when the cache is full.
+ * Concurrent misses on the same token are collapsed into a single verification.
+ * Hit, miss and eviction counts are published to Micrometer under the {@code jwt.verified-tokens} cache name.
+ * </p>
+ * <p>
+ * Each entry remembers the token's header, so when {@link JwtKeyRing} retires keys the tokens they verified are
+ * dropped and verified again, and rejected, on their next lookup.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "jwt.verified-tokens";
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final boolean enabled;
+    private final Cache<String, Entry> cache;
+
+    public VerifiedTokenCache(JwtProperties jwtProperties) {
+        JwtProperties.ValidationCache config = jwtProperties.getValidationCache();
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        log.info("Verified token cache enabled: {}, maximum size: {}", enabled, config.getMaximumSize());
+    }
+
+    /**
+     * Return the cached token information for a token, verifying it with the given verifier on a miss.
+     * Failed verifications are never cached.
+     *
+     * @param token    the JWT token string
+     * @param verifier verifier invoked at most once per token across concurrent callers
+     * @return verified token information
+     * @throws JwtTokenValidator.TokenValidationException if verification fails
+     */
+    public TokenInfoResponse get(String token, TokenVerifier verifier) throws JwtTokenValidator.TokenValidationException {
+        if (!enabled) {
+            return verifier.verify(token);
+        }
+
+        try {
+            return cache.get(DigestUtil.sha256Base64Url(token), key -> {
+                try {
+                    return new Entry(verifier.verify(token), header(token));
+                } catch (JwtTokenValidator.TokenValidationException e) {
+                    throw new VerificationFailure(e);
+                }
+            }).tokenInfo();
+        } catch (VerificationFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Current hit, miss and eviction statistics.
+     *
+     * @return cache statistics snapshot
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Approximate number of cached tokens.
+     *
+     * @return estimated entry count
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Discard all cached tokens.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Discard the tokens verified with keys that have been retired; tokens without a {@code kid} header, verified
+     * with whichever key was the default, are discarded too. Key IDs are only read from the cached headers here,
+     * never on the lookup path.
+     *
+     * @param event key rotation event
+     */
+    @EventListener
+    public void onKeysRotated(JwtKeysRotatedEvent event) {
+        if (event.retiredKeyIds().isEmpty()) {
+            return;
+        }
+        Set<String> retired = Set.copyOf(event.retiredKeyIds());
+        Map<String, String> keyIdsByHeader = new HashMap<>();
+        long before = cache.estimatedSize();
+        cache.asMap().values().removeIf(entry -> {
+            String keyId = keyIdsByHeader.computeIfAbsent(entry.header(), VerifiedTokenCache::keyId);
+            return keyId.isEmpty() || retired.contains(keyId);
+        });
+        log.info("JWT key IDs {} retired, dropped {} cached tokens", event.retiredKeyIds(),
+                before - cache.estimatedSize());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Token verification callback.
+     */
+    @FunctionalInterface
+    public interface TokenVerifier {
+        TokenInfoResponse verify(String token) throws JwtTokenValidator.TokenValidationException;
+    }
+
+    /**
+     * Encoded header segment of a token; the whole token if it has no segments.
+     */
+    private static String header(String token) {
+        int dot = token.indexOf('.');
+        return dot < 0 ? token : token.substring(0, dot);
+    }
+
+    /**
+     * {@code kid} header of a token.
+     *
+     * @param token the JWT token string
+     * @return key ID, or an empty string if the token has none or its header cannot be read
+     */
+    static String tokenKeyId(String token) {
+        return keyId(header(token));
+    }
+
+    /**
+     * {@code kid} of an encoded header, or an empty string if it has none or cannot be read.
+     */
+    private static String keyId(String header) {
+        byte[] json;
+        try {
+            json = Base64.getUrlDecoder().decode(header);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+        try (JsonParser parser = JSON.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return "";
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("kid".equals(name) && value == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            return "";
+        }
+        return "";
+    }
+
+    /**
+     * Verified token information with the encoded header of its token.
+     */
+    private record Entry(TokenInfoResponse tokenInfo, String header) {
+    }
+
+    /**
+     * Expires each entry at the {@code exp} claim of its token.
+     */
+    private static final class UntilTokenExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            Long expiration = entry.tokenInfo().expiration();
+            if (expiration == null) {
+                return 0;
+            }
+            long remainingMillis = TimeUnit.SECONDS.toMillis(expiration) - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Carries a checked validation failure out of the cache loader.
+     */
+    private static final class VerificationFailure extends RuntimeException {
+
+        VerificationFailure(JwtTokenValidator.TokenValidationException cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+
+        @Override
+        public synchronized JwtTokenValidator.TokenValidationException getCause() {
+            return (JwtTokenValidator.TokenValidationException) super.getCause();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.shdev.securityservice.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-request accumulator of the {@link TokenMetrics} stage durations, rendered as a {@code Server-Timing} header.
+ * <p>
+ * A timing is bound to the request thread only for sampled requests; {@link TokenMetrics} adds every stage it
+ * records to the bound timing, and {@link com.shdev.securityservice.concurrent.BoundedCryptoPool} carries it over to
+ * the crypto pool threads. Without a bound timing, recording a stage costs one thread-local lookup. Stages that run
+ * more than once per request, e.g. signing in a batch, are summed.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+public final class RequestTiming {
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final TokenMetrics.Stage[] STAGES = TokenMetrics.Stage.values();
+
+    private final long startNanos;
+    private final AtomicLongArray stageNanos = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray stageCounts = new AtomicLongArray(STAGES.length);
+
+    public RequestTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Timing bound to the current thread.
+     *
+     * @return the bound timing, or null if the current request is not sampled
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind a timing to the current thread.
+     *
+     * @param timing the timing, or null to unbind
+     */
+    public static void bind(RequestTiming timing) {
+        if (timing == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(timing);
+        }
+    }
+
+    /**
+     * Wrap a task so it records into this timing on whichever thread runs it.
+     *
+     * @param task the task
+     * @param <T>  result type
+     * @return task bound to this timing while it runs
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            RequestTiming previous = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return task.call();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * Add the duration of a stage.
+     *
+     * @param stage        the stage
+     * @param elapsedNanos time spent in it
+     */
+    void add(TokenMetrics.Stage stage, long elapsedNanos) {
+        stageNanos.addAndGet(stage.ordinal(), elapsedNanos);
+        stageCounts.incrementAndGet(stage.ordinal());
+    }
+
+    /**
+     * Render the recorded stages and the time since the request started, e.g.
+     * {@code auth;dur=0.021, bcrypt;dur=61.204, sign;dur=0.398, total;dur=62.113}.
+     *
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return Server-Timing header value
+     */
+    public String headerValue(long nowNanos) {
+        StringBuilder header = new StringBuilder(96);
+        for (TokenMetrics.Stage stage : STAGES) {
+            String name = stage.serverTimingName();
+            if (name != null && stageCounts.get(stage.ordinal()) > 0) {
+                appendMetric(header, name, stageNanos.get(stage.ordinal()));
+            }
+        }
+        appendMetric(header, "total", nowNanos - startNanos);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long nanos) {
+        if (!header.isEmpty()) {
+            header.append(", ");
+        }
+        // Milliseconds with microsecond precision, as recommended for Server-Timing
+        long micros = Math.max(0, nanos / 1_000);
+        header.append(name).append(";dur=").append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        header.append(fraction);
+    }
+}
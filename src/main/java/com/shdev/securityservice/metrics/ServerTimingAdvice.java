@@ -0,0 +1,41 @@
+package com.shdev.securityservice.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Writes the {@code Server-Timing} header of a sampled request just before its body, so it also covers the error
+ * responses of {@link com.shdev.securityservice.config.OAuth2ExceptionHandler}. Responses without a body never reach
+ * this advice; {@link ServerTimingInterceptor} adds the header to those. Requests without a bound
+ * {@link RequestTiming} are passed through untouched.
+ *
+ * @author Shailesh Halor
+ */
+@ControllerAdvice
+@ConditionalOnProperty(prefix = "oauth2.server-timing", name = "enabled", havingValue = "true")
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            response.getHeaders().set(SERVER_TIMING_HEADER, timing.headerValue(System.nanoTime()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,49 @@
+package com.shdev.securityservice.metrics;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Binds a {@link RequestTiming} to a sampled share of the token endpoint requests and unbinds it when the request
+ * completes. Responses with a body, including error responses, get the header from {@link ServerTimingAdvice} just
+ * before the body is written, which commits them; bodiless responses such as token revocation get it here once the
+ * handler returns, while they are still uncommitted.
+ *
+ * @author Shailesh Halor
+ */
+public class ServerTimingInterceptor implements HandlerInterceptor {
+
+    private final double sampleRate;
+
+    public ServerTimingInterceptor(OAuth2ClientProperties clientProperties) {
+        this.sampleRate = clientProperties.getServerTiming().getSampleRate();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            RequestTiming.bind(new RequestTiming(System.nanoTime()));
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null && !response.isCommitted()
+                && !response.containsHeader(ServerTimingAdvice.SERVER_TIMING_HEADER)) {
+            response.setHeader(ServerTimingAdvice.SERVER_TIMING_HEADER, timing.headerValue(System.nanoTime()));
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestTiming.bind(null);
+    }
+}
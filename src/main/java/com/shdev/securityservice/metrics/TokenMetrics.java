@@ -0,0 +1,223 @@
+package com.shdev.securityservice.metrics;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.service.ClientRegistryRefreshedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers for the stages of token issuance and introspection, published as {@value #STAGE_TIMER}.
+ * <p>
+ * Every timer is tagged with {@code stage}, {@code domain}, {@code outcome} ({@code success} or {@code failure}) and
+ * {@code error} (an OAuth2 error code or exception name, {@code none} on success). Domains come from request headers
+ * and tokens, so only identity domains that are configured for a client or a signing key are used as tag values;
+ * anything else is recorded as {@value #UNKNOWN}. Timers are created once per tag combination and reused, so
+ * recording a stage costs a map lookup and a timer update. Rejected tokens are also counted by reason as
+ * {@value #REJECTION_COUNTER}.
+ * </p>
+ * <p>
+ * The timers can be switched off with {@code management.metrics.enable.security.token=false}, which leaves only the
+ * {@link System#nanoTime()} calls on the request path.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Component
+public class TokenMetrics {
+
+    public static final String STAGE_TIMER = "security.token.stage";
+    public static final String REJECTION_COUNTER = "security.token.rejections";
+    public static final String UNKNOWN = "unknown";
+    public static final String NONE = "none";
+
+    private final MeterRegistry registry;
+    private final OAuth2ClientProperties clientProperties;
+    private final JwtProperties jwtProperties;
+    private final ConcurrentMap<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> rejections = new ConcurrentHashMap<>();
+    private volatile Set<String> knownDomains;
+
+    public TokenMetrics(MeterRegistry registry, OAuth2ClientProperties clientProperties, JwtProperties jwtProperties) {
+        this.registry = registry;
+        this.clientProperties = clientProperties;
+        this.jwtProperties = jwtProperties;
+        this.knownDomains = resolveKnownDomains(clientProperties, jwtProperties);
+    }
+
+    /**
+     * Record a successful stage.
+     *
+     * @param stage      the stage
+     * @param domain     the identity domain, may be null or unknown
+     * @param startNanos {@link System#nanoTime()} taken when the stage started
+     */
+    public void success(Stage stage, String domain, long startNanos) {
+        record(stage, domain, NONE, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a successful stage that ended earlier, e.g. once the domain is known from a later stage.
+     *
+     * @param stage      the stage
+     * @param domain     the identity domain, may be null or unknown
+     * @param startNanos {@link System#nanoTime()} taken when the stage started
+     * @param endNanos   {@link System#nanoTime()} taken when the stage ended
+     */
+    public void success(Stage stage, String domain, long startNanos, long endNanos) {
+        record(stage, domain, NONE, endNanos - startNanos);
+    }
+
+    /**
+     * Record a failed stage.
+     *
+     * @param stage      the stage
+     * @param domain     the identity domain, may be null or unknown
+     * @param error      OAuth2 error code or exception name; must come from a small fixed set
+     * @param startNanos {@link System#nanoTime()} taken when the stage started
+     */
+    public void failure(Stage stage, String domain, String error, long startNanos) {
+        record(stage, domain, error, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Record a stage that ended with an exception, tagged with the exception's simple class name.
+     *
+     * @param stage      the stage
+     * @param domain     the identity domain, may be null or unknown
+     * @param exception  the exception the stage ended with
+     * @param startNanos {@link System#nanoTime()} taken when the stage started
+     */
+    public void failure(Stage stage, String domain, Throwable exception, long startNanos) {
+        record(stage, domain, exception.getClass().getSimpleName(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Count a rejected token by reason, next to the failed {@code verify} stage that times it.
+     *
+     * @param reason rejection reason; must come from a small fixed set
+     */
+    public void rejected(String reason) {
+        Counter counter = rejections.get(reason);
+        if (counter == null) {
+            counter = rejections.computeIfAbsent(reason, r -> Counter.builder(REJECTION_COUNTER)
+                    .description("Tokens rejected by introspection, by reason")
+                    .tag("reason", r)
+                    .register(registry));
+        }
+        counter.increment();
+    }
+
+    /**
+     * Identity domain as a tag value: the domain itself if it is configured, {@value #UNKNOWN} otherwise.
+     *
+     * @param domain the identity domain from a request or token
+     * @return tag value
+     */
+    public String domainTag(String domain) {
+        return domain != null && knownDomains.contains(domain) ? domain : UNKNOWN;
+    }
+
+    /**
+     * Pick up domains of added clients when the client configuration is reloaded.
+     *
+     * @param event registry refresh event
+     */
+    @EventListener
+    public void onClientRegistryRefreshed(ClientRegistryRefreshedEvent event) {
+        knownDomains = resolveKnownDomains(clientProperties, jwtProperties);
+    }
+
+    private void record(Stage stage, String domain, String error, long elapsedNanos) {
+        RequestTiming timing = RequestTiming.current();
+        if (timing != null) {
+            timing.add(stage, elapsedNanos);
+        }
+        TimerKey key = new TimerKey(stage, domainTag(domain), error);
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, this::register);
+        }
+        timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Time spent in one stage of token issuance or introspection")
+                .tag("stage", key.stage().tagValue())
+                .tag("domain", key.domain())
+                .tag("outcome", NONE.equals(key.error()) ? "success" : "failure")
+                .tag("error", key.error())
+                .register(registry);
+    }
+
+    private static Set<String> resolveKnownDomains(OAuth2ClientProperties clientProperties, JwtProperties jwtProperties) {
+        Set<String> domains = new HashSet<>();
+        for (OAuth2ClientProperties.ClientConfig client : clientProperties.getClients()) {
+            if (StringUtils.hasText(client.getIdentityDomain())) {
+                domains.add(client.getIdentityDomain());
+            }
+        }
+        if (StringUtils.hasText(jwtProperties.getIdentityDomainName())) {
+            domains.add(jwtProperties.getIdentityDomainName());
+        }
+        domains.addAll(jwtProperties.getDomains().keySet());
+        return Set.copyOf(domains);
+    }
+
+    /**
+     * Instrumented stages of a token request.
+     */
+    public enum Stage {
+        /** Decoding the Basic Authorization header */
+        AUTH_PARSE("auth_parse", "auth"),
+        /** Checking a client secret against its BCrypt hash */
+        BCRYPT("bcrypt", "bcrypt"),
+        /** Reading a signing key from disk */
+        KEY_LOAD("key_load", null),
+        /** Building and signing a token */
+        SIGN("sign", "sign"),
+        /** Parsing a token and verifying its signature */
+        VERIFY("verify", "verify"),
+        /** Mapping verified claims to the token info response */
+        MAP("map", "map"),
+        /** Issuing an opaque reference token */
+        REFERENCE_ISSUE("reference_issue", "issue"),
+        /** Resolving an opaque reference token */
+        REFERENCE_LOOKUP("reference_lookup", "lookup");
+
+        private final String tagValue;
+        private final String serverTimingName;
+
+        Stage(String tagValue, String serverTimingName) {
+            this.tagValue = tagValue;
+            this.serverTimingName = serverTimingName;
+        }
+
+        public String tagValue() {
+            return tagValue;
+        }
+
+        /**
+         * Metric name in the Server-Timing header, null for stages outside of requests.
+         *
+         * @return Server-Timing metric name
+         */
+        public String serverTimingName() {
+            return serverTimingName;
+        }
+    }
+
+    private record TimerKey(Stage stage, String domain, String error) {
+    }
+}
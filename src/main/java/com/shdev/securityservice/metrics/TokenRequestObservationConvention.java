@@ -0,0 +1,43 @@
+package com.shdev.securityservice.metrics;
+
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the identity domain and the OAuth2 error code to the {@code http.server.requests} metrics, so the timers of
+ * the controller methods can be broken down the same way as the {@link TokenMetrics} stages.
+ * <p>
+ * {@code domain} is taken from the {@code X-OAUTH-IDENTITY-DOMAIN-NAME} header and limited to configured domains;
+ * {@code error} is the code of the OAuth2 error response, or {@code none}.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Component
+public class TokenRequestObservationConvention extends DefaultServerRequestObservationConvention {
+
+    /**
+     * Request attribute holding the OAuth2 error code of the response
+     */
+    public static final String ERROR_ATTRIBUTE = TokenRequestObservationConvention.class.getName() + ".error";
+
+    private static final String DOMAIN_HEADER = "X-OAUTH-IDENTITY-DOMAIN-NAME";
+
+    private final TokenMetrics metrics;
+
+    public TokenRequestObservationConvention(TokenMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        HttpServletRequest request = context.getCarrier();
+        Object error = request.getAttribute(ERROR_ATTRIBUTE);
+        return super.getLowCardinalityKeyValues(context).and(
+                "domain", metrics.domainTag(request.getHeader(DOMAIN_HEADER)),
+                "error", error instanceof String code ? code : TokenMetrics.NONE);
+    }
+}
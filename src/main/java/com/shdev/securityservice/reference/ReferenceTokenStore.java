@@ -0,0 +1,432 @@
+package com.shdev.securityservice.reference;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.jwt.IssuedToken;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenValidator;
+import com.shdev.securityservice.jwt.RejectionReason;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Opaque reference tokens: random handles whose claims are kept in memory and resolved by lookup instead of a
+ * signature check.
+ * <p>
+ * A handle is 32 random bytes, Base64url encoded to 43 characters. The first 8 bytes are the key of an open-addressing
+ * table of primitive arrays, and their encoding is the token's {@code jti}. The other 24 bytes are a secret that must
+ * match as well. Each slot holds the key, the secret, the expiry and a reference to claims shared by all tokens of the
+ * same client, scope, domain and roles; the table takes about 120 bytes per handle it can hold. Lookups take an
+ * optimistic read stamp and retry under the read lock only when they overlap a write. The table holds
+ * {@code oauth2.reference-tokens.max-entries} handles and is allocated on first use. When it is full, {@link #issue}
+ * returns null and the caller issues a JWT instead. A background thread removes expired handles.
+ * </p>
+ * <p>
+ * Handles live in this instance's memory: they are lost on restart and are unknown to other instances.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class ReferenceTokenStore implements MeterBinder {
+
+    private static final int HANDLE_BYTES = 32;
+    private static final int HANDLE_LENGTH = 43;
+    private static final int KEY_BYTES = Long.BYTES;
+    private static final long EMPTY = 0;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final int maxEntries;
+    private final long purgeIntervalNanos;
+    private final JwtProperties jwtProperties;
+    private final TokenMetrics metrics;
+    private final SecureRandom random = new SecureRandom();
+    private final StampedLock lock = new StampedLock();
+    private final ConcurrentMap<ClaimsKey, TokenInfoResponse> sharedClaims = new ConcurrentHashMap<>();
+    private final LongAdder overflows = new LongAdder();
+    private volatile Table table;
+    private volatile boolean running = true;
+    private volatile Thread purgeThread;
+
+    public ReferenceTokenStore(OAuth2ClientProperties clientProperties, JwtProperties jwtProperties,
+                               TokenMetrics metrics) {
+        OAuth2ClientProperties.ReferenceTokens config = clientProperties.getReferenceTokens();
+        this.maxEntries = Math.max(1, config.getMaxEntries());
+        this.purgeIntervalNanos = config.getPurgeInterval().toNanos();
+        this.jwtProperties = jwtProperties;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Whether a token has the shape of a reference handle; JWTs always contain dots.
+     *
+     * @param token the token string
+     * @return true for a 43 character token without dots
+     */
+    public static boolean isReferenceToken(String token) {
+        return token.length() == HANDLE_LENGTH && token.indexOf('.') < 0;
+    }
+
+    /**
+     * Issue a reference token with the same claims a JWT for the request would carry.
+     *
+     * @param clientId the client ID (subject and client claim)
+     * @param scope    the scope
+     * @param domain   the identity domain name
+     * @param roles    the user roles
+     * @return the handle with its time claims, or null if the store is full
+     */
+    public IssuedToken issue(String clientId, String scope, String domain, List<String> roles) {
+        long start = System.nanoTime();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant expiration = now.plusSeconds(jwtProperties.getExpirationSeconds());
+        TokenInfoResponse claims = sharedClaims.computeIfAbsent(new ClaimsKey(clientId, scope, domain, roles),
+                this::claimsFor);
+        byte[] handle = new byte[HANDLE_BYTES];
+
+        Table current = table();
+        long stamp = lock.writeLock();
+        try {
+            if (current.size >= maxEntries) {
+                overflows.increment();
+                metrics.failure(TokenMetrics.Stage.REFERENCE_ISSUE, domain, "store_full", start);
+                return null;
+            }
+            long key;
+            do {
+                random.nextBytes(handle);
+                key = longAt(handle, 0);
+            } while (key == EMPTY || current.find(key) >= 0);
+            current.insert(key, longAt(handle, 8), longAt(handle, 16), longAt(handle, 24),
+                    expiration.getEpochSecond(), claims);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        metrics.success(TokenMetrics.Stage.REFERENCE_ISSUE, domain, start);
+        return new IssuedToken(ENCODER.encodeToString(handle), jti(handle), now, expiration);
+    }
+
+    /**
+     * Resolve a reference token to the same token information its JWT would have produced.
+     *
+     * @param token the handle
+     * @return token information
+     * @throws JwtTokenValidator.TokenValidationException if the handle is unknown or expired
+     */
+    public TokenInfoResponse resolve(String token) throws JwtTokenValidator.TokenValidationException {
+        long start = System.nanoTime();
+        byte[] handle = decode(token);
+        Table current = table;
+        if (handle == null || current == null) {
+            throw rejected(RejectionReason.UNKNOWN_REFERENCE, start);
+        }
+        long key = longAt(handle, 0);
+        long secret0 = longAt(handle, 8);
+        long secret1 = longAt(handle, 16);
+        long secret2 = longAt(handle, 24);
+
+        long stamp = lock.tryOptimisticRead();
+        Entry entry = current.lookup(key, secret0, secret1, secret2);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                entry = current.lookup(key, secret0, secret1, secret2);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (entry == null) {
+            throw rejected(RejectionReason.UNKNOWN_REFERENCE, start);
+        }
+        long now = Instant.now().getEpochSecond();
+        if (entry.expiresAt() <= now) {
+            throw rejected(RejectionReason.EXPIRED, start);
+        }
+        TokenInfoResponse claims = entry.claims();
+        metrics.success(TokenMetrics.Stage.REFERENCE_LOOKUP, claims.domain(), start);
+        return new TokenInfoResponse(claims.issuer(), claims.audience(), entry.expiresAt(), jti(handle),
+                entry.expiresAt() - jwtProperties.getExpirationSeconds(), claims.subject(), claims.client(),
+                claims.scope(), claims.domain(), claims.version(), claims.userRole());
+    }
+
+    /**
+     * Remove a reference token, e.g. when it is revoked.
+     *
+     * @param token the handle
+     * @return true if the handle was live
+     */
+    public boolean remove(String token) {
+        byte[] handle = decode(token);
+        Table current = table;
+        if (handle == null || current == null) {
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int slot = current.find(longAt(handle, 0));
+            if (slot < 0 || !current.secretMatches(slot, longAt(handle, 8), longAt(handle, 16), longAt(handle, 24))) {
+                return false;
+            }
+            current.removeAt(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Number of live handles, including expired ones not yet purged.
+     */
+    public int size() {
+        Table current = table;
+        return current == null ? 0 : current.size;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (purgeThread != null) {
+            LockSupport.unpark(purgeThread);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("security.reference.tokens", this, ReferenceTokenStore::size)
+                .description("Reference tokens held in memory")
+                .register(registry);
+        FunctionCounter.builder("security.reference.tokens.overflows", overflows, LongAdder::sum)
+                .description("Reference token requests answered with a JWT because the store was full")
+                .register(registry);
+    }
+
+    /**
+     * Remove handles that expired before the given time.
+     *
+     * @param nowEpochSeconds current time in epoch seconds
+     * @return number of handles removed
+     */
+    int purgeExpired(long nowEpochSeconds) {
+        Table current = table;
+        if (current == null) {
+            return 0;
+        }
+        long stamp = lock.writeLock();
+        try {
+            return current.removeExpired(nowEpochSeconds);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * The table, allocated with the purge thread when the first handle is issued.
+     */
+    private Table table() {
+        Table current = table;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (table == null) {
+                table = new Table(maxEntries);
+                purgeThread = Thread.ofPlatform().name("reference-token-purger").daemon().start(this::purgeLoop);
+                log.info("Reference token store allocated for {} tokens", maxEntries);
+            }
+            return table;
+        }
+    }
+
+    private TokenInfoResponse claimsFor(ClaimsKey key) {
+        return TokenInfoResponse.builder()
+                .issuer(jwtProperties.getIssuer())
+                .audience(jwtProperties.getAudience() != null ? List.copyOf(jwtProperties.getAudience()) : null)
+                .subject(key.clientId())
+                .client(key.clientId())
+                .scope(List.of(key.scope()))
+                .domain(key.domain())
+                .version(jwtProperties.getVersion())
+                .userRole(!key.roles().isEmpty() ? String.join(":", key.roles()) : null)
+                .build();
+    }
+
+    private JwtTokenValidator.TokenValidationException rejected(RejectionReason reason, long start) {
+        metrics.failure(TokenMetrics.Stage.REFERENCE_LOOKUP, null, "invalid_token", start);
+        metrics.rejected(reason.tagValue());
+        return reason.exception();
+    }
+
+    private void purgeLoop() {
+        while (running) {
+            LockSupport.parkNanos(purgeIntervalNanos);
+            if (!running) {
+                break;
+            }
+            int purged = purgeExpired(Instant.now().getEpochSecond());
+            log.debug("Purged {} expired reference tokens, {} left", purged, size());
+        }
+    }
+
+    private static byte[] decode(String token) {
+        if (!isReferenceToken(token)) {
+            return null;
+        }
+        try {
+            return DECODER.decode(token);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String jti(byte[] handle) {
+        return ENCODER.encodeToString(Arrays.copyOf(handle, KEY_BYTES));
+    }
+
+    private static long longAt(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private record ClaimsKey(String clientId, String scope, String domain, List<String> roles) {
+    }
+
+    private record Entry(long expiresAt, TokenInfoResponse claims) {
+    }
+
+    /**
+     * Open-addressing hash table with linear probing over parallel arrays, at most half full. Reads may run
+     * concurrently with a write and must be validated by the caller; writes hold the write lock.
+     */
+    private static final class Table {
+
+        private final int mask;
+        private final long[] keys;
+        private final long[] secrets;
+        private final long[] expiresAt;
+        private final TokenInfoResponse[] claims;
+        private int size;
+
+        Table(int maxEntries) {
+            int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+            this.mask = capacity - 1;
+            this.keys = new long[capacity];
+            this.secrets = new long[3 * capacity];
+            this.expiresAt = new long[capacity];
+            this.claims = new TokenInfoResponse[capacity];
+        }
+
+        int find(long key) {
+            for (int slot = home(key); ; slot = (slot + 1) & mask) {
+                long current = keys[slot];
+                if (current == key) {
+                    return slot;
+                }
+                if (current == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        Entry lookup(long key, long secret0, long secret1, long secret2) {
+            // Bounded so a read racing with a write cannot loop; the caller retries under the read lock
+            for (int probe = 0, slot = home(key); probe <= mask; probe++, slot = (slot + 1) & mask) {
+                long current = keys[slot];
+                if (current == EMPTY) {
+                    return null;
+                }
+                if (current == key) {
+                    long expiry = expiresAt[slot];
+                    TokenInfoResponse shared = claims[slot];
+                    return secretMatches(slot, secret0, secret1, secret2) && shared != null
+                            ? new Entry(expiry, shared)
+                            : null;
+                }
+            }
+            return null;
+        }
+
+        boolean secretMatches(int slot, long secret0, long secret1, long secret2) {
+            int base = 3 * slot;
+            // No early exit, so the time taken does not tell how much of a guessed secret was right
+            return ((secrets[base] ^ secret0) | (secrets[base + 1] ^ secret1) | (secrets[base + 2] ^ secret2)) == 0;
+        }
+
+        void insert(long key, long secret0, long secret1, long secret2, long expiry, TokenInfoResponse shared) {
+            int slot = home(key);
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            secrets[3 * slot] = secret0;
+            secrets[3 * slot + 1] = secret1;
+            secrets[3 * slot + 2] = secret2;
+            expiresAt[slot] = expiry;
+            claims[slot] = shared;
+            keys[slot] = key;
+            size++;
+        }
+
+        int removeExpired(long nowEpochSeconds) {
+            int removed = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                // Removal can shift a later entry into this slot, so check it again
+                while (keys[slot] != EMPTY && expiresAt[slot] < nowEpochSeconds) {
+                    removeAt(slot);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Remove a slot and shift later entries of the probe run back, so lookups never stop at a gap.
+         */
+        void removeAt(int slot) {
+            int hole = slot;
+            for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+                int home = home(keys[next]);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    move(next, hole);
+                    hole = next;
+                }
+            }
+            keys[hole] = EMPTY;
+            claims[hole] = null;
+            size--;
+        }
+
+        private void move(int from, int to) {
+            keys[to] = keys[from];
+            System.arraycopy(secrets, 3 * from, secrets, 3 * to, 3);
+            expiresAt[to] = expiresAt[from];
+            claims[to] = claims[from];
+        }
+
+        private int home(long key) {
+            // The key is random, so its low bits are already uniform
+            return (int) key & mask;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.shdev.securityservice.revocation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter of token IDs.
+ * <p>
+ * A token ID is hashed once to 64 bits; the two halves derive all bit positions by double hashing, so a lookup costs
+ * one pass over the ID and a few array reads; the size is rounded up to a power of two so positions are masked rather
+ * than divided. Bits are set with CAS and read with volatile semantics, so an ID added on one thread is seen by every
+ * lookup that starts afterwards. Entries cannot be removed; the {@link RevocationStore} builds a new filter when it
+ * purges expired revocations.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+final class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bitMask;
+    private final int hashCount;
+
+    /**
+     * @param expectedEntries   number of entries at which the false positive rate is reached
+     * @param falsePositiveRate target probability that an absent ID is reported as present
+     */
+    BloomFilter(int expectedEntries, double falsePositiveRate) {
+        long n = Math.max(1, expectedEntries);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long bits = (long) Math.ceil(-n * Math.log(p) / (LN2 * LN2));
+        // At most 2^32 bits, the range of one 32-bit hash
+        int wordCount = (int) Math.min(1 << 26, Long.highestOneBit(Math.max(1, (bits + 63) >>> 6) * 2 - 1));
+        this.words = new AtomicLongArray(wordCount);
+        long bitCount = (long) wordCount << 6;
+        this.bitMask = bitCount - 1;
+        this.hashCount = (int) Math.max(1, Math.min(16, Math.round((double) bitCount / n * LN2)));
+    }
+
+    /**
+     * Add a token ID.
+     *
+     * @param id the token ID
+     */
+    void add(String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * Whether the token ID may have been added; false means it certainly was not.
+     *
+     * @param id the token ID
+     * @return false if the ID was never added
+     */
+    boolean mightContain(String id) {
+        long hash = hash(id);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combined) {
+        return combined & bitMask;
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the SplitMix64 mixer so both halves are usable as hashes.
+     */
+    private static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,212 @@
+package com.shdev.securityservice.revocation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Append-only, memory-mapped file of revoked token IDs and their expiry. Used under the {@link RevocationStore} lock.
+ * <p>
+ * The file starts with a magic number, followed by records of {@code [int length][long exp][length bytes of jti]}.
+ * A record is written body first and its length last, then forced to disk, so a record interrupted by a crash reads
+ * as a zero length and ends the log. The mapping has a fixed size; when it is full, or once revocations have expired,
+ * {@link #rewrite} compacts the live records into the same file, remapping it larger if needed. The file is never
+ * renamed or deleted while mapped, which Windows does not allow. The compacted records are first written, without a
+ * mapping, to a side file that is complete once its magic number is written; if the process dies while the log is
+ * overwritten, the next start finds the side file and applies it again.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+final class RevocationLog {
+
+    private static final int MAGIC = 0x52564B31;  // "RVK1"
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final byte[] ZEROS = new byte[4096];
+
+    private final Path file;
+    private final Path compaction;
+    private final long initialSize;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    /**
+     * Open or create the log and hand every record in it to the consumer, oldest first.
+     *
+     * @param file        the log file
+     * @param initialSize mapped size of a new file
+     * @param replayed    receives the jti and {@code exp} of each record
+     * @throws IOException if the file cannot be mapped or is not a revocation log
+     */
+    RevocationLog(Path file, long initialSize, ObjLongConsumer<String> replayed) throws IOException {
+        this.file = file;
+        this.compaction = file.resolveSibling(file.getFileName() + ".compact");
+        this.initialSize = Math.max(HEADER_SIZE + RECORD_HEADER_SIZE, Math.min(Integer.MAX_VALUE, initialSize));
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        boolean created = !Files.exists(file) || Files.size(file) == 0;
+        this.buffer = map(file, created ? this.initialSize : Files.size(file));
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+        } else if (buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a revocation log");
+        }
+        recoverCompaction();
+        this.position = replay(replayed);
+    }
+
+    /**
+     * Append a revocation and force it to disk.
+     *
+     * @param jti       the token ID
+     * @param expiresAt the token's {@code exp}, in epoch seconds
+     * @return false if the mapping is full and the log needs a {@link #rewrite}
+     */
+    boolean append(String jti, long expiresAt) {
+        byte[] id = jti.getBytes(StandardCharsets.UTF_8);
+        int recordSize = RECORD_HEADER_SIZE + id.length;
+        if (position + recordSize > buffer.capacity()) {
+            return false;
+        }
+        buffer.putLong(position + Integer.BYTES, expiresAt);
+        buffer.put(position + RECORD_HEADER_SIZE, id);
+        buffer.putInt(position, id.length);
+        buffer.force(position, recordSize);
+        position += recordSize;
+        return true;
+    }
+
+    /**
+     * Replace the log's records with the given revocations, growing the mapping to room for at least as many again.
+     *
+     * @param live revocations to keep, jti to {@code exp}
+     * @throws IOException if the log cannot be written
+     */
+    void rewrite(Map<String, Long> live) throws IOException {
+        long needed = HEADER_SIZE;
+        for (String jti : live.keySet()) {
+            needed += RECORD_HEADER_SIZE + jti.getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (2 * needed > Integer.MAX_VALUE) {
+            throw new IOException("Revocation log cannot hold " + live.size() + " entries");
+        }
+        ByteBuffer records = ByteBuffer.allocate((int) needed);
+        records.position(HEADER_SIZE);
+        for (Map.Entry<String, Long> entry : live.entrySet()) {
+            byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            records.putInt(id.length).putLong(entry.getValue()).put(id);
+        }
+        writeCompaction(records);
+        if (2 * needed > buffer.capacity()) {
+            // Growing remaps the same file; the smaller mapping is released when it is garbage collected
+            buffer = map(file, Math.max(initialSize, 2 * needed));
+        }
+        install(records, position);
+        Files.delete(compaction);
+    }
+
+    /**
+     * Bytes used by the header and the records.
+     */
+    int usedBytes() {
+        return position;
+    }
+
+    /**
+     * Size of the current mapping.
+     */
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    private int replay(ObjLongConsumer<String> replayed) {
+        int offset = HEADER_SIZE;
+        while (offset + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            long expiresAt = buffer.getLong(offset + Integer.BYTES);
+            byte[] id = new byte[length];
+            buffer.get(offset + RECORD_HEADER_SIZE, id);
+            replayed.accept(new String(id, StandardCharsets.UTF_8), expiresAt);
+            offset += RECORD_HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Write the compacted records to the side file and force it, magic number last, so it is either complete or
+     * recognisably incomplete.
+     */
+    private void writeCompaction(ByteBuffer records) throws IOException {
+        try (FileChannel channel = FileChannel.open(compaction, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, records.duplicate().position(HEADER_SIZE), HEADER_SIZE);
+            channel.force(false);
+            write(channel, ByteBuffer.allocate(Integer.BYTES).putInt(0, MAGIC), 0);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Overwrite the mapped log with compacted records and clear the old records after them, so none is replayed or
+     * follows a later append.
+     *
+     * @param records header space followed by the compacted records
+     * @param usedEnd end of the records currently in the log
+     */
+    private void install(ByteBuffer records, int usedEnd) {
+        int end = records.capacity();
+        buffer.put(HEADER_SIZE, records, HEADER_SIZE, end - HEADER_SIZE);
+        for (int offset = end; offset < usedEnd; offset += ZEROS.length) {
+            buffer.put(offset, ZEROS, 0, Math.min(ZEROS.length, usedEnd - offset));
+        }
+        buffer.force();
+        position = end;
+    }
+
+    /**
+     * Finish a compaction that was interrupted after its side file was complete; discard an incomplete side file,
+     * in which case the log was not yet touched.
+     */
+    private void recoverCompaction() throws IOException {
+        if (!Files.exists(compaction)) {
+            return;
+        }
+        byte[] compacted = Files.readAllBytes(compaction);
+        if (compacted.length >= HEADER_SIZE && ByteBuffer.wrap(compacted).getInt(0) == MAGIC) {
+            if (compacted.length > buffer.capacity()) {
+                buffer = map(file, compacted.length);
+            }
+            // How far the old records reached is unknown, so clear the whole mapping after the compacted ones
+            install(ByteBuffer.wrap(compacted), buffer.capacity());
+        }
+        Files.delete(compaction);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer source, long position) throws IOException {
+        while (source.hasRemaining()) {
+            position += channel.write(source, position);
+        }
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.shdev.securityservice.revocation;
+
+import com.shdev.securityservice.jwt.JwtProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Revoked token IDs ({@code jti}), checked on every token validation.
+ * <p>
+ * Almost every validated token is not revoked, so {@link #isRevoked} first asks a {@link BloomFilter}, which answers
+ * "certainly not" without touching the exact set for all but {@code false-positive-rate} of them. Only filter hits
+ * are looked up in the exact set of revocations. Revocations are appended to a memory-mapped {@link RevocationLog}
+ * and replayed on startup. A background thread drops revocations once their token has expired, since an expired token
+ * is rejected anyway, then rebuilds the filter and compacts the log.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class RevocationStore implements MeterBinder {
+
+    private final boolean enabled;
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final long purgeIntervalNanos;
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+    private final RevocationLog revocationLog;
+    private final Thread purgeThread;
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+    private volatile boolean running = true;
+
+    public RevocationStore(JwtProperties jwtProperties) {
+        JwtProperties.Revocation config = jwtProperties.getRevocation();
+        this.enabled = config.isEnabled();
+        this.expectedEntries = Math.max(1, config.getExpectedEntries());
+        this.falsePositiveRate = config.getFalsePositiveRate();
+        this.purgeIntervalNanos = config.getPurgeInterval().toNanos();
+        if (!enabled) {
+            this.revocationLog = null;
+            this.purgeThread = null;
+            log.info("Token revocation disabled");
+            return;
+        }
+        if (!StringUtils.hasText(config.getFile())) {
+            throw new IllegalStateException("security.jwt.revocation.file must be set when revocation is enabled");
+        }
+        try {
+            this.revocationLog = new RevocationLog(Path.of(config.getFile()), config.getInitialLogSize().toBytes(),
+                    (jti, expiresAt) -> revoked.merge(jti, expiresAt, Math::max));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open revocation log " + config.getFile(), e);
+        }
+        int replayed = revoked.size();
+        rebuildFilter();
+        purgeExpired(Instant.now().getEpochSecond());
+        this.purgeThread = Thread.ofPlatform().name("revocation-purger").daemon().start(this::purgeLoop);
+        log.info("Token revocation log {}: {} revocations, {} still live", config.getFile(), replayed, revoked.size());
+    }
+
+    /**
+     * Whether a token ID has been revoked. Lock-free; costs one hash of the ID for tokens that are not revoked.
+     *
+     * @param jti the token's {@code jti}, may be null
+     * @return true if the token was revoked and has not yet expired
+     */
+    public boolean isRevoked(String jti) {
+        if (!enabled || jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        filterHits.increment();
+        if (revoked.containsKey(jti)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revoke a token and persist the revocation before returning. Revoking a token twice has no further effect.
+     *
+     * @param jti       the token's {@code jti}
+     * @param expiresAt the token's {@code exp} in epoch seconds; the revocation is kept until then
+     * @throws IllegalStateException if revocation is disabled
+     * @throws UncheckedIOException  if the revocation cannot be written; it still applies until a restart
+     */
+    public synchronized void revoke(String jti, long expiresAt) {
+        if (!enabled) {
+            throw new IllegalStateException("Token revocation is disabled");
+        }
+        if (revoked.putIfAbsent(jti, expiresAt) != null) {
+            return;
+        }
+        if (revoked.size() > filterCapacity) {
+            rebuildFilter();
+        } else {
+            filter.add(jti);
+        }
+        try {
+            if (!revocationLog.append(jti, expiresAt)) {
+                revocationLog.rewrite(new HashMap<>(revoked));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write revocation of " + jti, e);
+        }
+    }
+
+    /**
+     * Number of live revocations.
+     */
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Whether tokens can be revoked at all.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(purgeThread);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("security.revocation.entries", revoked, Map::size)
+                .description("Revoked tokens that have not yet expired")
+                .register(registry);
+        FunctionCounter.builder("security.revocation.filter.hits", filterHits, LongAdder::sum)
+                .description("Validated tokens that passed the revocation Bloom filter and needed an exact lookup")
+                .register(registry);
+        FunctionCounter.builder("security.revocation.filter.false.positives", falsePositives, LongAdder::sum)
+                .description("Exact lookups for tokens that were not revoked")
+                .register(registry);
+    }
+
+    /**
+     * Drop revocations of tokens that expired before the given time, then rebuild the filter and compact the log.
+     *
+     * @param nowEpochSeconds current time in epoch seconds
+     * @return number of revocations dropped
+     */
+    synchronized int purgeExpired(long nowEpochSeconds) {
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt < nowEpochSeconds);
+        int purged = before - revoked.size();
+        if (purged == 0) {
+            return purged;
+        }
+        rebuildFilter();
+        try {
+            revocationLog.rewrite(new HashMap<>(revoked));
+        } catch (IOException e) {
+            // The purged revocations come back on restart and are dropped again
+            log.error("Failed to compact revocation log", e);
+        }
+        log.debug("Purged {} revocations of expired tokens, {} left", purged, revoked.size());
+        return purged;
+    }
+
+    long falsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    int logBytes() {
+        return revocationLog.usedBytes();
+    }
+
+    /**
+     * Build a filter sized for the current revocations, with room to grow, and swap it in.
+     */
+    private void rebuildFilter() {
+        filterCapacity = Math.max(expectedEntries, 2 * revoked.size());
+        BloomFilter rebuilt = new BloomFilter(filterCapacity, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    private void purgeLoop() {
+        while (running) {
+            LockSupport.parkNanos(purgeIntervalNanos);
+            if (!running) {
+                break;
+            }
+            try {
+                purgeExpired(Instant.now().getEpochSecond());
+            } catch (RuntimeException e) {
+                log.error("Failed to purge expired revocations", e);
+            }
+        }
+    }
+}
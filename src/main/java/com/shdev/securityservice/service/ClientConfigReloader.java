@@ -0,0 +1,152 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reloads the client list from {@code oauth2.clients-file.path} when the file changes and refreshes the
+ * {@link ClientRegistry}, which notifies the credential caches, rate limiter and metrics.
+ * <p>
+ * A background thread compares the file's size and modification time every {@code check-interval}, so edits,
+ * replacements and symlink swaps (as done for mounted config maps) are all seen. The file has the same layout as
+ * {@code application.yml} ({@code oauth2.clients: [...]}); a file that cannot be read or bound is logged and the
+ * current clients stay registered. For the file to apply from the first request it must also be listed in
+ * {@code spring.config.import}; otherwise its clients only apply from the first check.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class ClientConfigReloader {
+
+    private final OAuth2ClientProperties clientProperties;
+    private final ClientRegistry clientRegistry;
+    private final Path file;
+    private final long checkIntervalNanos;
+    private final Thread watchThread;
+    private FileState lastState;
+    private volatile boolean running = true;
+
+    public ClientConfigReloader(OAuth2ClientProperties clientProperties, ClientRegistry clientRegistry) {
+        this.clientProperties = clientProperties;
+        this.clientRegistry = clientRegistry;
+        OAuth2ClientProperties.ClientsFile config = clientProperties.getClientsFile();
+        this.checkIntervalNanos = config.getCheckInterval().toNanos();
+        if (!StringUtils.hasText(config.getPath())) {
+            this.file = null;
+            this.watchThread = null;
+            log.debug("No oauth2.clients-file.path configured, clients are not reloaded");
+            return;
+        }
+        this.file = Path.of(config.getPath()).toAbsolutePath();
+        this.lastState = FileState.of(file);
+        List<OAuth2ClientProperties.ClientConfig> fileClients = loadOrNull();
+        if (fileClients == null) {
+            log.warn("Clients file {} cannot be read, keeping the configured clients until it can", file);
+        } else if (!clientProperties.getClients().equals(fileClients)) {
+            log.warn("Clients file {} is not in spring.config.import, its clients apply from the first check", file);
+            this.lastState = null;
+        }
+        this.watchThread = Thread.ofPlatform().name("client-config-reloader").daemon().start(this::watchLoop);
+        log.info("Watching clients file {} every {}", file, config.getCheckInterval());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (watchThread != null) {
+            LockSupport.unpark(watchThread);
+        }
+    }
+
+    /**
+     * Reload the clients if the file changed since the last check.
+     *
+     * @return true if a new client list was swapped in
+     */
+    synchronized boolean reloadIfChanged() {
+        FileState state = FileState.of(file);
+        if (state.equals(lastState)) {
+            return false;
+        }
+        lastState = state;
+        List<OAuth2ClientProperties.ClientConfig> clients;
+        try {
+            clients = load();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to read clients file {}, keeping {} registered clients", file, clientRegistry.size(), e);
+            return false;
+        }
+        if (clients == null) {
+            log.error("Clients file {} has no oauth2.clients list, keeping {} registered clients", file,
+                    clientRegistry.size());
+            return false;
+        }
+        clientProperties.setClients(clients);
+        clientRegistry.refresh();
+        log.info("Reloaded {} client configurations from {}", clients.size(), file);
+        return true;
+    }
+
+    private List<OAuth2ClientProperties.ClientConfig> load() throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load(file.toString(), new FileSystemResource(file));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("oauth2.clients", Bindable.listOf(OAuth2ClientProperties.ClientConfig.class))
+                .orElse(null);
+    }
+
+    private List<OAuth2ClientProperties.ClientConfig> loadOrNull() {
+        try {
+            return load();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void watchLoop() {
+        while (running) {
+            LockSupport.parkNanos(checkIntervalNanos);
+            if (!running) {
+                break;
+            }
+            try {
+                reloadIfChanged();
+            } catch (RuntimeException e) {
+                log.error("Failed to reload clients file {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Size and modification time of the clients file; a missing file has neither.
+     */
+    private record FileState(long size, long modifiedMillis) {
+
+        static FileState of(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return new FileState(-1, -1);
+            }
+        }
+    }
+}
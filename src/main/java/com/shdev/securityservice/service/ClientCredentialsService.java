@@ -1,25 +1,62 @@
 package com.shdev.securityservice.service;
 
-import com.shdev.securityservice.config.OAuth2ClientProperties;
-import lombok.RequiredArgsConstructor;
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.exception.RateLimitExceededException;
+import com.shdev.securityservice.jfr.ClientAuthenticationEvent;
+import com.shdev.securityservice.metrics.TokenMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Service for validating OAuth2 client credentials.
+ * <p>
+ * Unknown client IDs are checked against a dummy hash, so a failure costs the same BCrypt time whether or not the
+ * client exists. Repeated failures are short-circuited by {@link FailedCredentialCache}.
+ * </p>
+ * <p>
+ * A client ID in back-off is answered with {@link RateLimitExceededException} (429 with {@code Retry-After}) rather
+ * than {@code invalid_client}, so its owner can tell a back-off from a revoked secret. The back-off counts failures
+ * per client ID from any address, which is what stops distributed guessing but also means anyone who knows a client
+ * ID can keep it backed off; only a secret still in {@link CredentialVerificationCache} gets through. The
+ * per-address rate limit of {@link ClientRateLimiter} bounds how fast a single caller can do that.
+ * </p>
  *
  * @author Shailesh Halor
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ClientCredentialsService {
 
-    private final OAuth2ClientProperties clientProperties;
+    private static final String ERROR_INVALID_CLIENT = "invalid_client";
+    private static final String BACKOFF_MESSAGE =
+            "Too many failed authentications for this client, retry later";
+
+    private final ClientRegistry clientRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final CredentialVerificationCache credentialCache;
+    private final FailedCredentialCache failedCredentialCache;
+    private final CryptoPools cryptoPools;
+    private final TokenMetrics metrics;
+    private final String dummySecretHash;
+
+    public ClientCredentialsService(ClientRegistry clientRegistry, PasswordEncoder passwordEncoder,
+                                    CredentialVerificationCache credentialCache,
+                                    FailedCredentialCache failedCredentialCache, CryptoPools cryptoPools,
+                                    TokenMetrics metrics) {
+        this.clientRegistry = clientRegistry;
+        this.passwordEncoder = passwordEncoder;
+        this.credentialCache = credentialCache;
+        this.failedCredentialCache = failedCredentialCache;
+        this.cryptoPools = cryptoPools;
+        this.metrics = metrics;
+        // Same encoder and cost as configured secrets, for a secret nobody knows
+        this.dummySecretHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
 
     /**
      * Validate client credentials and return client configuration if valid.
@@ -27,29 +64,113 @@ public class ClientCredentialsService {
      * @param clientId     the client identifier
      * @param clientSecret the client secret
      * @param domain       the identity domain
-     * @return Optional containing client config if valid, empty otherwise
+     * @return Optional containing the registered client if valid, empty otherwise
+     * @throws RateLimitExceededException if the client ID is backed off after repeated failures
      */
-    public Optional<OAuth2ClientProperties.ClientConfig> validateCredentials(
-            String clientId, String clientSecret, String domain) {
-
+    public Optional<RegisteredClient> validateCredentials(String clientId, String clientSecret, String domain) {
         log.debug("Validating credentials for client: {}, domain: {}", clientId, domain);
 
-        return clientProperties.getClients().stream()
-                .filter(client -> client.getClientId().equals(clientId))
-                .filter(client -> client.getIdentityDomain().equals(domain))
-                .filter(client -> passwordEncoder.matches(clientSecret, client.getClientSecret()))
-                .findFirst();
+        ClientAuthenticationEvent event = new ClientAuthenticationEvent();
+        event.begin();
+        try {
+            return authenticate(clientId, clientSecret, domain, event);
+        } finally {
+            if (event.shouldCommit()) {
+                event.clientId = clientId;
+                event.domain = domain;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Run the credential checks, noting on the JFR event which check decided.
+     */
+    private Optional<RegisteredClient> authenticate(String clientId, String clientSecret, String domain,
+                                                    ClientAuthenticationEvent event) {
+        if (clientId == null || domain == null || clientSecret == null) {
+            event.result = "missing_credentials";
+            return Optional.empty();
+        }
+
+        RegisteredClient client = clientRegistry.find(domain, clientId);
+        // A recently verified secret is accepted even during a back-off, so guessing secrets for a client ID
+        // cannot lock out the client that is actively using the real one
+        if (client != null && credentialCache.isVerified(client, clientSecret)) {
+            log.debug("Using cached credential verification for client: {}", clientId);
+            event.result = "authenticated";
+            event.cacheHit = true;
+            return Optional.of(client);
+        }
+
+        Duration backoff = failedCredentialCache.backoffRemaining(clientId, domain);
+        if (backoff.isPositive()) {
+            log.debug("Rejecting client {} during back-off after repeated failures", clientId);
+            event.result = "backoff";
+            throw new RateLimitExceededException(BACKOFF_MESSAGE, backoff.toNanos());
+        }
+        if (failedCredentialCache.isKnownFailure(clientId, domain, clientSecret)) {
+            log.debug("Rejecting previously failed credentials for client: {}", clientId);
+            event.result = "known_failure";
+            return Optional.empty();
+        }
+
+        long hashStart = System.nanoTime();
+        boolean matches = secretMatches(client, clientSecret, domain);
+        event.bcryptTime = System.nanoTime() - hashStart;
+        if (!matches) {
+            failedCredentialCache.recordFailure(clientId, domain, clientSecret);
+            event.result = "rejected";
+            return Optional.empty();
+        }
+        failedCredentialCache.recordSuccess(clientId, domain);
+        event.result = "authenticated";
+        return Optional.of(client);
     }
 
     /**
      * Check if a scope is allowed for a client.
      *
-     * @param clientConfig the client configuration
-     * @param scope        the requested scope
+     * @param client the registered client
+     * @param scope  the requested scope
      * @return true if scope is allowed, false otherwise
      */
-    public boolean isScopeAllowed(OAuth2ClientProperties.ClientConfig clientConfig, String scope) {
-        return clientConfig.getAllowedScopes().contains(scope);
+    public boolean isScopeAllowed(RegisteredClient client, String scope) {
+        return scope != null && client.allowedScopes().contains(scope);
     }
-}
 
+    /**
+     * Check the secret against the client's BCrypt hash, or against the dummy hash for unknown clients.
+     *
+     * @param client       the registered client, or null if the client ID is unknown
+     * @param clientSecret the presented client secret
+     * @param domain       the identity domain
+     * @return true if the client exists and the secret matches
+     */
+    private boolean secretMatches(RegisteredClient client, String clientSecret, String domain) {
+        if (client == null) {
+            cryptoPools.hashing().call(() -> timedMatches(clientSecret, dummySecretHash, domain));
+            return false;
+        }
+
+        boolean matches = cryptoPools.hashing().call(() -> timedMatches(clientSecret, client.clientSecretHash(), domain));
+        if (matches) {
+            credentialCache.recordVerified(client, clientSecret);
+        }
+        return matches;
+    }
+
+    /**
+     * BCrypt check, timed on the hashing pool so the time spent waiting for a pool thread is not included.
+     */
+    private boolean timedMatches(String clientSecret, String secretHash, String domain) {
+        long start = System.nanoTime();
+        boolean matches = passwordEncoder.matches(clientSecret, secretHash);
+        if (matches) {
+            metrics.success(TokenMetrics.Stage.BCRYPT, domain, start);
+        } else {
+            metrics.failure(TokenMetrics.Stage.BCRYPT, domain, ERROR_INVALID_CLIENT, start);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,164 @@
+package com.shdev.securityservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket rate limiting of token requests per client and per remote address, applied before the client
+ * secret is checked so a misbehaving caller cannot spend CPU on BCrypt and signing.
+ * <p>
+ * Client IDs are only unique within an identity domain, so client buckets and per-client limits are keyed by
+ * (domain, clientId). Buckets live in two Caffeine caches bounded by {@code oauth2.rate-limit.maximum-keys}. An entry
+ * is only dropped after it has been idle long enough to refill completely, so eviction by idleness never loosens a
+ * limit; under a flood of distinct keys the size bound evicts the least recently used buckets instead. Checking an
+ * existing bucket takes one cache lookup and one CAS; the only allocation is the client bucket's lookup key, and a
+ * rejection adds just its stackless exception.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class ClientRateLimiter implements MeterBinder {
+
+    private static final String CLIENT_LIMIT_MESSAGE = "Too many requests for this client, retry later";
+    private static final String ADDRESS_LIMIT_MESSAGE = "Too many requests for this address, retry later";
+
+    private final boolean enabled;
+    private final OAuth2ClientProperties clientProperties;
+    private final OAuth2ClientProperties.Limit defaultClientLimit;
+    private final OAuth2ClientProperties.Limit addressLimit;
+    private final Cache<ClientKey, TokenBucket> clientBuckets;
+    private final Cache<String, TokenBucket> addressBuckets;
+    private volatile Map<ClientKey, OAuth2ClientProperties.Limit> clientLimits;
+
+    public ClientRateLimiter(OAuth2ClientProperties clientProperties) {
+        OAuth2ClientProperties.RateLimit config = clientProperties.getRateLimit();
+        this.enabled = config.isEnabled();
+        this.clientProperties = clientProperties;
+        this.defaultClientLimit = config.getPerClient();
+        this.addressLimit = config.getPerAddress();
+        this.clientLimits = resolveClientLimits(clientProperties);
+        this.clientBuckets = newBucketCache(config.getMaximumKeys());
+        this.addressBuckets = newBucketCache(config.getMaximumKeys());
+        log.info("Rate limiting enabled: {}, per client: {}, per address: {}", enabled, defaultClientLimit, addressLimit);
+    }
+
+    /**
+     * Take one request from the remote address's and the client's bucket.
+     *
+     * @param domain        the identity domain the client ID is claimed in
+     * @param clientId      the client ID claimed in the Authorization header, not yet authenticated; null for
+     *                      unauthenticated endpoints, which are limited per address only
+     * @param remoteAddress the caller's address
+     * @throws RateLimitExceededException if either bucket is empty
+     */
+    public void acquire(String domain, String clientId, String remoteAddress) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (remoteAddress != null) {
+            check(addressBuckets, remoteAddress, addressLimit, now, ADDRESS_LIMIT_MESSAGE);
+        }
+        if (clientId != null) {
+            ClientKey key = new ClientKey(domain, clientId);
+            check(clientBuckets, key, clientLimits.getOrDefault(key, defaultClientLimit), now, CLIENT_LIMIT_MESSAGE);
+        }
+    }
+
+    /**
+     * Pick up changed per-client limits when the client configuration is reloaded.
+     *
+     * @param event registry refresh event
+     */
+    @EventListener
+    public void onClientRegistryRefreshed(ClientRegistryRefreshedEvent event) {
+        clientLimits = resolveClientLimits(clientProperties);
+        clientBuckets.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, clientBuckets, "oauth2.rate-limit.clients");
+        CaffeineCacheMetrics.monitor(registry, addressBuckets, "oauth2.rate-limit.addresses");
+    }
+
+    private static <K> void check(Cache<K, TokenBucket> buckets, K key, OAuth2ClientProperties.Limit limit,
+                                  long now, String message) {
+        TokenBucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            TokenBucket created = new TokenBucket(limit.getRequestsPerSecond(), limit.getBurst(), now);
+            bucket = buckets.asMap().putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            log.debug("Rate limit exceeded for {}", key);
+            throw new RateLimitExceededException(message, waitNanos);
+        }
+    }
+
+    private static Map<ClientKey, OAuth2ClientProperties.Limit> resolveClientLimits(OAuth2ClientProperties clientProperties) {
+        Map<ClientKey, OAuth2ClientProperties.Limit> limits = new HashMap<>();
+        for (OAuth2ClientProperties.ClientConfig client : clientProperties.getClients()) {
+            if (StringUtils.hasText(client.getClientId()) && client.getRateLimit() != null) {
+                // The first entry wins for duplicates within a domain, as in ClientRegistry
+                limits.putIfAbsent(new ClientKey(client.getIdentityDomain(), client.getClientId()),
+                        client.getRateLimit());
+            }
+        }
+        return Map.copyOf(limits);
+    }
+
+    private static <K> Cache<K, TokenBucket> newBucketCache(long maximumKeys) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfter(new UntilRefilled<K>())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Client bucket key; the domain is part of it because client IDs are only unique within a domain.
+     */
+    private record ClientKey(String domain, String clientId) {
+    }
+
+    /**
+     * Expires a bucket once it has been idle long enough to be full again.
+     */
+    private static final class UntilRefilled<K> implements Expiry<K, TokenBucket> {
+
+        @Override
+        public long expireAfterCreate(K key, TokenBucket bucket, long currentTime) {
+            return bucket.refillNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(K key, TokenBucket bucket, long currentTime, long currentDuration) {
+            return bucket.refillNanos();
+        }
+
+        @Override
+        public long expireAfterRead(K key, TokenBucket bucket, long currentTime, long currentDuration) {
+            return bucket.refillNanos();
+        }
+    }
+}
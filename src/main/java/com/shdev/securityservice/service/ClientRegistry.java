@@ -0,0 +1,119 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of configured OAuth2 clients keyed by identity domain and client ID.
+ * <p>
+ * The index is built from {@link OAuth2ClientProperties} at startup and replaced atomically by {@link #refresh()},
+ * which {@link ClientConfigReloader} calls when the clients file changes, so lookups are constant-time and lock-free
+ * regardless of the number of configured clients.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class ClientRegistry {
+
+    /**
+     * Role assigned to clients without configured roles.
+     */
+    public static final String DEFAULT_ROLE = "USER";
+
+    private final OAuth2ClientProperties clientProperties;
+    private final ApplicationEventPublisher eventPublisher;
+    private volatile Map<String, Map<String, RegisteredClient>> clientsByDomain;
+
+    public ClientRegistry(OAuth2ClientProperties clientProperties, ApplicationEventPublisher eventPublisher) {
+        this.clientProperties = clientProperties;
+        this.eventPublisher = eventPublisher;
+        this.clientsByDomain = buildIndex(clientProperties.getClients());
+    }
+
+    /**
+     * Look up a client by identity domain and client ID.
+     *
+     * @param domain   the identity domain
+     * @param clientId the client identifier
+     * @return the registered client, or null if no such client is configured
+     */
+    public RegisteredClient find(String domain, String clientId) {
+        if (domain == null || clientId == null) {
+            return null;
+        }
+        Map<String, RegisteredClient> clients = clientsByDomain.get(domain);
+        return clients != null ? clients.get(clientId) : null;
+    }
+
+    /**
+     * Number of registered clients.
+     *
+     * @return client count
+     */
+    public int size() {
+        return clientsByDomain.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Rebuild the index from the current {@link OAuth2ClientProperties} and swap it in atomically.
+     */
+    public void refresh() {
+        Map<String, Map<String, RegisteredClient>> index = buildIndex(clientProperties.getClients());
+        clientsByDomain = index;
+        eventPublisher.publishEvent(new ClientRegistryRefreshedEvent(size()));
+    }
+
+    private static Map<String, Map<String, RegisteredClient>> buildIndex(List<OAuth2ClientProperties.ClientConfig> clients) {
+        Map<String, Map<String, RegisteredClient>> index = new HashMap<>();
+        int count = 0;
+
+        for (OAuth2ClientProperties.ClientConfig client : clients) {
+            if (!StringUtils.hasText(client.getClientId()) || !StringUtils.hasText(client.getIdentityDomain())) {
+                log.warn("Ignoring client configuration without client-id or identity-domain: {}", client.getClientId());
+                continue;
+            }
+
+            Map<String, RegisteredClient> domainClients = index.computeIfAbsent(client.getIdentityDomain(), d -> new HashMap<>());
+            if (domainClients.containsKey(client.getClientId())) {
+                log.warn("Duplicate client configuration for client: {} in domain: {}, keeping the first entry",
+                        client.getClientId(), client.getIdentityDomain());
+                continue;
+            }
+
+            domainClients.put(client.getClientId(), register(client));
+            count++;
+        }
+
+        Map<String, Map<String, RegisteredClient>> immutable = new HashMap<>();
+        index.forEach((domain, domainClients) -> immutable.put(domain, Map.copyOf(domainClients)));
+        log.info("Client registry built with {} clients in {} domains", count, immutable.size());
+        return Map.copyOf(immutable);
+    }
+
+    private static RegisteredClient register(OAuth2ClientProperties.ClientConfig client) {
+        List<String> roles = client.getRoles();
+        if (roles == null || roles.isEmpty()) {
+            roles = List.of(DEFAULT_ROLE);
+            log.debug("No roles configured for client {}, using default: {}", client.getClientId(), DEFAULT_ROLE);
+        }
+
+        return new RegisteredClient(
+                client.getClientId(),
+                client.getIdentityDomain(),
+                client.getClientSecret(),
+                client.getAllowedScopes() != null ? Set.copyOf(client.getAllowedScopes()) : Set.of(),
+                List.copyOf(roles),
+                client.isReuseTokens(),
+                client.isReferenceTokens());
+    }
+}
@@ -0,0 +1,10 @@
+package com.shdev.securityservice.service;
+
+/**
+ * Event published after {@link ClientRegistry} swaps in a newly built client index.
+ *
+ * @param clientCount number of clients in the new index
+ * @author Shailesh Halor
+ */
+public record ClientRegistryRefreshedEvent(int clientCount) {
+}
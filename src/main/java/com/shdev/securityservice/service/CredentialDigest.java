@@ -0,0 +1,54 @@
+package com.shdev.securityservice.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Keyed HMAC-SHA256 of (clientId, domain, secret) under a random key generated per instance, so credential caches
+ * can recognise a secret without ever keeping it or an offline-attackable hash of it.
+ *
+ * @author Shailesh Halor
+ */
+final class CredentialDigest {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    CredentialDigest() {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+    /**
+     * Digest a presented credential.
+     *
+     * @param clientId     the client identifier
+     * @param domain       the identity domain
+     * @param clientSecret the presented client secret
+     * @return 32-byte HMAC
+     */
+    byte[] digest(String clientId, String domain, String clientSecret) {
+        Mac hmac = mac.get();
+        hmac.update(clientId.getBytes(StandardCharsets.UTF_8));
+        hmac.update((byte) 0);
+        hmac.update(domain.getBytes(StandardCharsets.UTF_8));
+        hmac.update((byte) 0);
+        return hmac.doFinal(clientSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac hmac = Mac.getInstance(HMAC_ALGORITHM);
+            hmac.init(key);
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to initialise " + HMAC_ALGORITHM, e);
+        }
+    }
+}
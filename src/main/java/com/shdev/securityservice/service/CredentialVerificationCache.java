@@ -0,0 +1,133 @@
+package com.shdev.securityservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+
+/**
+ * Remembers successful client secret matches so BCrypt runs once per client instead of once per request.
+ * <p>
+ * A match is stored as an HMAC-SHA256 of (clientId, domain, secret) under a random key generated per process;
+ * the plaintext secret is never kept. Each entry also records the configured BCrypt hash it was verified against,
+ * so changing a client's secret in {@link OAuth2ClientProperties} invalidates the entry. All entries are dropped
+ * whenever {@link ClientRegistry} is refreshed.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class CredentialVerificationCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "oauth2.verified-credentials";
+
+    private final boolean enabled;
+    private final Cache<String, VerifiedCredential> cache;
+    private final CredentialDigest credentialDigest = new CredentialDigest();
+
+    public CredentialVerificationCache(OAuth2ClientProperties clientProperties) {
+        OAuth2ClientProperties.CredentialCache config = clientProperties.getCredentialCache();
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+
+        log.info("Credential verification cache enabled: {}, ttl: {}", enabled, config.getTtl());
+    }
+
+    /**
+     * Check whether the secret was recently verified for the client.
+     *
+     * @param client       the registered client
+     * @param clientSecret the presented client secret
+     * @return true if a previous BCrypt match for the same secret is still valid
+     */
+    public boolean isVerified(RegisteredClient client, String clientSecret) {
+        if (!enabled) {
+            return false;
+        }
+
+        String key = cacheKey(client.clientId(), client.identityDomain());
+        VerifiedCredential entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return false;
+        }
+        if (!entry.clientSecretHash().equals(client.clientSecretHash())) {
+            log.debug("Configured secret changed for client: {}, discarding cached verification", client.clientId());
+            cache.invalidate(key);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.secretMac(), digest(client, clientSecret));
+    }
+
+    /**
+     * Record a successful BCrypt match.
+     *
+     * @param client       the registered client
+     * @param clientSecret the verified client secret
+     */
+    public void recordVerified(RegisteredClient client, String clientSecret) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(cacheKey(client.clientId(), client.identityDomain()),
+                new VerifiedCredential(digest(client, clientSecret), client.clientSecretHash()));
+    }
+
+    /**
+     * Discard the cached verification of one client.
+     *
+     * @param clientId the client identifier
+     * @param domain   the identity domain
+     */
+    public void invalidate(String clientId, String domain) {
+        cache.invalidate(cacheKey(clientId, domain));
+    }
+
+    /**
+     * Discard all cached verifications.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Drop cached verifications when the client configuration is reloaded.
+     *
+     * @param event registry refresh event
+     */
+    @EventListener
+    public void onClientRegistryRefreshed(ClientRegistryRefreshedEvent event) {
+        log.info("Client registry refreshed with {} clients, clearing credential verification cache", event.clientCount());
+        invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    private byte[] digest(RegisteredClient client, String clientSecret) {
+        return credentialDigest.digest(client.clientId(), client.identityDomain(), clientSecret);
+    }
+
+    private static String cacheKey(String clientId, String domain) {
+        return domain + '\u0000' + clientId;
+    }
+
+    /**
+     * Keyed digest of a verified secret and the BCrypt hash it was checked against.
+     */
+    private record VerifiedCredential(byte[] secretMac, String clientSecretHash) {
+    }
+}
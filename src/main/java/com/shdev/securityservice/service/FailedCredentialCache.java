@@ -0,0 +1,181 @@
+package com.shdev.securityservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Remembers failed client authentications so repeated bad secrets do not cost a BCrypt check each time.
+ * <p>
+ * Two bounded caches are kept:
+ * <ul>
+ *   <li>failed (clientId, domain, secret) tuples, stored as a keyed HMAC like in {@link CredentialVerificationCache},
+ *       so the same wrong secret is rejected without hashing it again;</li>
+ *   <li>consecutive failures per (clientId, domain); from {@code backoff-threshold} failures on, further attempts
+ *       are rejected outright for a back-off that doubles with every failure up to {@code max-backoff}.</li>
+ * </ul>
+ * A successful authentication clears the client's failure count, and everything is dropped when
+ * {@link ClientRegistry} is refreshed, since a changed secret may turn a failed tuple into a valid one.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class FailedCredentialCache implements MeterBinder {
+
+    private static final String FAILURES_CACHE_NAME = "oauth2.failed-credentials";
+    private static final String BACKOFF_CACHE_NAME = "oauth2.failed-clients";
+
+    private final boolean enabled;
+    private final int backoffThreshold;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Cache<String, Boolean> failedCredentials;
+    private final Cache<String, FailureCount> failuresByClient;
+    private final CredentialDigest credentialDigest = new CredentialDigest();
+
+    public FailedCredentialCache(OAuth2ClientProperties clientProperties) {
+        OAuth2ClientProperties.FailedAuthentication config = clientProperties.getFailedAuthentication();
+        this.enabled = config.isEnabled();
+        this.backoffThreshold = Math.max(1, config.getBackoffThreshold());
+        this.initialBackoffNanos = config.getInitialBackoff().toNanos();
+        this.maxBackoffNanos = config.getMaxBackoff().toNanos();
+        this.failedCredentials = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .recordStats()
+                .build();
+        // A client's failure count is forgotten once it has been quiet for a full back-off period
+        this.failuresByClient = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getMaxBackoff().plus(config.getTtl()))
+                .recordStats()
+                .build();
+        log.info("Failed authentication cache enabled: {}, back-off after {} failures, up to {}",
+                enabled, backoffThreshold, config.getMaxBackoff());
+    }
+
+    /**
+     * Check whether this exact secret already failed for the client.
+     *
+     * @param clientId     the client identifier
+     * @param domain       the identity domain
+     * @param clientSecret the presented client secret
+     * @return true if the tuple is a known failure
+     */
+    public boolean isKnownFailure(String clientId, String domain, String clientSecret) {
+        return enabled && failedCredentials.getIfPresent(key(clientId, domain, clientSecret)) != null;
+    }
+
+    /**
+     * Remaining back-off of a client after repeated failures.
+     *
+     * @param clientId the client identifier
+     * @param domain   the identity domain
+     * @return remaining back-off, zero if attempts are currently allowed
+     */
+    public Duration backoffRemaining(String clientId, String domain) {
+        if (!enabled) {
+            return Duration.ZERO;
+        }
+        FailureCount failures = failuresByClient.getIfPresent(clientKey(clientId, domain));
+        if (failures == null || failures.count() < backoffThreshold) {
+            return Duration.ZERO;
+        }
+        long remaining = failures.blockedUntilNanos() - System.nanoTime();
+        return remaining > 0 ? Duration.ofNanos(remaining) : Duration.ZERO;
+    }
+
+    /**
+     * Record a failed authentication that was checked against a hash.
+     *
+     * @param clientId     the client identifier
+     * @param domain       the identity domain
+     * @param clientSecret the rejected client secret
+     */
+    public void recordFailure(String clientId, String domain, String clientSecret) {
+        if (!enabled) {
+            return;
+        }
+        failedCredentials.put(key(clientId, domain, clientSecret), Boolean.TRUE);
+        FailureCount failures = failuresByClient.asMap().compute(clientKey(clientId, domain),
+                (key, previous) -> next(previous == null ? 0 : previous.count()));
+        if (failures.count() >= backoffThreshold) {
+            log.warn("Client {} in domain {} failed authentication {} times in a row, backing off",
+                    clientId, domain, failures.count());
+        }
+    }
+
+    /**
+     * Clear the failure count of a client after a successful authentication.
+     *
+     * @param clientId the client identifier
+     * @param domain   the identity domain
+     */
+    public void recordSuccess(String clientId, String domain) {
+        if (enabled) {
+            failuresByClient.invalidate(clientKey(clientId, domain));
+        }
+    }
+
+    /**
+     * Discard all recorded failures.
+     */
+    public void invalidateAll() {
+        failedCredentials.invalidateAll();
+        failuresByClient.invalidateAll();
+    }
+
+    /**
+     * Forget failures when the client configuration is reloaded.
+     *
+     * @param event registry refresh event
+     */
+    @EventListener
+    public void onClientRegistryRefreshed(ClientRegistryRefreshedEvent event) {
+        invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, failedCredentials, FAILURES_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(registry, failuresByClient, BACKOFF_CACHE_NAME);
+    }
+
+    private FailureCount next(int previousCount) {
+        int count = previousCount + 1;
+        if (count < backoffThreshold) {
+            return new FailureCount(count, 0);
+        }
+        int doublings = count - backoffThreshold;
+        // Stop shifting before the back-off would overflow
+        long backoff = doublings < Long.numberOfLeadingZeros(initialBackoffNanos) - 1
+                ? Math.min(maxBackoffNanos, initialBackoffNanos << doublings)
+                : maxBackoffNanos;
+        return new FailureCount(count, System.nanoTime() + backoff);
+    }
+
+    private String key(String clientId, String domain, String clientSecret) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(credentialDigest.digest(clientId, domain, clientSecret));
+    }
+
+    private static String clientKey(String clientId, String domain) {
+        return domain + '\u0000' + clientId;
+    }
+
+    /**
+     * Consecutive failures of one client and the end of its current back-off ({@link System#nanoTime()} based).
+     */
+    private record FailureCount(int count, long blockedUntilNanos) {
+    }
+}
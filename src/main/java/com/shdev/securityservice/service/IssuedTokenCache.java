@@ -0,0 +1,133 @@
+package com.shdev.securityservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.shdev.securityservice.jwt.IssuedToken;
+import com.shdev.securityservice.jwt.JwtKeysRotatedEvent;
+import com.shdev.securityservice.jwt.JwtProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Cache of issued tokens for clients that request identical tokens repeatedly.
+ * <p>
+ * Tokens are keyed by (clientId, domain, scope, roles) and handed out again until the configured refresh margin
+ * before their expiry, after which the next request signs a new token. Concurrent identical requests on a miss
+ * share one signing operation. When keys rotate, every cached token is discarded, so the next request is signed with
+ * the new key instead of the one it replaced.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Component
+public class IssuedTokenCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "jwt.issued-tokens";
+
+    private final boolean enabled;
+    private final Cache<IssuanceKey, IssuedToken> cache;
+
+    public IssuedTokenCache(JwtProperties jwtProperties) {
+        JwtProperties.IssuanceCache config = jwtProperties.getIssuanceCache();
+        this.enabled = config.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(new UntilRefreshMargin(config.getRefreshMargin()))
+                .recordStats()
+                .build();
+        log.info("Issued token cache enabled: {}, refresh margin: {}", enabled, config.getRefreshMargin());
+    }
+
+    /**
+     * Return a cached token for an identical request, or issue and cache a new one.
+     *
+     * @param clientId client identifier
+     * @param domain   identity domain name
+     * @param scope    token scope
+     * @param roles    user roles
+     * @param issuer   signs a new token on a miss
+     * @return cached or newly issued token
+     */
+    public IssuedToken getOrIssue(String clientId, String domain, String scope, List<String> roles,
+                                  Supplier<IssuedToken> issuer) {
+        if (!enabled) {
+            return issuer.get();
+        }
+        return cache.get(new IssuanceKey(clientId, domain, scope, roles), key -> issuer.get());
+    }
+
+    /**
+     * Discard a revoked token so it is not handed out again. Scans the cache, which is fine for the rare revocation.
+     *
+     * @param jti the token's {@code jti}
+     */
+    public void invalidate(String jti) {
+        cache.asMap().values().removeIf(token -> token.jti().equals(jti));
+    }
+
+    /**
+     * Discard all cached tokens.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Discard tokens signed with keys that have been replaced; a rotation that only retires keys changes nothing here,
+     * since the cache was already cleared when their replacements were activated.
+     *
+     * @param event key rotation event
+     */
+    @EventListener
+    public void onKeysRotated(JwtKeysRotatedEvent event) {
+        if (event.keyIds().isEmpty()) {
+            return;
+        }
+        log.info("JWT keys rotated to {}, discarding cached issued tokens", event.keyIds());
+        invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Identity of a token request.
+     */
+    private record IssuanceKey(String clientId, String domain, String scope, List<String> roles) {
+    }
+
+    /**
+     * Expires each entry the refresh margin before the token's {@code exp}.
+     */
+    private record UntilRefreshMargin(Duration refreshMargin) implements Expiry<IssuanceKey, IssuedToken> {
+
+        @Override
+        public long expireAfterCreate(IssuanceKey key, IssuedToken token, long currentTime) {
+            Duration reusable = Duration.between(Instant.now(), token.expiresAt().minus(refreshMargin));
+            return reusable.isNegative() ? 0 : reusable.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(IssuanceKey key, IssuedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(IssuanceKey key, IssuedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
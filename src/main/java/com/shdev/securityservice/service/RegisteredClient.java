@@ -0,0 +1,27 @@
+package com.shdev.securityservice.service;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, pre-resolved view of a configured OAuth2 client held by {@link ClientRegistry}.
+ *
+ * @param clientId         the client identifier
+ * @param identityDomain   the identity domain the client belongs to
+ * @param clientSecretHash the BCrypt hash of the client secret
+ * @param allowedScopes    scopes the client may request
+ * @param roles            roles put into issued tokens (defaults already applied)
+ * @param reuseTokens      whether identical token requests may be served from the issuance cache
+ * @param referenceTokens  whether the client gets opaque reference tokens instead of JWTs
+ * @author Shailesh Halor
+ */
+public record RegisteredClient(
+        String clientId,
+        String identityDomain,
+        String clientSecretHash,
+        Set<String> allowedScopes,
+        List<String> roles,
+        boolean reuseTokens,
+        boolean referenceTokens
+) {
+}
@@ -0,0 +1,205 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.audit.AuditEvent;
+import com.shdev.securityservice.audit.AuditLog;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResult;
+import com.shdev.securityservice.dto.TokenResult;
+import com.shdev.securityservice.exception.InvalidRequestException;
+import com.shdev.securityservice.exception.InvalidTokenException;
+import com.shdev.securityservice.exception.ServiceOverloadedException;
+import com.shdev.securityservice.metrics.RequestTiming;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Batch token operations (introspection and issuance) that fan out over a fixed pool of worker threads.
+ * Each item goes through the same {@link TokenService} path, and therefore the same caches, as a single request.
+ * The pool's queue is bounded by {@code oauth2.batch.queue-depth}; a batch that does not fit is shed as a whole with
+ * {@link ServiceOverloadedException}, like the crypto pools, instead of queueing unbounded work.
+ *
+ * @author Shailesh Halor
+ */
+@Slf4j
+@Service
+public class TokenBatchService implements MeterBinder {
+
+    private final TokenService tokenService;
+    private final ClientCredentialsService clientCredentialsService;
+    private final AuditLog auditLog;
+    private final OAuth2ClientProperties.Batch batchProperties;
+    private final ThreadPoolExecutor executor;
+    private final ServiceOverloadedException overloaded;
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBatchService(TokenService tokenService, ClientCredentialsService clientCredentialsService,
+                             AuditLog auditLog, OAuth2ClientProperties clientProperties) {
+        this.tokenService = tokenService;
+        this.clientCredentialsService = clientCredentialsService;
+        this.auditLog = auditLog;
+        this.batchProperties = clientProperties.getBatch();
+        int parallelism = batchProperties.getParallelism() > 0
+                ? batchProperties.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, batchProperties.getQueueDepth())),
+                task -> Thread.ofPlatform().name("token-batch-" + threadCount.incrementAndGet()).daemon().unstarted(task),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.overloaded = new ServiceOverloadedException("The service is temporarily overloaded, retry later",
+                clientProperties.getCrypto().getRetryAfter());
+        log.info("Token batch service started with {} workers, queue depth: {}, max tokens per batch: {}", parallelism,
+                batchProperties.getQueueDepth(), batchProperties.getMaxTokens());
+    }
+
+    /**
+     * Validate a batch of tokens in parallel.
+     *
+     * @param tokens JWT token strings
+     * @return per-token results in request order
+     * @throws InvalidRequestException if the batch is empty or exceeds the configured limit
+     */
+    public List<TokenInfoResult> validateTokens(List<String> tokens) {
+        checkBatchSize(tokens, batchProperties.getMaxTokens(), "token");
+        log.debug("Validating batch of {} tokens", tokens.size());
+        return runAll(tokens, this::validateToken);
+    }
+
+    /**
+     * Issue one token per scope for an already authenticated client, signing in parallel.
+     * Duplicate scopes are issued once.
+     *
+     * @param client authenticated client
+     * @param scopes requested scopes
+     * @return per-scope results in request order
+     * @throws InvalidRequestException if no scope is requested or the configured limit is exceeded
+     */
+    public List<TokenResult> generateTokens(RegisteredClient client, List<String> scopes) {
+        List<String> distinctScopes = scopes == null ? List.of() : List.copyOf(new LinkedHashSet<>(scopes));
+        checkBatchSize(distinctScopes, batchProperties.getMaxScopes(), "scope");
+        log.debug("Generating batch of {} tokens for client: {}", distinctScopes.size(), client.clientId());
+        return runAll(distinctScopes, scope -> generateToken(client, scope));
+    }
+
+    /**
+     * Number of batches shed because the worker queue was full.
+     *
+     * @return rejected batch count
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("security.batch.rejections", rejected, LongAdder::sum)
+                .description("Batches shed with 503 because the batch worker queue was full")
+                .register(registry);
+    }
+
+    private TokenInfoResult validateToken(String token) {
+        if (!StringUtils.hasText(token)) {
+            return TokenInfoResult.failure("invalid_request", "Missing access_token");
+        }
+        try {
+            return TokenInfoResult.success(tokenService.validateToken(token));
+        } catch (InvalidTokenException e) {
+            return TokenInfoResult.failure("invalid_token", e.getMessage());
+        } catch (ServiceOverloadedException e) {
+            return TokenInfoResult.failure("temporarily_unavailable", e.getMessage());
+        }
+    }
+
+    private TokenResult generateToken(RegisteredClient client, String scope) {
+        if (!clientCredentialsService.isScopeAllowed(client, scope)) {
+            log.debug("Scope not allowed for client {}: {}", client.clientId(), scope);
+            auditLog.record(AuditEvent.issuance(client.clientId(), client.identityDomain(), scope, "invalid_request"));
+            return TokenResult.failure(scope, "invalid_request", "Scope '" + scope + "' is not allowed for this client");
+        }
+        try {
+            return TokenResult.success(scope, tokenService.generateToken(client, scope));
+        } catch (ServiceOverloadedException e) {
+            return TokenResult.failure(scope, "temporarily_unavailable", e.getMessage());
+        }
+    }
+
+    /**
+     * Apply the task to every item on the worker pool, running single items on the calling thread.
+     *
+     * @throws ServiceOverloadedException if the worker queue has no room for the batch
+     */
+    private <T, R> List<R> runAll(List<T> items, Function<T, R> task) {
+        if (items.size() == 1) {
+            return List.of(task.apply(items.get(0)));
+        }
+        if (executor.getQueue().remainingCapacity() < items.size()) {
+            throw shed(List.of());
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        RequestTiming timing = RequestTiming.current();
+        for (T item : items) {
+            try {
+                futures.add(CompletableFuture.supplyAsync(timing == null ? () -> task.apply(item) : () -> {
+                    // Workers add their stages to the Server-Timing of a sampled request
+                    RequestTiming.bind(timing);
+                    try {
+                        return task.apply(item);
+                    } finally {
+                        RequestTiming.bind(null);
+                    }
+                }, executor));
+            } catch (RejectedExecutionException e) {
+                // Concurrent batches took the room; items already queued are skipped once cancelled
+                throw shed(futures);
+            }
+        }
+        List<R> results = new ArrayList<>(items.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return results;
+    }
+
+    private ServiceOverloadedException shed(List<? extends CompletableFuture<?>> submitted) {
+        submitted.forEach(future -> future.cancel(false));
+        rejected.increment();
+        log.debug("Batch shed, worker queue is full");
+        return overloaded;
+    }
+
+    private static void checkBatchSize(List<?> items, int maximum, String itemName) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidRequestException("At least one " + itemName + " is required");
+        }
+        if (items.size() > maximum) {
+            throw new InvalidRequestException("Batch contains " + items.size() + " " + itemName + "s, the limit is " + maximum);
+        }
+    }
+}
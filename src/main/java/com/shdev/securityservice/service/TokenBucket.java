@@ -0,0 +1,57 @@
+package com.shdev.securityservice.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket stored as a single timestamp (generic cell rate algorithm).
+ * <p>
+ * Instead of a token count and a refill time, the bucket keeps the theoretical arrival time of the next request.
+ * Each accepted request moves it one emission interval ({@code 1 / rate}) forward; a request is rejected when that
+ * would put it more than {@code burst} intervals ahead of now. This is equivalent to a bucket of {@code burst}
+ * tokens refilled at {@code rate} per second, needs one CAS per request and never allocates.
+ * </p>
+ *
+ * @author Shailesh Halor
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrival;
+
+    TokenBucket(double requestsPerSecond, int burst, long nowNanos) {
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / requestsPerSecond));
+        this.capacityNanos = intervalNanos * Math.max(1, burst);
+        // Start full: the whole burst is available immediately
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Take one token if available.
+     *
+     * @param nowNanos current {@link System#nanoTime()}
+     * @return 0 if the request is allowed, otherwise the nanoseconds until a token becomes available
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = (current - nowNanos > 0 ? current : nowNanos) + intervalNanos;
+            long ahead = next - nowNanos;
+            if (ahead > capacityNanos) {
+                return ahead - capacityNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Time after which an untouched bucket is full again and can be discarded without changing behaviour.
+     *
+     * @return refill time in nanoseconds
+     */
+    long refillNanos() {
+        return capacityNanos;
+    }
+}
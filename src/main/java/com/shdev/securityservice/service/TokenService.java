@@ -1,20 +1,28 @@
 package com.shdev.securityservice.service;
 
-import com.shdev.securityservice.util.TypeConversionUtil;
-import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.audit.AuditEvent;
+import com.shdev.securityservice.audit.AuditLog;
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.jwt.IssuedToken;
 import com.shdev.securityservice.jwt.JwtTokenGenerator;
 import com.shdev.securityservice.jwt.JwtTokenValidator;
 import com.shdev.securityservice.dto.TokenInfoResponse;
 import com.shdev.securityservice.dto.TokenResponse;
+import com.shdev.securityservice.exception.InvalidRequestException;
 import com.shdev.securityservice.exception.InvalidTokenException;
+import com.shdev.securityservice.reference.ReferenceTokenStore;
+import com.shdev.securityservice.revocation.RevocationStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
 
 /**
- * Service for JWT token generation and validation.
+ * Service for JWT token generation, validation and revocation.
  *
  * @author Shailesh Halor
  */
@@ -25,67 +33,138 @@ public class TokenService {
 
     private final JwtTokenGenerator jwtTokenGenerator;
     private final JwtTokenValidator jwtTokenValidator;
-    private final JwtProperties jwtProperties;
+    private final IssuedTokenCache issuedTokenCache;
+    private final RevocationStore revocationStore;
+    private final ReferenceTokenStore referenceTokenStore;
+    private final CryptoPools cryptoPools;
+    private final AuditLog auditLog;
 
     /**
-     * Generate JWT access token.
+     * Generate an access token: a JWT, or an opaque reference token for clients with reference tokens enabled while
+     * the reference token store has room.
+     * Clients with token reuse enabled get the previously issued token for identical requests until it is close
+     * to expiry.
      *
-     * @param clientId client identifier
-     * @param scope    token scope
-     * @param domain   identity domain name
-     * @param roles    user roles for this client
+     * @param client authenticated client
+     * @param scope  token scope
      * @return TokenResponse containing access token
      */
-    public TokenResponse generateToken(String clientId, String scope, String domain, java.util.List<String> roles) {
-        log.info("Generating token for client: {}, domain: {}, roles: {}", clientId, domain, roles);
+    public TokenResponse generateToken(RegisteredClient client, String scope) {
+        String clientId = client.clientId();
+        String domain = client.identityDomain();
+        java.util.List<String> roles = client.roles();
+        log.debug("Generating token for client: {}, domain: {}, roles: {}", clientId, domain, roles);
 
-        String token = jwtTokenGenerator.generateToken(clientId, scope, domain, roles);
+        Supplier<IssuedToken> signer = () -> cryptoPools.signing().call(
+                () -> jwtTokenGenerator.generateToken(clientId, scope, domain, roles));
+        Supplier<IssuedToken> issuer = client.referenceTokens()
+                ? () -> {
+                    IssuedToken reference = referenceTokenStore.issue(clientId, scope, domain, roles);
+                    return reference != null ? reference : signer.get();
+                }
+                : signer;
+        IssuedToken token = client.reuseTokens()
+                ? issuedTokenCache.getOrIssue(clientId, domain, scope, roles, issuer)
+                : issuer.get();
+        auditLog.record(AuditEvent.issuance(clientId, domain, scope, AuditEvent.SUCCESS));
 
         return TokenResponse.builder()
-                .accessToken(token)
+                .accessToken(token.value())
                 .tokenType("Bearer")
-                .expiresIn(jwtProperties.getExpirationSeconds())
+                .expiresIn(remainingSeconds(token))
                 .scope(scope)
                 .build();
     }
 
     /**
-     * Validate JWT token and return payload information.
+     * Seconds until the token expires, which is less than the configured lifetime for reused tokens.
      *
-     * @param token JWT token string
+     * @param token issued token
+     * @return remaining lifetime in seconds
+     */
+    private static long remainingSeconds(IssuedToken token) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return Math.max(0, Duration.between(now, token.expiresAt()).toSeconds());
+    }
+
+    /**
+     * Validate a JWT or resolve a reference token and return payload information.
+     *
+     * @param token JWT or reference token string
      * @return TokenInfoResponse containing token claims
      * @throws InvalidTokenException if validation fails
      */
     public TokenInfoResponse validateToken(String token) {
-        log.info("Validating token");
+        log.debug("Validating token");
 
         try {
-            Map<String, Object> claims = jwtTokenValidator.validateToken(token);
-
-            // Extract roles and format as colon-separated string
-            java.util.List<String> roles = TypeConversionUtil.toStringList(claims.get("roles"));
-            String userRole = !roles.isEmpty()
-                    ? String.join(":", roles)
-                    : null;
-
-            return TokenInfoResponse.builder()
-                    .issuer(TypeConversionUtil.toString(claims.get("iss")))
-                    .audience(TypeConversionUtil.toStringList(claims.get("aud")))
-                    .expiration(TypeConversionUtil.toLong(claims.get("exp")))
-                    .jwtId(TypeConversionUtil.toString(claims.get("jti")))
-                    .issuedAt(TypeConversionUtil.toLong(claims.get("iat")))
-                    .subject(TypeConversionUtil.toString(claims.get("sub")))
-                    .client(TypeConversionUtil.toString(claims.get("client")))
-                    .scope(TypeConversionUtil.toStringList(claims.get("scope")))
-                    .domain(TypeConversionUtil.toString(claims.get("domain")))
-                    .version(TypeConversionUtil.toString(claims.get("v")))
-                    .userRole(userRole)
-                    .build();
+            TokenInfoResponse response = introspect(token);
+            auditLog.record(AuditEvent.introspection(response.client(), response.domain(), response.jwtId(),
+                    AuditEvent.SUCCESS));
+            return response;
         } catch (JwtTokenValidator.TokenValidationException e) {
-            log.warn("Token validation failed: {}", e.getMessage());
+            log.debug("Token validation failed: {}", e.getMessage());
+            auditLog.record(AuditEvent.introspection(null, null, null, "invalid_token"));
             throw new InvalidTokenException(e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Token information of a JWT or a reference token.
+     *
+     * @param token JWT or reference token string
+     * @return token information
+     * @throws JwtTokenValidator.TokenValidationException if the token is invalid
+     */
+    private TokenInfoResponse introspect(String token) throws JwtTokenValidator.TokenValidationException {
+        return ReferenceTokenStore.isReferenceToken(token)
+                ? referenceTokenStore.resolve(token)
+                : jwtTokenValidator.validateToken(token);
+    }
 
+    /**
+     * Revoke a token on behalf of the client it was issued to (RFC 7009).
+     * Tokens that are invalid, expired or already revoked need no revocation and are accepted silently. Reference
+     * tokens are removed from the reference token store.
+     *
+     * @param client        authenticated client
+     * @param token         JWT token string
+     * @param remoteAddress the caller's address
+     * @throws InvalidRequestException if revocation is disabled or the token was issued to another client, including a
+     *                                 client with the same ID in another identity domain
+     */
+    public void revokeToken(RegisteredClient client, String token, String remoteAddress) {
+        boolean reference = ReferenceTokenStore.isReferenceToken(token);
+        if (!reference && !revocationStore.isEnabled()) {
+            throw new InvalidRequestException("Token revocation is not enabled");
+        }
+
+        TokenInfoResponse info;
+        try {
+            info = introspect(token);
+        } catch (JwtTokenValidator.TokenValidationException e) {
+            log.debug("Revocation of an invalid token ignored: {}", e.getMessage());
+            auditLog.record(AuditEvent.revocation(client.clientId(), client.identityDomain(), null, remoteAddress,
+                    AuditEvent.SUCCESS));
+            return;
+        }
+        // Client IDs are unique only within an identity domain
+        if (!client.clientId().equals(info.client()) || !client.identityDomain().equals(info.domain())
+                || info.jwtId() == null) {
+            auditLog.record(AuditEvent.revocation(client.clientId(), client.identityDomain(), info.jwtId(),
+                    remoteAddress, "invalid_request"));
+            throw new InvalidRequestException("Token was not issued to this client");
+        }
+
+        if (reference) {
+            referenceTokenStore.remove(token);
+        } else {
+            // Tokens without exp never expire, so neither does their revocation
+            revocationStore.revoke(info.jwtId(), info.expiration() != null ? info.expiration() : Long.MAX_VALUE);
+        }
+        issuedTokenCache.invalidate(info.jwtId());
+        log.debug("Token {} revoked by client {}", info.jwtId(), client.clientId());
+        auditLog.record(AuditEvent.revocation(client.clientId(), client.identityDomain(), info.jwtId(), remoteAddress,
+                AuditEvent.SUCCESS));
+    }
+}
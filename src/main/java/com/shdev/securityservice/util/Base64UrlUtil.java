@@ -0,0 +1,122 @@
+package com.shdev.securityservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Allocation-free unpadded Base64URL encoding and decoding over byte array ranges, as used by compact JWTs.
+ *
+ * @author Shailesh Halor
+ */
+public final class Base64UrlUtil {
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+    private static final int[] DECODE = new int[128];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = i;
+        }
+    }
+
+    private Base64UrlUtil() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Number of characters needed to encode the given number of bytes.
+     *
+     * @param length number of bytes
+     * @return encoded length without padding
+     */
+    public static int encodedLength(int length) {
+        return (length / 3) * 4 + (length % 3 == 0 ? 0 : length % 3 + 1);
+    }
+
+    /**
+     * Maximum number of bytes the given number of characters decode to.
+     *
+     * @param length number of Base64URL characters
+     * @return decoded length
+     */
+    public static int decodedLength(int length) {
+        return (length / 4) * 3 + Math.max(0, length % 4 - 1);
+    }
+
+    /**
+     * Encode a byte range into the destination array.
+     *
+     * @param src    source bytes
+     * @param offset source offset
+     * @param length number of bytes to encode
+     * @param dst    destination array, must have room for {@link #encodedLength(int)} bytes
+     * @param dstOff destination offset
+     * @return number of characters written
+     */
+    public static int encode(byte[] src, int offset, int length, byte[] dst, int dstOff) {
+        int s = offset;
+        int d = dstOff;
+        int end = offset + length - length % 3;
+        while (s < end) {
+            int bits = (src[s++] & 0xff) << 16 | (src[s++] & 0xff) << 8 | (src[s++] & 0xff);
+            dst[d++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[d++] = ALPHABET[(bits >>> 12) & 0x3f];
+            dst[d++] = ALPHABET[(bits >>> 6) & 0x3f];
+            dst[d++] = ALPHABET[bits & 0x3f];
+        }
+        int remaining = offset + length - s;
+        if (remaining == 1) {
+            int bits = (src[s] & 0xff) << 16;
+            dst[d++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[d++] = ALPHABET[(bits >>> 12) & 0x3f];
+        } else if (remaining == 2) {
+            int bits = (src[s] & 0xff) << 16 | (src[s + 1] & 0xff) << 8;
+            dst[d++] = ALPHABET[(bits >>> 18) & 0x3f];
+            dst[d++] = ALPHABET[(bits >>> 12) & 0x3f];
+            dst[d++] = ALPHABET[(bits >>> 6) & 0x3f];
+        }
+        return d - dstOff;
+    }
+
+    /**
+     * Decode a range of Base64URL characters of a string into the destination array.
+     *
+     * @param src    source string
+     * @param offset index of the first character
+     * @param length number of characters to decode
+     * @param dst    destination array, must have room for {@link #decodedLength(int)} bytes
+     * @return number of bytes written, or -1 if the input is not valid unpadded Base64URL
+     */
+    public static int decode(String src, int offset, int length, byte[] dst) {
+        if (length % 4 == 1) {
+            return -1;
+        }
+        int d = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            char c = src.charAt(i);
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = bits << 6 | value;
+            if (++count == 4) {
+                dst[d++] = (byte) (bits >>> 16);
+                dst[d++] = (byte) (bits >>> 8);
+                dst[d++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            dst[d++] = (byte) (bits >>> 4);
+        } else if (count == 3) {
+            dst[d++] = (byte) (bits >>> 10);
+            dst[d++] = (byte) (bits >>> 2);
+        }
+        return d;
+    }
+}
@@ -0,0 +1,60 @@
+package com.shdev.securityservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Utility class for computing message digests used as cache keys and fingerprints.
+ *
+ * @author Shailesh Halor
+ */
+public final class DigestUtil {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> getInstance("SHA-256"));
+
+    private DigestUtil() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Compute the SHA-256 digest of a string.
+     *
+     * @param value string to digest (UTF-8 encoded)
+     * @return digest bytes
+     */
+    public static byte[] sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compute the SHA-256 digest of a byte array.
+     *
+     * @param value bytes to digest
+     * @return digest bytes
+     */
+    public static byte[] sha256(byte[] value) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return digest.digest(value);
+    }
+
+    /**
+     * Compute the SHA-256 digest of a string and encode it as unpadded Base64URL.
+     *
+     * @param value string to digest (UTF-8 encoded)
+     * @return Base64URL encoded digest
+     */
+    public static String sha256Base64Url(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256(value));
+    }
+
+    private static MessageDigest getInstance(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+}
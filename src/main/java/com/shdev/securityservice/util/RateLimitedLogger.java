@@ -0,0 +1,58 @@
+package com.shdev.securityservice.util;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes at most a fixed number of warnings per time window and counts the rest, for messages that callers can
+ * trigger at will, such as rejected tokens. The first warning of a new window reports how many were suppressed in
+ * the previous one. Suppressed warnings cost two atomic operations and no formatting.
+ *
+ * @author Shailesh Halor
+ */
+public final class RateLimitedLogger {
+
+    private final Logger logger;
+    private final int permitsPerWindow;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    public RateLimitedLogger(Logger logger, int permitsPerWindow, Duration window) {
+        this.logger = logger;
+        this.permitsPerWindow = permitsPerWindow;
+        this.windowNanos = window.toNanos();
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Log a warning unless the window's quota is used up.
+     *
+     * @param format message format
+     * @param first  first argument
+     * @param second second argument
+     */
+    public void warn(String format, Object first, Object second) {
+        if (!logger.isWarnEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            logged.set(0);
+            int missed = suppressed.getAndSet(0);
+            if (missed > 0) {
+                logger.warn("Suppressed {} similar warnings in the last {}s", missed, (now - start) / 1_000_000_000);
+            }
+        }
+        if (logged.incrementAndGet() <= permitsPerWindow) {
+            logger.warn(format, first, second);
+        } else {
+            suppressed.incrementAndGet();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.shdev.securityservice.util;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -73,15 +75,18 @@ public final class TypeConversionUtil {
      * Safely convert Object to List<String>.
      *
      * @param obj object to convert
-     * @return List<String> or List containing the single string if not a list
+     * @return List<String> or List containing the single string if not a collection
      */
-    @SuppressWarnings("unchecked")
     public static List<String> toStringList(Object obj) {
         if (obj == null) {
             return List.of();
         }
-        if (obj instanceof List) {
-            return (List<String>) obj;
+        if (obj instanceof Collection<?> collection) {
+            List<String> values = new ArrayList<>(collection.size());
+            for (Object value : collection) {
+                values.add(toString(value));
+            }
+            return values;
         }
         return List.of(obj.toString());
     }
@@ -0,0 +1,208 @@
+package com.shdev.securityservice.audit;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for AuditLog, its ring buffer and its file writer.
+ */
+@DisplayName("AuditLog Tests")
+class AuditLogTest {
+
+    @TempDir
+    Path auditDir;
+
+    /**
+     * Test: Events are written as escaped JSON lines
+     * Given: An enabled audit log
+     * When: An authentication with a client ID containing a quote and a newline and an issuance are recorded and the log is shut down
+     * Then: The file has one line per event in order, the client ID is escaped and null fields are left out
+     */
+    @Test
+    @DisplayName("Events are written as escaped JSON lines")
+    void eventsAreWrittenAsJsonLines() throws Exception {
+        AuditLog auditLog = new AuditLog(properties());
+
+        auditLog.record(AuditEvent.authentication("evil\"\nclient", "DOMAIN", "10.0.0.1", "invalid_client"));
+        auditLog.record(AuditEvent.issuance("client", "DOMAIN", "scope.read", AuditEvent.SUCCESS));
+        auditLog.shutdown();
+
+        List<String> lines = Files.readAllLines(auditDir.resolve("audit.log"));
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0)).contains("\"action\":\"authenticate\"", "\"client\":\"evil\\\"\\nclient\"",
+                "\"address\":\"10.0.0.1\"", "\"outcome\":\"invalid_client\"");
+        assertThat(lines.get(1)).contains("\"action\":\"issue\"", "\"scope\":\"scope.read\"", "\"outcome\":\"success\"")
+                .doesNotContain("jti", "address");
+        assertThat(auditLog.writtenCount()).isEqualTo(2);
+        assertThat(auditLog.droppedCount()).isZero();
+    }
+
+    /**
+     * Test: The ring buffer rejects offers when full and hands every element over exactly once
+     * Given: A buffer of 64 slots
+     * When: It is filled, then four producers offer 10,000 elements each while one consumer drains
+     * Then: The 65th offer fails, and the consumer receives every element once and each producer's elements in order
+     */
+    @Test
+    @DisplayName("The ring buffer rejects offers when full and hands every element over exactly once")
+    void ringBufferIsBoundedAndLossless() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(64);
+        IntStream.range(0, 64).forEach(i -> assertThat(buffer.offer(i)).isTrue());
+        assertThat(buffer.offer(64)).isFalse();
+        buffer.drainTo(new ArrayList<>(), 64);
+
+        int producers = 4;
+        int perProducer = 10_000;
+        List<CompletableFuture<Void>> running = IntStream.range(0, producers)
+                .mapToObj(p -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(p * perProducer + i)) {
+                            Thread.yield();
+                        }
+                    }
+                }))
+                .toList();
+        List<Integer> received = new ArrayList<>();
+        while (received.size() < producers * perProducer) {
+            if (buffer.drainTo(received, 32) == 0) {
+                Thread.yield();
+            }
+        }
+        running.forEach(CompletableFuture::join);
+
+        assertThat(received).hasSize(producers * perProducer);
+        assertThat(new HashSet<>(received)).hasSize(producers * perProducer);
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            assertThat(received.stream().filter(i -> i / perProducer == producer).toList()).isSorted();
+        }
+        assertThat(buffer.size()).isZero();
+    }
+
+    /**
+     * Test: The file rotates by size and by age and keeps only max-files rotated files
+     * Given: A writer with room for two events per file, a one hour interval and three rotated files kept
+     * When: Nine events are written one second apart, then one more after the clock moves past the interval
+     * Then: Every third write starts a new file, only the three newest rotated files remain, and the last write starts
+     * a new file although the active one has room
+     */
+    @Test
+    @DisplayName("The file rotates by size and by age and keeps only max-files rotated files")
+    void fileRotatesBySizeAndAge() throws Exception {
+        List<AuditEvent> batch = List.of(AuditEvent.issuance("client", "DOMAIN", "scope.read", AuditEvent.SUCCESS));
+        StringBuilder line = new StringBuilder();
+        batch.get(0).appendJson(line);
+        OAuth2ClientProperties.Audit config = properties().getAudit();
+        config.setMaxFileSize(DataSize.ofBytes(line.length() * 2L + 1));
+        config.setRotationInterval(Duration.ofHours(1));
+        config.setMaxFiles(3);
+        MutableClock clock = new MutableClock();
+
+        try (AuditFileWriter writer = new AuditFileWriter(config, clock)) {
+            for (int i = 0; i < 9; i++) {
+                writer.write(batch);
+                clock.advance(Duration.ofSeconds(1));
+            }
+            assertThat(rotatedFiles()).hasSize(3);
+            assertThat(Files.readAllLines(writer.activeFile())).hasSize(1);
+
+            clock.advance(Duration.ofHours(1));
+            writer.write(batch);
+            assertThat(Files.readAllLines(writer.activeFile())).hasSize(1);
+        }
+        assertThat(rotatedFiles()).hasSize(3);
+    }
+
+    /**
+     * Test: Files rotated within the same millisecond are deleted in rotation order
+     * Given: A writer with room for one event per file, a stopped clock and three rotated files kept
+     * When: Thirteen events are written, so twelve files are rotated under the same timestamp
+     * Then: The three files rotated last remain, with collision suffixes 9, 10 and 11
+     */
+    @Test
+    @DisplayName("Files rotated within the same millisecond are deleted in rotation order")
+    void sameTimestampRotationsKeepNewest() throws Exception {
+        List<AuditEvent> batch = List.of(AuditEvent.issuance("client", "DOMAIN", "scope.read", AuditEvent.SUCCESS));
+        StringBuilder line = new StringBuilder();
+        batch.get(0).appendJson(line);
+        OAuth2ClientProperties.Audit config = properties().getAudit();
+        config.setMaxFileSize(DataSize.ofBytes(line.length()));
+        config.setMaxFiles(3);
+
+        try (AuditFileWriter writer = new AuditFileWriter(config, new MutableClock())) {
+            for (int i = 0; i < 13; i++) {
+                writer.write(batch);
+            }
+        }
+
+        assertThat(rotatedFiles()).map(file -> file.getFileName().toString())
+                .containsExactlyInAnyOrder("audit-20260101-000000-000-9.log", "audit-20260101-000000-000-10.log",
+                        "audit-20260101-000000-000-11.log");
+    }
+
+    private List<Path> rotatedFiles() throws Exception {
+        try (Stream<Path> files = Files.list(auditDir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("audit-")).toList();
+        }
+    }
+
+    private OAuth2ClientProperties properties() {
+        OAuth2ClientProperties properties = new OAuth2ClientProperties();
+        properties.getAudit().setEnabled(true);
+        properties.getAudit().setDirectory(auditDir.toString());
+        properties.getAudit().setFlushInterval(Duration.ofMillis(10));
+        return properties;
+    }
+
+    /**
+     * Clock the test moves forward by hand.
+     */
+    private static final class MutableClock extends Clock {
+
+        private final AtomicLong millis = new AtomicLong(Instant.parse("2026-01-01T00:00:00Z").toEpochMilli());
+
+        void advance(Duration duration) {
+            millis.addAndGet(duration.toMillis());
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
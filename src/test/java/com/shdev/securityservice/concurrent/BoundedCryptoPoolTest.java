@@ -0,0 +1,133 @@
+package com.shdev.securityservice.concurrent;
+
+import com.shdev.securityservice.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for BoundedCryptoPool.
+ */
+@DisplayName("BoundedCryptoPool Tests")
+class BoundedCryptoPoolTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final BoundedCryptoPool pool = new BoundedCryptoPool("test", 1, 1, Duration.ofSeconds(1), Duration.ofSeconds(3));
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        pool.shutdown();
+    }
+
+    /**
+     * Test: Tasks run on the pool and keep their exceptions
+     * Given: An idle pool
+     * When: A task returns a value and another throws a checked exception
+     * Then: The value comes from a pool thread and the exception reaches the caller unchanged
+     */
+    @Test
+    @DisplayName("Tasks run on the pool and keep their exceptions")
+    void tasksRunOnPool() {
+        Thread worker = pool.call(Thread::currentThread);
+
+        assertThat(worker).isNotSameAs(Thread.currentThread());
+        assertThat(worker.getName()).startsWith("crypto-test-");
+        assertThatThrownBy(() -> pool.call(() -> {
+            throw new IOException("bad input");
+        })).isInstanceOf(IOException.class).hasMessage("bad input");
+    }
+
+    /**
+     * Test: A full queue rejects immediately
+     * Given: A busy worker and a full queue
+     * When: Another task is submitted
+     * Then: It fails with a stackless ServiceOverloadedException carrying the Retry-After duration, the same instance
+     * for every rejection, counted as queue_full
+     */
+    @Test
+    @DisplayName("A full queue rejects immediately")
+    void fullQueueRejects() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> callIgnoringOverload(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.ofVirtual().start(() -> callIgnoringOverload(() -> true));
+        waitForQueuedTask();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> pool.call(() -> true))
+                .isInstanceOf(ServiceOverloadedException.class)
+                .extracting(e -> ((ServiceOverloadedException) e).getRetryAfter())
+                .isEqualTo(Duration.ofSeconds(3));
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+        assertThat(pool.rejectedCount()).isEqualTo(1);
+
+        ServiceOverloadedException first = overload();
+        assertThat(overload()).isSameAs(first);
+        assertThat(first.getStackTrace()).isEmpty();
+        assertThat(pool.rejectedCount(BoundedCryptoPool.Rejection.QUEUE_FULL)).isEqualTo(3);
+    }
+
+    /**
+     * Test: Calls past their deadline are abandoned
+     * Given: A busy worker
+     * When: A queued task is not started within the deadline
+     * Then: The caller gets ServiceOverloadedException and the task never runs
+     */
+    @Test
+    @DisplayName("Calls past their deadline are abandoned")
+    void deadlineAbandonsCall() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> callIgnoringOverload(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicBoolean ran = new AtomicBoolean();
+        assertThatThrownBy(() -> pool.call(() -> ran.getAndSet(true)))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(pool.rejectedCount(BoundedCryptoPool.Rejection.DEADLINE)).isPositive();
+
+        release.countDown();
+        assertThat(pool.call(() -> true)).isTrue();
+        assertThat(ran).isFalse();
+    }
+
+    private ServiceOverloadedException overload() {
+        try {
+            pool.call(() -> true);
+        } catch (ServiceOverloadedException e) {
+            return e;
+        }
+        throw new AssertionError("Call was not rejected");
+    }
+
+    private void callIgnoringOverload(BoundedCryptoPool.CryptoTask<Boolean, InterruptedException> task) {
+        try {
+            pool.call(task);
+        } catch (ServiceOverloadedException | InterruptedException e) {
+            // The blocking task outlives the deadline; only its occupation of the worker matters
+        }
+    }
+
+    private void waitForQueuedTask() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.queueSize() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(pool.queueSize()).isEqualTo(1);
+    }
+}
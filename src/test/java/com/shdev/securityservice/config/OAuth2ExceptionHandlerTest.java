@@ -0,0 +1,40 @@
+package com.shdev.securityservice.config;
+
+import com.shdev.securityservice.dto.ErrorResponse;
+import com.shdev.securityservice.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for OAuth2ExceptionHandler.
+ */
+@DisplayName("OAuth2ExceptionHandler Tests")
+class OAuth2ExceptionHandlerTest {
+
+    private final OAuth2ExceptionHandler handler = new OAuth2ExceptionHandler();
+
+    /**
+     * Test: Shed requests get 503 with Retry-After
+     * Given: A ServiceOverloadedException with a retry delay of 3 seconds
+     * When: The handler maps it
+     * Then: The response is 503 temporarily_unavailable with Retry-After: 3
+     */
+    @Test
+    @DisplayName("Shed requests get 503 with Retry-After")
+    void overloadedReturns503WithRetryAfter() {
+        ResponseEntity<ErrorResponse> response = handler.handleServiceOverloadedException(
+                new ServiceOverloadedException("busy", Duration.ofSeconds(3)));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("3");
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().error()).isEqualTo("temporarily_unavailable");
+    }
+}
@@ -36,4 +36,20 @@ class HealthControllerTest {
                 .andExpect(jsonPath("$.status").exists());
     }
 
+    /**
+     * Test: Actuator health stays on the application port
+     * Given: No separate management port configured
+     * When: /actuator/health and /actuator/prometheus are requested on the application port
+     * Then: Health is served without credentials and the scrape endpoint is refused
+     */
+    @Test
+    @DisplayName("Actuator health is served on the application port")
+    void actuatorHealthOnApplicationPort() throws Exception {
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").exists());
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+    }
+
 }
@@ -0,0 +1,46 @@
+package com.shdev.securityservice.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for JwksController.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("JwksController Tests")
+class JwksControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Test: The JWK set is served with caching headers and supports conditional requests
+     * Given: A request to the well-known JWKS endpoint
+     * When: It is repeated with the returned ETag in If-None-Match
+     * Then: The first response is 200 with ETag and Cache-Control, the second is 304
+     */
+    @Test
+    @DisplayName("GET /.well-known/jwks.json supports ETag revalidation")
+    void testGetJwksWithEtag() throws Exception {
+        String etag = mockMvc.perform(get("/.well-known/jwks.json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.keys").isArray())
+                .andExpect(header().string("Cache-Control", "max-age=300, public"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/oauth2/rest/jwks").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+}
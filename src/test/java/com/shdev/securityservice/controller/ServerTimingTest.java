@@ -0,0 +1,69 @@
+package com.shdev.securityservice.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test class for the Server-Timing header on the token endpoints.
+ */
+@SpringBootTest(properties = {"oauth2.server-timing.enabled=true", "oauth2.server-timing.sample-rate=1.0"})
+@AutoConfigureMockMvc
+@DisplayName("Server-Timing Tests")
+class ServerTimingTest {
+
+    private static final String CLIENT_ID = "DEV_OMS_OIDMWebGateID";
+    private static final String SECRET = "jgak824fHdK39gs8ga";
+    private static final String DOMAIN = "DEV_JET_WebGateDomain";
+
+    @TempDir
+    static Path revocationDir;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void revocation(DynamicPropertyRegistry registry) {
+        registry.add("security.jwt.revocation.enabled", () -> "true");
+        registry.add("security.jwt.revocation.file", () -> revocationDir.resolve("revocations.log").toString());
+    }
+
+    /**
+     * Test: Bodiless responses carry the Server-Timing header
+     * Given: Server-Timing enabled for every request
+     * When: A client revokes a token, which is answered with 200 and no body
+     * Then: The response carries a Server-Timing header with the auth stage and the total
+     */
+    @Test
+    @DisplayName("POST /oauth2/rest/token/revoke carries Server-Timing")
+    void revokeCarriesServerTiming() throws Exception {
+        String credentials = Base64.getEncoder()
+                .encodeToString((CLIENT_ID + ":" + SECRET).getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(post("/oauth2/rest/token/revoke")
+                        .header("X-OAUTH-IDENTITY-DOMAIN-NAME", DOMAIN)
+                        .header("Authorization", "Basic " + credentials)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("token", "e30.e30.AAAA"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Server-Timing",
+                        allOf(containsString("auth;dur="), containsString("total;dur="))));
+    }
+}
@@ -0,0 +1,162 @@
+package com.shdev.securityservice.jfr;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenGenerator;
+import com.shdev.securityservice.jwt.JwtTokenValidator;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import com.shdev.securityservice.service.ClientCredentialsService;
+import com.shdev.securityservice.service.ClientRegistry;
+import com.shdev.securityservice.service.CredentialVerificationCache;
+import com.shdev.securityservice.service.FailedCredentialCache;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for the JFR events and the shipped settings profile.
+ */
+@DisplayName("Security JFR Events Tests")
+class SecurityEventsTest {
+
+    private static final String CLIENT_ID = "TEST_CLIENT";
+    private static final String SECRET = "s3cret";
+
+    @TempDir
+    Path tempDir;
+
+    private CryptoPools cryptoPools;
+    private JwtTokenGenerator generator;
+    private JwtTokenValidator validator;
+    private ClientCredentialsService credentialsService;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = TestKeys.properties(tempDir, JwtAlgorithm.HS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        TokenMetrics metrics = TestKeys.metrics(properties);
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        OAuth2ClientProperties.ClientConfig client = new OAuth2ClientProperties.ClientConfig();
+        client.setClientId(CLIENT_ID);
+        client.setClientSecret(bcrypt.encode(SECRET));
+        client.setIdentityDomain(TestKeys.DOMAIN);
+        OAuth2ClientProperties clientProperties = new OAuth2ClientProperties();
+        clientProperties.setClients(List.of(client));
+        cryptoPools = new CryptoPools(clientProperties);
+
+        generator = TestKeys.generator(properties, keyRing, metrics);
+        validator = TestKeys.validator(properties, keyRing, new RevocationStore(properties), cryptoPools, metrics);
+        credentialsService = new ClientCredentialsService(new ClientRegistry(clientProperties, event -> {
+        }), bcrypt, new CredentialVerificationCache(clientProperties), new FailedCredentialCache(clientProperties),
+                cryptoPools, metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cryptoPools.shutdown();
+    }
+
+    /**
+     * Test: The shipped profile records every event with its fields
+     * Given: A recording started with jfr/security-service.jfc
+     * When: A client authenticates twice, a token is issued and validated twice
+     * Then: Authentication events show BCrypt then a cache hit, and verification events show a miss then a hit with the token's client, domain and algorithm
+     */
+    @Test
+    @DisplayName("The shipped profile records every event with its fields")
+    void shippedProfileRecordsEvents() throws Exception {
+        List<RecordedEvent> events;
+        try (Reader settings = new InputStreamReader(
+                getClass().getResourceAsStream("/jfr/security-service.jfc"), StandardCharsets.UTF_8);
+             Recording recording = new Recording(Configuration.create(settings))) {
+            recording.start();
+            exercise();
+            recording.stop();
+            events = dump(recording);
+        }
+
+        List<RecordedEvent> authentications = ofType(events, "com.shdev.securityservice.ClientAuthentication");
+        assertThat(authentications).hasSize(2);
+        assertThat(authentications.get(0).getString("clientId")).isEqualTo(CLIENT_ID);
+        assertThat(authentications.get(0).getString("result")).isEqualTo("authenticated");
+        assertThat(authentications.get(0).getBoolean("cacheHit")).isFalse();
+        assertThat(authentications.get(0).getLong("bcryptTime")).isPositive();
+        assertThat(authentications.get(1).getBoolean("cacheHit")).isTrue();
+        assertThat(authentications.get(1).getLong("bcryptTime")).isZero();
+
+        List<RecordedEvent> signings = ofType(events, "com.shdev.securityservice.TokenSigning");
+        assertThat(signings).hasSize(1);
+        assertThat(signings.get(0).getString("algorithm")).isEqualTo("HS256");
+        assertThat(signings.get(0).getBoolean("fastPath")).isTrue();
+
+        List<RecordedEvent> verifications = ofType(events, "com.shdev.securityservice.TokenVerification");
+        assertThat(verifications).hasSize(2);
+        assertThat(verifications).extracting(event -> event.getBoolean("cacheHit")).containsExactly(false, true);
+        assertThat(verifications.get(0).getString("clientId")).isEqualTo(CLIENT_ID);
+        assertThat(verifications.get(0).getString("domain")).isEqualTo(TestKeys.DOMAIN);
+        assertThat(verifications.get(0).getString("algorithm")).isEqualTo("HS256");
+    }
+
+    /**
+     * Test: The events are off in a JDK profile
+     * Given: A recording started with the JDK default profile
+     * When: The same operations run
+     * Then: No Security Service event is recorded
+     */
+    @Test
+    @DisplayName("The events are off in a JDK profile")
+    void eventsAreOffByDefault() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording(Configuration.getConfiguration("default"))) {
+            recording.start();
+            exercise();
+            recording.stop();
+            events = dump(recording);
+        }
+
+        assertThat(events).noneMatch(event -> event.getEventType().getName().startsWith("com.shdev.securityservice."));
+    }
+
+    private void exercise() throws Exception {
+        credentialsService.validateCredentials(CLIENT_ID, SECRET, TestKeys.DOMAIN);
+        credentialsService.validateCredentials(CLIENT_ID, SECRET, TestKeys.DOMAIN);
+        String token = generator.generateToken(CLIENT_ID, "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        validator.validateToken(token);
+        validator.validateToken(token);
+    }
+
+    private List<RecordedEvent> dump(Recording recording) throws Exception {
+        Path file = tempDir.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+                .toList();
+    }
+}
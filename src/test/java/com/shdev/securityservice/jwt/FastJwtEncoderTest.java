@@ -0,0 +1,92 @@
+package com.shdev.securityservice.jwt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for FastJwtEncoder.
+ */
+@DisplayName("FastJwtEncoder Tests")
+class FastJwtEncoderTest {
+
+    private static final Instant NOW = Instant.ofEpochSecond(1_765_881_544L);
+    private static final Instant EXPIRATION = NOW.plusSeconds(3600);
+    private static final String JTI = "NjE0ZDM3ZTgtOGJlNC00Mj";
+
+    @TempDir
+    Path keyDir;
+
+    /**
+     * Test: The fast encoder produces the same token as the jjwt builder
+     * Given: A key with a deterministic signature algorithm
+     * When: The same claims are encoded by both paths
+     * Then: The compact tokens are identical byte for byte
+     */
+    @ParameterizedTest
+    @EnumSource(value = JwtAlgorithm.class, names = {"RS256", "EdDSA", "HS256"})
+    @DisplayName("Output is byte-compatible with the jjwt builder")
+    void matchesJjwtOutput(JwtAlgorithm algorithm) {
+        JwtProperties properties = TestKeys.properties(keyDir, algorithm);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        FastJwtEncoder encoder = new FastJwtEncoder(properties);
+        JwtTokenGenerator generator = new JwtTokenGenerator(properties, keyRing, encoder, TestKeys.metrics(properties));
+        SigningKey key = keyRing.signingKey(TestKeys.DOMAIN);
+
+        String expected = generator.buildToken(key, "client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER"), JTI, NOW, EXPIRATION);
+        String first = encoder.encode(key, "client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER"), JTI, NOW, EXPIRATION);
+        String cached = encoder.encode(key, "client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER"), JTI, NOW, EXPIRATION);
+
+        assertThat(first).isEqualTo(expected);
+        assertThat(cached).isEqualTo(expected);
+    }
+
+    /**
+     * Test: ES256 tokens share header and payload with the jjwt builder and validate
+     * Given: An ES256 key (signatures are randomised)
+     * When: The same claims are encoded by both paths
+     * Then: Header and payload segments are identical and the fast token validates
+     */
+    @Test
+    @DisplayName("ES256 output matches jjwt apart from the signature")
+    void matchesJjwtForEs256() throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.ES256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        FastJwtEncoder encoder = new FastJwtEncoder(properties);
+        JwtTokenGenerator generator = new JwtTokenGenerator(properties, keyRing, encoder, TestKeys.metrics(properties));
+        SigningKey key = keyRing.signingKey(TestKeys.DOMAIN);
+        Instant now = Instant.now().truncatedTo(java.time.temporal.ChronoUnit.SECONDS);
+
+        String expected = generator.buildToken(key, "client", "scope.read", TestKeys.DOMAIN, List.of("USER"), JTI, now, now.plusSeconds(60));
+        String token = encoder.encode(key, "client", "scope.read", TestKeys.DOMAIN, List.of("USER"), JTI, now, now.plusSeconds(60));
+
+        assertThat(token.substring(0, token.lastIndexOf('.'))).isEqualTo(expected.substring(0, expected.lastIndexOf('.')));
+        assertThat(new TokenInfoDecoder(properties, keyRing, TestKeys.metrics(properties)).decode(token).jwtId())
+                .isEqualTo(JTI);
+    }
+
+    /**
+     * Test: Claims the template cannot express fall back to the jjwt builder
+     * Given: A blank version claim
+     * When: A token is encoded
+     * Then: The fast encoder declines and returns null
+     */
+    @Test
+    @DisplayName("Blank static claims fall back to jjwt")
+    void blankClaimsFallBack() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        properties.setVersion(" ");
+        SigningKey key = TestKeys.keyRing(properties).signingKey(TestKeys.DOMAIN);
+
+        assertThat(new FastJwtEncoder(properties).encode(key, "client", "scope.read", TestKeys.DOMAIN, List.of("USER"), JTI, NOW, EXPIRATION))
+                .isNull();
+    }
+}
@@ -0,0 +1,171 @@
+package com.shdev.securityservice.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Jwk;
+import io.jsonwebtoken.security.JwkSet;
+import io.jsonwebtoken.security.Jwks;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for JwksPublisher.
+ */
+@DisplayName("JwksPublisher Tests")
+class JwksPublisherTest {
+
+    @TempDir
+    Path keyDir;
+
+    /**
+     * Test: Published keys verify tokens signed by the service
+     * Given: A key ring with an asymmetric default key
+     * When: The JWK set is parsed by a standard JWK parser
+     * Then: The key with the token's kid verifies the token
+     */
+    @ParameterizedTest
+    @EnumSource(value = JwtAlgorithm.class, names = {"RS256", "ES256", "EdDSA"})
+    @DisplayName("Published keys verify issued tokens")
+    void publishedKeysVerifyTokens(JwtAlgorithm algorithm) {
+        JwtProperties properties = TestKeys.properties(keyDir, algorithm);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        IssuedToken token = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER"));
+
+        JwkSet jwks = Jwks.setParser().build().parse(json(new JwksPublisher(keyRing)));
+        Jwk<?> jwk = jwks.getKeys().stream()
+                .filter(key -> key.getId().equals(keyRing.signingKey(TestKeys.DOMAIN).keyId()))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(jwk.getAlgorithm()).isEqualTo(algorithm.headerName());
+        assertThat(jwk.get("crv")).isEqualTo(algorithm.curve());
+        assertThat(Jwts.parser().verifyWith((PublicKey) jwk.toKey()).build().parseSignedClaims(token.value())
+                .getPayload().getSubject()).isEqualTo("client");
+    }
+
+    /**
+     * Test: The JWK set is serialized once per key ring generation
+     * Given: A published JWK set
+     * When: It is requested again, then keys are rotated
+     * Then: The same document is reused until the rotation, after which both keys are published once each under a new
+     * ETag
+     */
+    @Test
+    @DisplayName("Document is reused until keys rotate")
+    void documentIsReusedUntilRotation() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.ES256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        JwksPublisher publisher = new JwksPublisher(keyRing);
+
+        String originalKeyId = keyRing.signingKey(TestKeys.DOMAIN).keyId();
+        JwksPublisher.JwksDocument first = publisher.document();
+        assertThat(publisher.document()).isSameAs(first);
+
+        TestKeys.writeKey(keyDir, JwtAlgorithm.ES256, "default");
+        keyRing.reload();
+        JwksPublisher.JwksDocument rotated = publisher.document();
+
+        assertThat(rotated.etag()).isNotEqualTo(first.etag());
+        assertThat(Jwks.setParser().build().parse(new String(rotated.body(), StandardCharsets.UTF_8)).getKeys())
+                .extracting(Jwk::getId)
+                .containsExactlyInAnyOrder(originalKeyId, keyRing.signingKey(TestKeys.DOMAIN).keyId());
+    }
+
+    /**
+     * Test: Secret keys are never published
+     * Given: An HS256 default key
+     * When: The JWK set is built
+     * Then: It contains no keys
+     */
+    @Test
+    @DisplayName("HS256 keys are not published")
+    void secretKeysAreNotPublished() {
+        JwtKeyRing keyRing = TestKeys.keyRing(TestKeys.properties(keyDir, JwtAlgorithm.HS256));
+
+        assertThat(json(new JwksPublisher(keyRing))).isEqualTo("{\"keys\":[]}");
+    }
+
+    /**
+     * Test: The curve is taken from the key rather than assumed
+     * Given: Signing keys on P-384 and Ed448, and one on a curve without a JWK name
+     * When: Their JWKs are built
+     * Then: P-384 and Ed448 are named with full-length coordinates, and the unnamed curve is refused
+     */
+    @Test
+    @DisplayName("JWK curve is derived from the key")
+    void curveIsDerivedFromKey() throws GeneralSecurityException {
+        Map<String, Object> p384 = JwksPublisher.jwk("p384", signingKey(JwtAlgorithm.ES256, ecKeyPair("secp384r1")));
+        Map<String, Object> ed448 = JwksPublisher.jwk("ed448",
+                signingKey(JwtAlgorithm.EdDSA, KeyPairGenerator.getInstance("Ed448").generateKeyPair()));
+
+        assertThat(p384).containsEntry("crv", "P-384");
+        assertThat(Base64.getUrlDecoder().decode((String) p384.get("x"))).hasSize(48);
+        assertThat(ed448).containsEntry("kty", "OKP").containsEntry("crv", "Ed448");
+        assertThat(Base64.getUrlDecoder().decode((String) ed448.get("x"))).hasSize(57);
+
+        ECPublicKey p256 = (ECPublicKey) ecKeyPair("secp256r1").getPublic();
+        ECParameterSpec params = p256.getParams();
+        ECParameterSpec unnamed = new ECParameterSpec(new EllipticCurve(params.getCurve().getField(),
+                params.getCurve().getA(), params.getCurve().getB().add(BigInteger.ONE)),
+                params.getGenerator(), params.getOrder(), params.getCofactor());
+        SigningKey unnamedKey = new SigningKey("unnamed", JwtAlgorithm.ES256, null,
+                new UnnamedCurveKey(p256.getW(), unnamed), null, null);
+        assertThatThrownBy(() -> JwksPublisher.jwk("unnamed", unnamedKey))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("unnamed");
+    }
+
+    private static KeyPair ecKeyPair(String curve) throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec(curve));
+        return generator.generateKeyPair();
+    }
+
+    private static SigningKey signingKey(JwtAlgorithm algorithm, KeyPair keyPair) {
+        return new SigningKey("test", algorithm, keyPair.getPrivate(), keyPair.getPublic(), null, null);
+    }
+
+    private record UnnamedCurveKey(ECPoint getW, ECParameterSpec getParams) implements ECPublicKey {
+
+        @Override
+        public String getAlgorithm() {
+            return "EC";
+        }
+
+        @Override
+        public String getFormat() {
+            return null;
+        }
+
+        @Override
+        public byte[] getEncoded() {
+            return null;
+        }
+    }
+
+    private static String json(JwksPublisher publisher) {
+        return new String(publisher.document().body(), StandardCharsets.UTF_8);
+    }
+}
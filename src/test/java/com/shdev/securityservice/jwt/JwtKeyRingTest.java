@@ -0,0 +1,209 @@
+package com.shdev.securityservice.jwt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for JwtKeyRing.
+ */
+@DisplayName("JwtKeyRing Tests")
+class JwtKeyRingTest {
+
+    @TempDir
+    Path keyDir;
+
+    /**
+     * Test: Replaced key files are published under a new key ID
+     * Given: A loaded key ring and a token signed with its key
+     * When: The key files are replaced and the ring reloads
+     * Then: Both keys sign under versioned key IDs, the old key still verifies during the overlap under its own and the
+     * configured key ID, and an event is published
+     */
+    @Test
+    @DisplayName("Rotated keys sign under a new key ID while the old key keeps verifying")
+    void rotationKeepsOldKeyDuringOverlap() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.ES256);
+        List<Object> events = new ArrayList<>();
+        JwtKeyRing keyRing = new JwtKeyRing(properties, events::add, TestKeys.metrics(properties));
+        SigningKey original = keyRing.signingKey(TestKeys.DOMAIN);
+
+        keyRing.reload();
+        assertThat(keyRing.signingKey(TestKeys.DOMAIN)).isSameAs(original);
+        assertThat(events).isEmpty();
+
+        TestKeys.writeKey(keyDir, JwtAlgorithm.ES256, "default");
+        keyRing.reload();
+        SigningKey rotated = keyRing.signingKey(TestKeys.DOMAIN);
+
+        assertThat(original.keyId()).startsWith("KeyPair_" + TestKeys.DOMAIN + "_");
+        assertThat(rotated.keyId()).startsWith("KeyPair_" + TestKeys.DOMAIN + "_").isNotEqualTo(original.keyId());
+        assertThat(keyRing.verificationKey(original.keyId())).isSameAs(original);
+        assertThat(keyRing.verificationKey("KeyPair_" + TestKeys.DOMAIN)).isSameAs(original);
+        assertThat(keyRing.verificationKey(rotated.keyId())).isSameAs(rotated);
+        assertThat(events).containsExactly(new JwtKeysRotatedEvent(List.of(rotated.keyId()), List.of()));
+    }
+
+    /**
+     * Test: Key IDs name one key material across restarts
+     * Given: Two key rings loaded from the same key files, as before and after a restart
+     * When: The key files are replaced and a third key ring is loaded
+     * Then: The first two sign under the same versioned key ID, the third under another, and the configured key ID is
+     * accepted for verification but never published
+     */
+    @Test
+    @DisplayName("Key IDs are stable across restarts and change with the key")
+    void keyIdsAreStableAcrossRestarts() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.ES256);
+        JwtKeyRing first = TestKeys.keyRing(properties);
+        JwtKeyRing restarted = TestKeys.keyRing(properties);
+        TestKeys.writeKey(keyDir, JwtAlgorithm.ES256, "default");
+        JwtKeyRing replaced = TestKeys.keyRing(properties);
+
+        String keyId = first.signingKey(TestKeys.DOMAIN).keyId();
+        assertThat(restarted.signingKey(TestKeys.DOMAIN).keyId()).isEqualTo(keyId);
+        assertThat(replaced.signingKey(TestKeys.DOMAIN).keyId()).isNotEqualTo(keyId);
+        assertThat(first.verificationKey("KeyPair_" + TestKeys.DOMAIN)).isSameAs(first.signingKey(TestKeys.DOMAIN));
+        assertThat(first.publishedKeys().keys()).containsOnlyKeys(keyId);
+    }
+
+    /**
+     * Test: Key IDs of earlier releases resolve to the default key for one token lifetime
+     * Given: Key rings with and without a token lifetime left since startup
+     * When: A KeyPair_ key ID of a domain without its own key, and an unknown key ID without that prefix, are looked up
+     * Then: The legacy key ID resolves to the default key only within the token lifetime, the other one never does
+     */
+    @Test
+    @DisplayName("Legacy key IDs resolve to the default key for one token lifetime")
+    void legacyKeyIdsResolveToDefaultKey() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.ES256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+
+        assertThat(keyRing.verificationKey("KeyPair_OTHER_DOMAIN")).isSameAs(keyRing.signingKey(TestKeys.DOMAIN));
+        assertThat(keyRing.verificationKey("OTHER_KEY")).isNull();
+
+        properties.setExpirationSeconds(0);
+        assertThat(TestKeys.keyRing(properties).verificationKey("KeyPair_OTHER_DOMAIN")).isNull();
+    }
+
+    /**
+     * Test: Rotated-out keys stop verifying after the overlap window
+     * Given: A key ring without overlap
+     * When: The key files are replaced and the ring reloads
+     * Then: The new key ID is versioned by the secret file's modification time, the old key ID is no longer accepted
+     * and the rotation event names it as retired
+     */
+    @Test
+    @DisplayName("Old keys are dropped after the overlap window")
+    void oldKeyRetiresAfterOverlap() throws IOException {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        properties.getRotation().setOverlap(Duration.ZERO);
+        List<JwtKeysRotatedEvent> events = new ArrayList<>();
+        JwtKeyRing keyRing = new JwtKeyRing(properties, event -> events.add((JwtKeysRotatedEvent) event),
+                TestKeys.metrics(properties));
+        String originalKeyId = keyRing.signingKey(TestKeys.DOMAIN).keyId();
+
+        JwtProperties.KeyConfig secret = TestKeys.writeKey(keyDir, JwtAlgorithm.HS256, "default");
+        keyRing.reload();
+
+        long modified = Files.getLastModifiedTime(Path.of(secret.getSecretKeyPath())).toMillis();
+        assertThat(keyRing.signingKey(TestKeys.DOMAIN).keyId())
+                .isEqualTo("KeyPair_" + TestKeys.DOMAIN + "_" + Long.toString(modified, Character.MAX_RADIX));
+        assertThat(keyRing.verificationKey(originalKeyId)).isNull();
+        assertThat(keyRing.verificationKey(keyRing.signingKey(TestKeys.DOMAIN).keyId())).isNotNull();
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.keyIds()).containsExactly(keyRing.signingKey(TestKeys.DOMAIN).keyId());
+            assertThat(event.retiredKeyIds()).contains(originalKeyId);
+        });
+    }
+
+    /**
+     * Test: Keys whose overlap window ends are retired without a key file change
+     * Given: A key ring whose key was rotated with a short overlap window
+     * When: The window passes and expired keys are retired
+     * Then: The old key ID is no longer accepted and a second event names it as retired
+     */
+    @Test
+    @DisplayName("Keys are retired when their overlap window ends")
+    void retirementIsPublished() throws InterruptedException {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        properties.getRotation().setOverlap(Duration.ofMillis(200));
+        List<JwtKeysRotatedEvent> events = new ArrayList<>();
+        JwtKeyRing keyRing = new JwtKeyRing(properties, event -> events.add((JwtKeysRotatedEvent) event),
+                TestKeys.metrics(properties));
+        String originalKeyId = keyRing.signingKey(TestKeys.DOMAIN).keyId();
+        TestKeys.writeKey(keyDir, JwtAlgorithm.HS256, "default");
+        keyRing.reload();
+        keyRing.retireExpired();
+        assertThat(events).hasSize(1);
+
+        Thread.sleep(300);
+        long generation = keyRing.generation();
+        keyRing.retireExpired();
+
+        assertThat(keyRing.verificationKey(originalKeyId)).isNull();
+        assertThat(keyRing.generation()).isEqualTo(generation + 1);
+        assertThat(events).hasSize(2);
+        assertThat(events.get(1).keyIds()).isEmpty();
+        assertThat(events.get(1).retiredKeyIds()).contains(originalKeyId);
+    }
+
+    /**
+     * Test: Missing key files do not prevent startup
+     * Given: Key paths that do not exist
+     * When: The key ring is created
+     * Then: Creation succeeds and signing fails with a clear error
+     */
+    @Test
+    @DisplayName("Missing key files fail signing, not startup")
+    void missingKeysFailOnUse() {
+        JwtProperties properties = new JwtProperties();
+        properties.setIdentityDomainName(TestKeys.DOMAIN);
+        properties.setPrivateKeyPath(keyDir.resolve("missing_private.pem").toString());
+        properties.setPublicKeyPath(keyDir.resolve("missing_public.pem").toString());
+
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+
+        assertThat(keyRing.verificationKey(null)).isNull();
+        assertThatThrownBy(() -> keyRing.signingKey(TestKeys.DOMAIN))
+                .hasMessageContaining("No signing key configured");
+    }
+
+    /**
+     * Test: Keys on a curve other than the algorithm's are rejected when loaded
+     * Given: A P-384 key pair configured for ES256 and an Ed448 key pair configured for EdDSA
+     * When: The keys are loaded
+     * Then: Loading fails naming the required curve
+     */
+    @Test
+    @DisplayName("Keys on the wrong curve are rejected at load time")
+    void wrongCurveIsRejected() throws GeneralSecurityException {
+        KeyPairGenerator ec = KeyPairGenerator.getInstance("EC");
+        ec.initialize(new ECGenParameterSpec("secp384r1"));
+        JwtProperties.KeyConfig p384 = TestKeys.writeKeyPair(keyDir, JwtAlgorithm.ES256, "p384", ec.generateKeyPair());
+        JwtProperties.KeyConfig ed448 = TestKeys.writeKeyPair(keyDir, JwtAlgorithm.EdDSA, "ed448",
+                KeyPairGenerator.getInstance("Ed448").generateKeyPair());
+
+        assertThatThrownBy(() -> JwtKeyLoader.loadPrivateKey(p384.getPrivateKeyPath(), JwtAlgorithm.ES256))
+                .hasMessageContaining("P-256");
+        assertThatThrownBy(() -> JwtKeyLoader.loadPublicKey(p384.getPublicKeyPath(), JwtAlgorithm.ES256))
+                .hasMessageContaining("P-256");
+        assertThatThrownBy(() -> JwtKeyLoader.loadPrivateKey(ed448.getPrivateKeyPath(), JwtAlgorithm.EdDSA))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> JwtKeyLoader.loadPublicKey(ed448.getPublicKeyPath(), JwtAlgorithm.EdDSA))
+                .isInstanceOf(RuntimeException.class);
+    }
+}
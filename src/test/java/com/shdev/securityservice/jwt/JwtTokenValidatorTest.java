@@ -0,0 +1,413 @@
+package com.shdev.securityservice.jwt;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for JwtTokenGenerator and JwtTokenValidator.
+ */
+@DisplayName("JwtTokenValidator Tests")
+class JwtTokenValidatorTest {
+
+    private static final CryptoPools CRYPTO_POOLS = new CryptoPools(new OAuth2ClientProperties());
+
+    @TempDir
+    Path keyDir;
+
+    /**
+     * Test: Tokens round-trip with every supported algorithm
+     * Given: A default key for the algorithm
+     * When: A token is generated and validated
+     * Then: The header carries the algorithm and the claims are returned
+     */
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    @DisplayName("Generated tokens validate with every algorithm")
+    void roundTrip(JwtAlgorithm algorithm) throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, algorithm);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+
+        IssuedToken token = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER"));
+        TokenInfoResponse tokenInfo = validator(properties, keyRing).validateToken(token.value());
+
+        assertThat(header(token.value())).contains("\"alg\":\"" + algorithm.headerName() + "\"")
+                .contains("\"kid\":\"KeyPair_" + TestKeys.DOMAIN + "_");
+        assertThat(tokenInfo.subject()).isEqualTo("client");
+        assertThat(tokenInfo.userRole()).isEqualTo("ADMIN:USER");
+        assertThat(tokenInfo.jwtId()).isEqualTo(token.jti());
+    }
+
+    /**
+     * Test: The streaming decoder and the jjwt parser agree
+     * Given: A token generated for the algorithm
+     * When: It is validated with the fast path enabled and disabled
+     * Then: Both return the same token information
+     */
+    @ParameterizedTest
+    @EnumSource(JwtAlgorithm.class)
+    @DisplayName("Fast path and jjwt path return the same token info")
+    void fastPathMatchesJjwt(JwtAlgorithm algorithm) throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, algorithm);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        IssuedToken token = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER"));
+
+        TokenInfoResponse fast = validator(properties, keyRing).validateToken(token.value());
+        properties.getFastPath().setVerification(false);
+        TokenInfoResponse jjwt = validator(properties, keyRing).validateToken(token.value());
+
+        assertThat(fast).isEqualTo(jjwt);
+        assertThat(fast.audience()).isEqualTo(properties.getAudience());
+        assertThat(fast.scope()).containsExactly("scope.read");
+        assertThat(fast.expiration()).isEqualTo(token.expiresAt().getEpochSecond());
+    }
+
+    /**
+     * Test: The streaming decoder rejects tampered and expired tokens
+     * Given: A valid HS256 token
+     * When: Its payload is altered, or an expired token is validated
+     * Then: The signature or expiry check fails
+     */
+    @Test
+    @DisplayName("Fast path rejects tampered and expired tokens")
+    void fastPathRejectsTamperedAndExpiredTokens() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        JwtTokenGenerator generator = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties));
+        String token = generator.generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload(token).replace("USER", "ADMIN").getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+        Instant past = Instant.now().minusSeconds(120).truncatedTo(ChronoUnit.SECONDS);
+        String expired = generator.buildToken(keyRing.signingKey(TestKeys.DOMAIN), "client", "scope.read",
+                TestKeys.DOMAIN, List.of("USER"), "jti", past, past.plusSeconds(60));
+
+        assertThatThrownBy(() -> validator(properties, keyRing).validateToken(tampered))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class)
+                .hasMessage("Invalid token signature");
+        assertThatThrownBy(() -> validator(properties, keyRing).validateToken(expired))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class)
+                .hasMessage("Token has expired");
+        assertThatThrownBy(() -> validator(properties, keyRing).validateToken(parts[0] + "." + parts[1]))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class)
+                .hasMessage("Malformed token");
+    }
+
+    /**
+     * Test: Domains with their own key configuration sign with that key
+     * Given: A default RS256 key and an ES256 key for another domain
+     * When: A token is generated for the other domain
+     * Then: It is signed with ES256 under the domain key ID and validates
+     */
+    @Test
+    @DisplayName("Per-domain keys select their own algorithm")
+    void perDomainKey() throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.RS256);
+        properties.getDomains().put("EC_DOMAIN", TestKeys.writeKey(keyDir, JwtAlgorithm.ES256, "ec"));
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+
+        IssuedToken token = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", "EC_DOMAIN", List.of("USER"));
+
+        assertThat(header(token.value())).contains("\"alg\":\"ES256\"").contains("\"kid\":\"KeyPair_EC_DOMAIN_");
+        assertThat(validator(properties, keyRing).validateToken(token.value()).domain()).isEqualTo("EC_DOMAIN");
+    }
+
+    /**
+     * Test: Tokens whose alg header does not match the key are rejected
+     * Given: An HS256 token carrying the key ID of the RS256 key
+     * When: The token is validated
+     * Then: Validation fails
+     */
+    @Test
+    @DisplayName("Algorithm mismatch is rejected")
+    void algorithmMismatchIsRejected() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.RS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+
+        String forged = Jwts.builder()
+                .header().add("kid", "KeyPair_" + TestKeys.DOMAIN).and()
+                .subject("attacker")
+                .signWith(Jwts.SIG.HS256.key().build())
+                .compact();
+
+        assertThatThrownBy(() -> validator(properties, keyRing).validateToken(forged))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class);
+    }
+
+    /**
+     * Test: Tokens with an unknown key ID are rejected
+     * Given: A token signed by another key under an unknown key ID
+     * When: The token is validated
+     * Then: Validation fails
+     */
+    @Test
+    @DisplayName("Unknown key ID is rejected")
+    void unknownKeyIdIsRejected() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.RS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+
+        String foreign = Jwts.builder()
+                .header().add("kid", "OTHER_KEY").and()
+                .subject("client")
+                .signWith(Jwts.SIG.RS256.keyPair().build().getPrivate())
+                .compact();
+
+        assertThatThrownBy(() -> validator(properties, keyRing).validateToken(foreign))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class);
+    }
+
+    /**
+     * Test: Rejections reuse stackless exceptions and are counted by reason
+     * Given: A validator on the fast path or the jjwt path, with its own meter registry
+     * When: A malformed token is validated twice and one with a tampered signature once
+     * Then: The shared exceptions of the reasons are thrown without stack trace, and the rejection counter is tagged by reason
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    @DisplayName("Rejections reuse stackless exceptions and are counted by reason")
+    void rejectionsAreStacklessAndCounted(boolean fastPath) {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        properties.getFastPath().setVerification(fastPath);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenMetrics metrics = new TokenMetrics(registry, new OAuth2ClientProperties(), properties);
+        JwtTokenValidator validator = TestKeys.validator(properties, keyRing, new RevocationStore(properties),
+                CRYPTO_POOLS, metrics);
+        String token = TestKeys.generator(properties, keyRing, metrics)
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        String[] parts = token.split("\\.");
+        String malformed = parts[0] + "." + parts[1];
+        String tampered = parts[0] + "." + parts[1] + "." + parts[2].substring(0, parts[2].length() - 4) + "AAAA";
+
+        assertThatThrownBy(() -> validator.validateToken(malformed)).isSameAs(RejectionReason.MALFORMED.exception());
+        assertThatThrownBy(() -> validator.validateToken(malformed)).isSameAs(RejectionReason.MALFORMED.exception());
+        assertThatThrownBy(() -> validator.validateToken(tampered))
+                .isSameAs(RejectionReason.INVALID_SIGNATURE.exception())
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+
+        assertThat(registry.get(TokenMetrics.REJECTION_COUNTER).tag("reason", "malformed").counter().count()).isEqualTo(2);
+        assertThat(registry.get(TokenMetrics.REJECTION_COUNTER).tag("reason", "invalid_signature").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Test: Foreign, oversized and tampered claims are rejected before the signature is checked
+     * Given: Tokens signed by the trusted key for another issuer and for another audience, the first with a broken
+     * signature, and a token over the length limit
+     * When: They are validated on the fast path or the jjwt path
+     * Then: Each is rejected for its claims or size, including the one with a broken signature
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    @DisplayName("Foreign, oversized and tampered claims are rejected before the signature is checked")
+    void precheckRejectsBeforeSignature(boolean fastPath) {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.RS256);
+        properties.getFastPath().setVerification(fastPath);
+        properties.getValidationCache().setEnabled(false);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        properties.setIssuer("https://other.example.com/oauth2");
+        String foreignIssuer = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        properties.setIssuer(TestKeys.ISSUER);
+        properties.setAudience(List.of("OTHER_RS"));
+        String foreignAudience = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        properties.setAudience(TestKeys.AUDIENCE);
+        JwtTokenValidator validator = validator(properties, keyRing);
+
+        assertThatThrownBy(() -> validator.validateToken(foreignIssuer)).isSameAs(RejectionReason.INVALID_ISSUER.exception());
+        assertThatThrownBy(() -> validator.validateToken(foreignIssuer.substring(0, foreignIssuer.length() - 4) + "AAAA"))
+                .isSameAs(RejectionReason.INVALID_ISSUER.exception());
+        assertThatThrownBy(() -> validator.validateToken(foreignAudience)).isSameAs(RejectionReason.INVALID_AUDIENCE.exception());
+        assertThatThrownBy(() -> validator.validateToken("e30." + "A".repeat(properties.getPrecheck().getMaxTokenLength()) + ".e30"))
+                .isSameAs(RejectionReason.OVERSIZED.exception())
+                .hasMessage("Malformed token");
+    }
+
+    /**
+     * Test: A revoked token is rejected even when it is already cached
+     * Given: A validator with validation cache on the fast path or the jjwt path, and a token it has validated once
+     * When: The token's jti is revoked and the token is validated again
+     * Then: The token is rejected as revoked while another token of the same client stays valid
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    @DisplayName("A revoked token is rejected even when it is already cached")
+    void revokedTokenIsRejected(boolean fastPath) throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        properties.getFastPath().setVerification(fastPath);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        RevocationStore revocationStore = new RevocationStore(properties);
+        JwtTokenValidator validator = TestKeys.validator(properties, keyRing, revocationStore, CRYPTO_POOLS,
+                TestKeys.metrics(properties));
+        JwtTokenGenerator generator = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties));
+        String token = generator.generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        String other = generator.generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        TokenInfoResponse info = validator.validateToken(token);
+
+        revocationStore.revoke(info.jwtId(), info.expiration());
+
+        assertThatThrownBy(() -> validator.validateToken(token)).isSameAs(RejectionReason.REVOKED.exception());
+        assertThat(validator.validateToken(other).client()).isEqualTo("client");
+        revocationStore.shutdown();
+    }
+
+    /**
+     * Test: Pre-checks on concurrent virtual threads share pooled buffers safely
+     * Given: Tokens for distinct clients, more than the buffer pool holds
+     * When: Each is pre-checked on its own virtual thread, as requests are in virtual thread mode
+     * Then: Every pre-check reads the claims of its own token
+     */
+    @Test
+    @DisplayName("Concurrent pre-checks on virtual threads read their own tokens")
+    void concurrentPrechecksReadOwnTokens() throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        JwtTokenGenerator generator = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties));
+        TokenInfoDecoder decoder = new TokenInfoDecoder(properties, keyRing, TestKeys.metrics(properties));
+        int count = 200;
+        List<String> tokens = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tokens.add(generator.generateToken("client-" + i, "scope.read", TestKeys.DOMAIN, List.of("USER")).value());
+        }
+
+        String[] subjects = new String[count];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < 20; round++) {
+                        subjects[index] = decoder.precheck(tokens.get(index)).response().subject();
+                    }
+                } catch (Exception e) {
+                    subjects[index] = e.toString();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertThat(subjects[i]).isEqualTo("client-" + i);
+        }
+    }
+
+    /**
+     * Test: Tokens rejected by the pre-check never occupy the verification pool
+     * Given: A verification pool with one busy worker and a queue of one, on the fast path or the jjwt path
+     * When: Tokens with an unknown key, an expired exp and a foreign issuer are flooded in, then a valid uncached token
+     * is validated and the worker is released
+     * Then: The flood is rejected for its claims without any call shed by the pool, and the valid token is served
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    @DisplayName("Tokens rejected by the pre-check never occupy the verification pool")
+    void precheckRejectionsBypassVerificationPool(boolean fastPath) throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        properties.getFastPath().setVerification(fastPath);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        JwtTokenGenerator generator = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties));
+        Instant past = Instant.now().minusSeconds(120).truncatedTo(ChronoUnit.SECONDS);
+        String expired = generator.buildToken(keyRing.signingKey(TestKeys.DOMAIN), "client", "scope.read",
+                TestKeys.DOMAIN, List.of("USER"), "jti", past, past.plusSeconds(60));
+        String unknownKey = Jwts.builder()
+                .header().add("kid", "OTHER_KEY").and()
+                .subject("client")
+                .signWith(Jwts.SIG.HS256.key().build())
+                .compact();
+        String valid = generator.generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        properties.setIssuer("https://other.example.com/oauth2");
+        String foreignIssuer = TestKeys.generator(properties, keyRing, TestKeys.metrics(properties))
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        properties.setIssuer(TestKeys.ISSUER);
+
+        OAuth2ClientProperties clientProperties = new OAuth2ClientProperties();
+        clientProperties.getCrypto().getVerification().setThreads(1);
+        clientProperties.getCrypto().getVerification().setQueueDepth(1);
+        clientProperties.getCrypto().getVerification().setDeadline(Duration.ofSeconds(5));
+        CryptoPools cryptoPools = new CryptoPools(clientProperties);
+        JwtTokenValidator validator = TestKeys.validator(properties, keyRing, new RevocationStore(properties),
+                cryptoPools, TestKeys.metrics(properties));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            try {
+                cryptoPools.verification().call(() -> {
+                    started.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 100; i++) {
+            assertThatThrownBy(() -> validator.validateToken(unknownKey)).isSameAs(RejectionReason.UNKNOWN_KEY.exception());
+            assertThatThrownBy(() -> validator.validateToken(expired)).isSameAs(RejectionReason.EXPIRED.exception());
+            assertThatThrownBy(() -> validator.validateToken(foreignIssuer))
+                    .isSameAs(RejectionReason.INVALID_ISSUER.exception());
+        }
+        assertThat(cryptoPools.verification().queueSize()).isZero();
+        assertThat(cryptoPools.verification().rejectedCount()).isZero();
+
+        CompletableFuture<TokenInfoResponse> served = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                served.complete(validator.validateToken(valid));
+            } catch (Exception e) {
+                served.completeExceptionally(e);
+            }
+        });
+        release.countDown();
+
+        assertThat(served.get(5, TimeUnit.SECONDS).client()).isEqualTo("client");
+        cryptoPools.shutdown();
+    }
+
+    private static JwtTokenValidator validator(JwtProperties properties, JwtKeyRing keyRing) {
+        return TestKeys.validator(properties, keyRing, new RevocationStore(properties), CRYPTO_POOLS,
+                TestKeys.metrics(properties));
+    }
+
+    private static String payload(String token) {
+        String[] parts = token.split("\\.");
+        return new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+    }
+
+    private static String header(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,179 @@
+package com.shdev.securityservice.jwt;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Generates throwaway key files and matching {@link JwtProperties} for tests.
+ */
+public final class TestKeys {
+
+    public static final String ISSUER = "https://localhost:8090/oauth2";
+    public static final List<String> AUDIENCE = List.of("https://localhost:8090/oauth2", "DEV_TokenPOC_RS");
+    public static final String DOMAIN = "TEST_DOMAIN";
+
+    private TestKeys() {
+    }
+
+    /**
+     * Write a new key for the algorithm into the directory and return properties using it as the default key, with
+     * revocation enabled and its log in the same directory.
+     *
+     * @param dir       directory for the key files
+     * @param algorithm signing algorithm
+     * @return JWT properties pointing at the generated key
+     */
+    public static JwtProperties properties(Path dir, JwtAlgorithm algorithm) {
+        JwtProperties properties = new JwtProperties();
+        properties.setIssuer(ISSUER);
+        properties.setAudience(AUDIENCE);
+        properties.setIdentityDomainName(DOMAIN);
+        properties.getRevocation().setEnabled(true);
+        properties.getRevocation().setFile(dir.resolve("revocations.log").toString());
+
+        JwtProperties.KeyConfig key = writeKey(dir, algorithm, "default");
+        properties.setAlgorithm(algorithm);
+        properties.setPrivateKeyPath(key.getPrivateKeyPath());
+        properties.setPublicKeyPath(key.getPublicKeyPath());
+        properties.setSecretKeyPath(key.getSecretKeyPath());
+        return properties;
+    }
+
+    /**
+     * Key ring for the properties that discards its rotation events.
+     *
+     * @param properties JWT properties
+     * @return loaded key ring
+     */
+    public static JwtKeyRing keyRing(JwtProperties properties) {
+        return new JwtKeyRing(properties, event -> {
+        }, metrics(properties));
+    }
+
+    /**
+     * Token metrics recording into a fresh in-memory registry.
+     *
+     * @param properties JWT properties
+     * @return token metrics
+     */
+    public static TokenMetrics metrics(JwtProperties properties) {
+        return new TokenMetrics(new SimpleMeterRegistry(), new OAuth2ClientProperties(), properties);
+    }
+
+    /**
+     * Token generator using the fast encoder.
+     *
+     * @param properties JWT properties
+     * @param keyRing    key ring to sign with
+     * @param metrics    token metrics
+     * @return token generator
+     */
+    public static JwtTokenGenerator generator(JwtProperties properties, JwtKeyRing keyRing, TokenMetrics metrics) {
+        return new JwtTokenGenerator(properties, keyRing, new FastJwtEncoder(properties), metrics);
+    }
+
+    /**
+     * Token validator with its own verified token cache and decoder.
+     *
+     * @param properties      JWT properties
+     * @param keyRing         key ring to verify with
+     * @param revocationStore revocation store to consult
+     * @param cryptoPools     pools running signature verification
+     * @param metrics         token metrics shared by the decoder and the validator
+     * @return token validator
+     */
+    public static JwtTokenValidator validator(JwtProperties properties, JwtKeyRing keyRing,
+                                              RevocationStore revocationStore, CryptoPools cryptoPools,
+                                              TokenMetrics metrics) {
+        return new JwtTokenValidator(properties, keyRing, new VerifiedTokenCache(properties),
+                new TokenInfoDecoder(properties, keyRing, metrics), revocationStore, cryptoPools, metrics);
+    }
+
+    /**
+     * Write a new key for the algorithm into the directory.
+     *
+     * @param dir       directory for the key files
+     * @param algorithm signing algorithm
+     * @param name      file name prefix
+     * @return key configuration pointing at the generated files
+     */
+    public static JwtProperties.KeyConfig writeKey(Path dir, JwtAlgorithm algorithm, String name) {
+        if (!algorithm.isSymmetric()) {
+            return writeKeyPair(dir, algorithm, name, generateKeyPair(algorithm));
+        }
+        JwtProperties.KeyConfig config = new JwtProperties.KeyConfig();
+        config.setAlgorithm(algorithm);
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        Path secretPath = dir.resolve(name + "_secret.key");
+        try {
+            Files.writeString(secretPath, Base64.getEncoder().encodeToString(secret));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        config.setSecretKeyPath(secretPath.toString());
+        return config;
+    }
+
+    /**
+     * Write the given key pair into the directory as PEM files.
+     *
+     * @param dir       directory for the key files
+     * @param algorithm signing algorithm
+     * @param name      file name prefix
+     * @param keyPair   key pair to write
+     * @return key configuration pointing at the written files
+     */
+    public static JwtProperties.KeyConfig writeKeyPair(Path dir, JwtAlgorithm algorithm, String name, KeyPair keyPair) {
+        JwtProperties.KeyConfig config = new JwtProperties.KeyConfig();
+        config.setAlgorithm(algorithm);
+        try {
+            Path privatePath = dir.resolve(name + "_private_key.pem");
+            Path publicPath = dir.resolve(name + "_public_key.pem");
+            Files.writeString(privatePath, pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+            Files.writeString(publicPath, pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+            config.setPrivateKeyPath(privatePath.toString());
+            config.setPublicKeyPath(publicPath.toString());
+            return config;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static KeyPair generateKeyPair(JwtAlgorithm algorithm) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(algorithm.keyAlgorithm());
+            switch (algorithm) {
+                case RS256 -> generator.initialize(2048);
+                case ES256 -> generator.initialize(new ECGenParameterSpec("secp256r1"));
+                default -> {
+                    // Ed25519 has no parameters
+                }
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        String body = Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(encoded);
+        return "-----BEGIN " + type + "-----\n" + body + "\n-----END " + type + "-----\n";
+    }
+}
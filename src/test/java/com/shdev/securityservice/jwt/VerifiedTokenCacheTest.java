@@ -0,0 +1,185 @@
+package com.shdev.securityservice.jwt;
+
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for VerifiedTokenCache.
+ */
+@DisplayName("VerifiedTokenCache Tests")
+class VerifiedTokenCacheTest {
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(new JwtProperties());
+
+    /**
+     * Test: Repeated lookups of the same token verify it only once
+     * Given: A verifier that counts invocations
+     * When: The same token is looked up twice
+     * Then: The verifier runs once and the second lookup is a hit
+     */
+    @Test
+    @DisplayName("Repeated lookups hit the cache")
+    void repeatedLookupsHitCache() throws Exception {
+        AtomicInteger verifications = new AtomicInteger();
+        TokenInfoResponse tokenInfo = claimsExpiringIn(3600);
+
+        cache.get("token-a", token -> {
+            verifications.incrementAndGet();
+            return tokenInfo;
+        });
+        TokenInfoResponse cached = cache.get("token-a", token -> {
+            verifications.incrementAndGet();
+            return tokenInfo;
+        });
+
+        assertThat(cached).isSameAs(tokenInfo);
+        assertThat(verifications).hasValue(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    /**
+     * Test: Failed verifications are propagated and not cached
+     * Given: A verifier that rejects the token
+     * When: The token is looked up twice
+     * Then: Both lookups throw and the verifier runs each time
+     */
+    @Test
+    @DisplayName("Failed verifications are not cached")
+    void failuresAreNotCached() {
+        AtomicInteger verifications = new AtomicInteger();
+        VerifiedTokenCache.TokenVerifier rejecting = token -> {
+            verifications.incrementAndGet();
+            throw new JwtTokenValidator.TokenValidationException("Invalid token signature", null);
+        };
+
+        assertThatThrownBy(() -> cache.get("bad-token", rejecting))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class)
+                .hasMessage("Invalid token signature");
+        assertThatThrownBy(() -> cache.get("bad-token", rejecting))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class);
+
+        assertThat(verifications).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Test: Concurrent misses on one token are collapsed
+     * Given: Several threads looking up the same uncached token at once
+     * When: The verifier is slow
+     * Then: The verifier runs exactly once
+     */
+    @Test
+    @DisplayName("Concurrent misses are collapsed into one verification")
+    void concurrentMissesAreCollapsed() throws Exception {
+        AtomicInteger verifications = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        TokenInfoResponse tokenInfo = claimsExpiringIn(3600);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return cache.get("token-b", token -> {
+                        verifications.incrementAndGet();
+                        sleep();
+                        return tokenInfo;
+                    });
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                assertThat(future.get()).isSameAs(tokenInfo);
+            }
+        }
+
+        assertThat(verifications).hasValue(1);
+    }
+
+    /**
+     * Test: Tokens past their expiry are not served from the cache
+     * Given: Token information that is already expired
+     * When: The token is looked up twice
+     * Then: The verifier runs on every lookup
+     */
+    @Test
+    @DisplayName("Expired tokens are not served from the cache")
+    void expiredTokensAreNotServed() throws Exception {
+        AtomicInteger verifications = new AtomicInteger();
+        TokenInfoResponse expired = claimsExpiringIn(-10);
+
+        cache.get("token-c", token -> {
+            verifications.incrementAndGet();
+            return expired;
+        });
+        cache.get("token-c", token -> {
+            verifications.incrementAndGet();
+            return expired;
+        });
+
+        assertThat(verifications).hasValue(2);
+    }
+
+    /**
+     * Test: Tokens verified with a retired key are no longer served from the cache
+     * Given: Cached tokens signed under two key IDs
+     * When: One key ID is retired
+     * Then: Only the token of that key ID is verified again on its next lookup
+     */
+    @Test
+    @DisplayName("Retiring a key drops the tokens it verified")
+    void retiredKeysAreInvalidated() throws Exception {
+        AtomicInteger verifications = new AtomicInteger();
+        TokenInfoResponse tokenInfo = claimsExpiringIn(3600);
+        VerifiedTokenCache.TokenVerifier verifier = token -> {
+            verifications.incrementAndGet();
+            return tokenInfo;
+        };
+        String retired = token("KeyPair_old");
+        String kept = token("KeyPair_new");
+        cache.get(retired, verifier);
+        cache.get(kept, verifier);
+
+        cache.onKeysRotated(new JwtKeysRotatedEvent(List.of(), List.of("KeyPair_old")));
+        cache.get(retired, verifier);
+        cache.get(kept, verifier);
+
+        assertThat(verifications).hasValue(3);
+    }
+
+    private static String token(String keyId) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String header = "{\"alg\":\"HS256\",\"kid\":\"" + keyId + "\"}";
+        return encoder.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + ".e30.c2ln";
+    }
+
+    private static TokenInfoResponse claimsExpiringIn(long seconds) {
+        return TokenInfoResponse.builder()
+                .subject("client")
+                .expiration(Instant.now().plusSeconds(seconds).getEpochSecond())
+                .build();
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.shdev.securityservice.metrics;
+
+import com.shdev.securityservice.concurrent.BoundedCryptoPool;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.TestKeys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for RequestTiming and the Server-Timing sampling.
+ */
+@DisplayName("RequestTiming Tests")
+class RequestTimingTest {
+
+    @TempDir
+    Path keyDir;
+
+    private TokenMetrics metrics;
+    private BoundedCryptoPool pool;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new TokenMetrics(new SimpleMeterRegistry(), new OAuth2ClientProperties(),
+                TestKeys.properties(keyDir, JwtAlgorithm.HS256));
+        pool = new BoundedCryptoPool("test", 1, 1, Duration.ofSeconds(1), Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.bind(null);
+        pool.shutdown();
+    }
+
+    /**
+     * Test: Recorded stages are rendered as Server-Timing metrics
+     * Given: A timing bound to the current thread
+     * When: auth is recorded twice, key_load once, and bcrypt once on a crypto pool thread
+     * Then: The header sums auth, carries bcrypt from the pool thread, leaves out key_load and ends with total, and the
+     * pool thread is unbound afterwards
+     */
+    @Test
+    @DisplayName("Recorded stages are rendered as Server-Timing metrics")
+    void stagesAreRenderedAsServerTiming() {
+        long start = System.nanoTime();
+        RequestTiming timing = new RequestTiming(start);
+        RequestTiming.bind(timing);
+
+        metrics.success(TokenMetrics.Stage.AUTH_PARSE, TestKeys.DOMAIN, 0, TimeUnit.MICROSECONDS.toNanos(21));
+        metrics.success(TokenMetrics.Stage.AUTH_PARSE, TestKeys.DOMAIN, 0, TimeUnit.MICROSECONDS.toNanos(1_500));
+        metrics.success(TokenMetrics.Stage.KEY_LOAD, TestKeys.DOMAIN, 0, TimeUnit.MILLISECONDS.toNanos(7));
+        pool.call(() -> {
+            metrics.success(TokenMetrics.Stage.BCRYPT, TestKeys.DOMAIN, 0, TimeUnit.MILLISECONDS.toNanos(61));
+            return null;
+        });
+
+        assertThat(timing.headerValue(start + TimeUnit.MILLISECONDS.toNanos(64)))
+                .isEqualTo("auth;dur=1.521, bcrypt;dur=61.000, total;dur=64.000");
+        RequestTiming.bind(null);
+        assertThat(pool.call(RequestTiming::current)).isNull();
+    }
+
+    /**
+     * Test: Only sampled requests carry a timing
+     * Given: Interceptors with sample rates 0 and 1
+     * When: Each handles a request
+     * Then: The first binds nothing, the second binds a timing until the request completes
+     */
+    @Test
+    @DisplayName("Only sampled requests carry a timing")
+    void onlySampledRequestsCarryTiming() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth2/rest/token");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor(0.0).preHandle(request, response, null);
+        assertThat(RequestTiming.current()).isNull();
+
+        ServerTimingInterceptor always = interceptor(1.0);
+        always.preHandle(request, response, null);
+        assertThat(RequestTiming.current()).isNotNull();
+        always.afterCompletion(request, response, null, null);
+        assertThat(RequestTiming.current()).isNull();
+    }
+
+    private static ServerTimingInterceptor interceptor(double sampleRate) {
+        OAuth2ClientProperties properties = new OAuth2ClientProperties();
+        properties.getServerTiming().setSampleRate(sampleRate);
+        return new ServerTimingInterceptor(properties);
+    }
+}
@@ -0,0 +1,107 @@
+package com.shdev.securityservice.metrics;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.JwtTokenGenerator;
+import com.shdev.securityservice.jwt.JwtTokenValidator;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.revocation.RevocationStore;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for TokenMetrics.
+ */
+@DisplayName("TokenMetrics Tests")
+class TokenMetricsTest {
+
+    @TempDir
+    Path keyDir;
+
+    private JwtProperties properties;
+    private SimpleMeterRegistry registry;
+    private TokenMetrics metrics;
+    private CryptoPools cryptoPools;
+
+    @BeforeEach
+    void setUp() {
+        properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        registry = new SimpleMeterRegistry();
+        metrics = new TokenMetrics(registry, new OAuth2ClientProperties(), properties);
+        cryptoPools = new CryptoPools(new OAuth2ClientProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cryptoPools.shutdown();
+    }
+
+    /**
+     * Test: Domains that are not configured are not used as tag values
+     * Given: Token metrics with only TEST_DOMAIN configured
+     * When: The same stage is recorded for TEST_DOMAIN, an arbitrary domain and no domain
+     * Then: TEST_DOMAIN gets its own timer and the other two share the unknown timer
+     */
+    @Test
+    @DisplayName("Domains that are not configured are not used as tag values")
+    void unconfiguredDomainsAreRecordedAsUnknown() {
+        long start = System.nanoTime();
+        metrics.success(TokenMetrics.Stage.AUTH_PARSE, TestKeys.DOMAIN, start);
+        metrics.success(TokenMetrics.Stage.AUTH_PARSE, "attacker-chosen-" + start, start);
+        metrics.success(TokenMetrics.Stage.AUTH_PARSE, null, start);
+
+        assertThat(stageTimer("auth_parse", TestKeys.DOMAIN, TokenMetrics.NONE).count()).isEqualTo(1);
+        assertThat(stageTimer("auth_parse", TokenMetrics.UNKNOWN, TokenMetrics.NONE).count()).isEqualTo(2);
+        assertThat(registry.find(TokenMetrics.STAGE_TIMER).timers()).hasSize(2);
+    }
+
+    /**
+     * Test: Issuance and introspection record their stages
+     * Given: A generator and a validator without validation cache sharing the token metrics
+     * When: A token is issued and validated, then a tampered token is validated
+     * Then: sign, verify and map succeed for the token's domain, and the tampered token is a verify failure with invalid_token
+     */
+    @Test
+    @DisplayName("Issuance and introspection record their stages")
+    void issuanceAndIntrospectionRecordStages() throws Exception {
+        properties.getValidationCache().setEnabled(false);
+        JwtKeyRing keyRing = new JwtKeyRing(properties, event -> {
+        }, metrics);
+        JwtTokenGenerator generator = TestKeys.generator(properties, keyRing, metrics);
+        JwtTokenValidator validator = TestKeys.validator(properties, keyRing, new RevocationStore(properties),
+                cryptoPools, metrics);
+
+        String token = generator.generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        validator.validateToken(token);
+        assertThatThrownBy(() -> validator.validateToken(token.substring(0, token.length() - 2) + "AA"))
+                .isInstanceOf(JwtTokenValidator.TokenValidationException.class);
+
+        assertThat(stageTimer("key_load", TestKeys.DOMAIN, TokenMetrics.NONE).count()).isEqualTo(1);
+        assertThat(stageTimer("sign", TestKeys.DOMAIN, TokenMetrics.NONE).count()).isEqualTo(1);
+        assertThat(stageTimer("verify", TestKeys.DOMAIN, TokenMetrics.NONE).count()).isEqualTo(1);
+        assertThat(stageTimer("map", TestKeys.DOMAIN, TokenMetrics.NONE).count()).isEqualTo(1);
+        assertThat(stageTimer("verify", TokenMetrics.UNKNOWN, "invalid_token").count()).isEqualTo(1);
+    }
+
+    private Timer stageTimer(String stage, String domain, String error) {
+        return registry.get(TokenMetrics.STAGE_TIMER)
+                .tag("stage", stage)
+                .tag("domain", domain)
+                .tag("error", error)
+                .timer();
+    }
+}
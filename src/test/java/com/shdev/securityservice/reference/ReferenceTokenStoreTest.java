@@ -0,0 +1,138 @@
+package com.shdev.securityservice.reference;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResponse;
+import com.shdev.securityservice.jwt.IssuedToken;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.RejectionReason;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.revocation.RevocationStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for ReferenceTokenStore.
+ */
+@DisplayName("ReferenceTokenStore Tests")
+class ReferenceTokenStoreTest {
+
+    @TempDir
+    Path keyDir;
+
+    /**
+     * Test: A reference token resolves to the token info of the equivalent JWT
+     * Given: A JWT and a reference token issued for the same client, scope, domain and roles
+     * When: The JWT is validated and the reference token is resolved
+     * Then: Both give the same token info apart from the per-token jti and times, which match the issued reference
+     */
+    @Test
+    @DisplayName("A reference token resolves to the token info of the equivalent JWT")
+    void resolvesLikeJwt() throws Exception {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.RS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        CryptoPools cryptoPools = new CryptoPools(new OAuth2ClientProperties());
+        TokenMetrics metrics = TestKeys.metrics(properties);
+        String jwt = TestKeys.generator(properties, keyRing, metrics)
+                .generateToken("client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER")).value();
+        TokenInfoResponse jwtInfo = TestKeys.validator(properties, keyRing, new RevocationStore(properties),
+                cryptoPools, metrics).validateToken(jwt);
+        cryptoPools.shutdown();
+        ReferenceTokenStore store = store(properties, 10);
+
+        IssuedToken reference = store.issue("client", "scope.read", TestKeys.DOMAIN, List.of("ADMIN", "USER"));
+        TokenInfoResponse info = store.resolve(reference.value());
+
+        assertThat(ReferenceTokenStore.isReferenceToken(reference.value())).isTrue();
+        assertThat(ReferenceTokenStore.isReferenceToken(jwt)).isFalse();
+        assertThat(info).usingRecursiveComparison()
+                .ignoringFields("jwtId", "expiration", "issuedAt")
+                .isEqualTo(jwtInfo);
+        assertThat(info.jwtId()).isEqualTo(reference.jti());
+        assertThat(info.issuedAt()).isEqualTo(reference.issuedAt().getEpochSecond());
+        assertThat(info.expiration()).isEqualTo(reference.expiresAt().getEpochSecond());
+        store.shutdown();
+    }
+
+    /**
+     * Test: Guessed, removed and expired handles are rejected
+     * Given: A store with two reference tokens
+     * When: A handle with a changed secret, a random handle and a removed handle are resolved, then the store is
+     * purged after the other token's expiry
+     * Then: The first three are unknown, the remaining token resolves until it is purged, and the store is empty
+     */
+    @Test
+    @DisplayName("Guessed, removed and expired handles are rejected")
+    void unknownHandlesAreRejected() throws Exception {
+        ReferenceTokenStore store = store(TestKeys.properties(keyDir, JwtAlgorithm.HS256), 10);
+        String removed = store.issue("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value();
+        IssuedToken kept = store.issue("client", "scope.read", TestKeys.DOMAIN, List.of("USER"));
+        String guessed = kept.value().substring(0, 40) + (kept.value().endsWith("AAA") ? "BBB" : "AAA");
+
+        assertThat(store.remove(removed)).isTrue();
+        assertThat(store.remove(removed)).isFalse();
+        assertThatThrownBy(() -> store.resolve(guessed)).isSameAs(RejectionReason.UNKNOWN_REFERENCE.exception());
+        assertThatThrownBy(() -> store.resolve("A".repeat(43))).isSameAs(RejectionReason.UNKNOWN_REFERENCE.exception());
+        assertThatThrownBy(() -> store.resolve(removed)).isSameAs(RejectionReason.UNKNOWN_REFERENCE.exception());
+        assertThat(store.resolve(kept.value()).jwtId()).isEqualTo(kept.jti());
+
+        assertThat(store.purgeExpired(kept.expiresAt().getEpochSecond() + 1)).isEqualTo(1);
+        assertThatThrownBy(() -> store.resolve(kept.value())).isSameAs(RejectionReason.UNKNOWN_REFERENCE.exception());
+        assertThat(store.size()).isZero();
+        store.shutdown();
+    }
+
+    /**
+     * Test: The store is bounded and stays consistent as entries come and go
+     * Given: A store for 5,000 tokens
+     * When: It is filled, one more token is requested, then every other token is removed and 2,500 more are issued
+     * Then: The extra request gets no handle, and afterwards exactly the removed tokens are unknown
+     */
+    @Test
+    @DisplayName("The store is bounded and stays consistent as entries come and go")
+    void storeIsBounded() throws Exception {
+        ReferenceTokenStore store = store(TestKeys.properties(keyDir, JwtAlgorithm.HS256), 5_000);
+        List<String> handles = IntStream.range(0, 5_000)
+                .mapToObj(i -> store.issue("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value())
+                .toList();
+        assertThat(store.issue("client", "scope.read", TestKeys.DOMAIN, List.of("USER"))).isNull();
+
+        IntStream.range(0, 5_000).filter(i -> i % 2 == 0).forEach(i -> store.remove(handles.get(i)));
+        List<String> added = IntStream.range(0, 2_500)
+                .mapToObj(i -> store.issue("client", "scope.read", TestKeys.DOMAIN, List.of("USER")).value())
+                .toList();
+
+        assertThat(store.size()).isEqualTo(5_000);
+        for (int i = 0; i < handles.size(); i++) {
+            String handle = handles.get(i);
+            if (i % 2 == 0) {
+                assertThatThrownBy(() -> store.resolve(handle)).isSameAs(RejectionReason.UNKNOWN_REFERENCE.exception());
+            } else {
+                assertThat(store.resolve(handle).client()).isEqualTo("client");
+            }
+        }
+        for (String handle : added) {
+            assertThat(store.resolve(handle).client()).isEqualTo("client");
+        }
+        assertThat(Instant.ofEpochSecond(store.resolve(added.get(0)).expiration())).isAfter(Instant.now());
+        store.shutdown();
+    }
+
+    private static ReferenceTokenStore store(JwtProperties properties, int maxEntries) {
+        OAuth2ClientProperties clientProperties = new OAuth2ClientProperties();
+        clientProperties.getReferenceTokens().setMaxEntries(maxEntries);
+        return new ReferenceTokenStore(clientProperties, properties, TestKeys.metrics(properties));
+    }
+}
@@ -0,0 +1,153 @@
+package com.shdev.securityservice.revocation;
+
+import com.shdev.securityservice.jwt.JwtProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for RevocationStore, its Bloom filter and its log.
+ */
+@DisplayName("RevocationStore Tests")
+class RevocationStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    /**
+     * Test: Revocations survive a restart until their token expires
+     * Given: A store with one revocation of a live token and one of an already expired token
+     * When: The store is reopened, then purged at a time after the live token's expiry and reopened again
+     * Then: Only the live revocation is replayed, and after the purge the compacted log is empty
+     */
+    @Test
+    @DisplayName("Revocations survive a restart until their token expires")
+    void revocationsSurviveRestartUntilExpiry() {
+        long now = Instant.now().getEpochSecond();
+        RevocationStore store = new RevocationStore(properties(DataSize.ofMegabytes(1)));
+        store.revoke("live-jti", now + 3600);
+        store.revoke("expired-jti", now - 1);
+        store.revoke("live-jti", now + 3600);
+        assertThat(store.size()).isEqualTo(2);
+        store.shutdown();
+
+        RevocationStore reopened = new RevocationStore(properties(DataSize.ofMegabytes(1)));
+        assertThat(reopened.isRevoked("live-jti")).isTrue();
+        assertThat(reopened.isRevoked("expired-jti")).isFalse();
+        assertThat(reopened.isRevoked("never-revoked")).isFalse();
+        assertThat(reopened.isRevoked(null)).isFalse();
+
+        assertThat(reopened.purgeExpired(now + 3601)).isEqualTo(1);
+        assertThat(reopened.isRevoked("live-jti")).isFalse();
+        reopened.shutdown();
+        RevocationStore compacted = new RevocationStore(properties(DataSize.ofMegabytes(1)));
+        assertThat(compacted.size()).isZero();
+        assertThat(compacted.logBytes()).isEqualTo(8);
+        compacted.shutdown();
+    }
+
+    /**
+     * Test: A full log is compacted into a larger one without losing revocations
+     * Given: A store whose new log has room for only a few records and a filter sized for ten entries
+     * When: 500 tokens are revoked and the store is reopened
+     * Then: Every token is revoked before and after the restart, so both the log and the filter grew
+     */
+    @Test
+    @DisplayName("A full log is compacted into a larger one without losing revocations")
+    void fullLogGrows() {
+        long expiresAt = Instant.now().getEpochSecond() + 3600;
+        JwtProperties properties = properties(DataSize.ofBytes(128));
+        properties.getRevocation().setExpectedEntries(10);
+        RevocationStore store = new RevocationStore(properties);
+        IntStream.range(0, 500).forEach(i -> store.revoke("jti-" + i, expiresAt));
+        assertThat(IntStream.range(0, 500)).allMatch(i -> store.isRevoked("jti-" + i));
+        store.shutdown();
+
+        RevocationStore reopened = new RevocationStore(properties);
+        assertThat(reopened.size()).isEqualTo(500);
+        assertThat(IntStream.range(0, 500)).allMatch(i -> reopened.isRevoked("jti-" + i));
+        reopened.shutdown();
+    }
+
+    /**
+     * Test: The Bloom filter keeps almost all unrevoked tokens away from the exact set
+     * Given: A filter sized for 10,000 entries at a 1% false positive rate, holding 10,000 revocations
+     * When: 100,000 other token IDs are checked
+     * Then: None is reported revoked, and fewer than 2% of them needed an exact lookup
+     */
+    @Test
+    @DisplayName("The Bloom filter keeps almost all unrevoked tokens away from the exact set")
+    void bloomFilterScreensUnrevokedTokens() {
+        long expiresAt = Instant.now().getEpochSecond() + 3600;
+        JwtProperties properties = properties(DataSize.ofMegabytes(1));
+        properties.getRevocation().setExpectedEntries(10_000);
+        RevocationStore store = new RevocationStore(properties);
+        IntStream.range(0, 10_000).forEach(i -> store.revoke(UUID.randomUUID().toString(), expiresAt));
+
+        assertThat(IntStream.range(0, 100_000)).noneMatch(i -> store.isRevoked(UUID.randomUUID().toString()));
+        assertThat(store.falsePositiveCount()).isLessThan(2_000);
+        store.shutdown();
+    }
+
+    /**
+     * Test: The log is compacted in place and an interrupted compaction is completed on the next start
+     * Given: A log with three revocations, compacted to one, with another appended afterwards
+     * When: The log is reopened, then reopened with a complete and with an incomplete compaction side file present
+     * Then: Only the kept and appended revocations are replayed, the complete side file replaces the records and the
+     * incomplete one is discarded; the log file is never replaced
+     */
+    @Test
+    @DisplayName("The log is compacted in place and an interrupted compaction is completed on the next start")
+    void compactionIsInPlaceAndRecoverable() throws IOException {
+        Path file = dataDir.resolve("revocations.log");
+        RevocationLog revocationLog = new RevocationLog(file, 1024, (jti, expiresAt) -> { });
+        revocationLog.append("first", 1);
+        revocationLog.append("second", 2);
+        revocationLog.append("third", 3);
+        Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+        revocationLog.rewrite(Map.of("second", 2L));
+        revocationLog.append("fourth", 4);
+
+        assertThat(replay(file)).containsOnlyKeys("second", "fourth");
+        assertThat(Files.readAttributes(file, BasicFileAttributes.class).fileKey()).isEqualTo(fileKey);
+        assertThat(file.resolveSibling("revocations.log.compact")).doesNotExist();
+
+        ByteBuffer compacted = ByteBuffer.allocate(8 + 12 + 5)
+                .putInt(0x52564B31).putInt(0).putInt(5).putLong(5).put("fifth".getBytes(StandardCharsets.UTF_8));
+        Files.write(file.resolveSibling("revocations.log.compact"), compacted.array());
+        assertThat(replay(file)).containsOnlyKeys("fifth");
+
+        Files.write(file.resolveSibling("revocations.log.compact"), new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 5});
+        assertThat(replay(file)).containsOnlyKeys("fifth");
+        assertThat(file.resolveSibling("revocations.log.compact")).doesNotExist();
+    }
+
+    private static Map<String, Long> replay(Path file) throws IOException {
+        Map<String, Long> replayed = new HashMap<>();
+        new RevocationLog(file, 1024, replayed::put);
+        return replayed;
+    }
+
+    private JwtProperties properties(DataSize initialLogSize) {
+        JwtProperties properties = new JwtProperties();
+        properties.getRevocation().setEnabled(true);
+        properties.getRevocation().setFile(dataDir.resolve("revocations.log").toString());
+        properties.getRevocation().setInitialLogSize(initialLogSize);
+        return properties;
+    }
+}
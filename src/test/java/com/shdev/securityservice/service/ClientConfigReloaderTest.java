@@ -0,0 +1,104 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for ClientConfigReloader.
+ */
+@DisplayName("ClientConfigReloader Tests")
+class ClientConfigReloaderTest {
+
+    @TempDir
+    Path configDir;
+
+    private ClientConfigReloader reloader;
+
+    @AfterEach
+    void tearDown() {
+        reloader.shutdown();
+    }
+
+    /**
+     * Test: A changed clients file replaces the registered clients
+     * Given: A registry built from a clients file and a reloader watching it
+     * When: The file is rewritten with another client, then with invalid content
+     * Then: The registry and the client properties switch to the new client and a refresh event is published; the
+     * invalid file leaves them unchanged
+     */
+    @Test
+    @DisplayName("A changed clients file replaces the registered clients")
+    void changedFileIsReloaded() throws IOException {
+        Path file = configDir.resolve("clients.yml");
+        write(file, client("first", "DOMAIN_A"), Instant.now().minusSeconds(60));
+        OAuth2ClientProperties properties = new OAuth2ClientProperties();
+        properties.getClientsFile().setPath(file.toString());
+        properties.getClientsFile().setCheckInterval(Duration.ofHours(1));
+        properties.setClients(new ArrayList<>(List.of(clientConfig("first", "DOMAIN_A"))));
+        List<ClientRegistryRefreshedEvent> events = new ArrayList<>();
+        ClientRegistry registry = new ClientRegistry(properties, event -> events.add((ClientRegistryRefreshedEvent) event));
+        reloader = new ClientConfigReloader(properties, registry);
+
+        assertThat(reloader.reloadIfChanged()).isFalse();
+        write(file, client("second", "DOMAIN_B"), Instant.now());
+        assertThat(reloader.reloadIfChanged()).isTrue();
+
+        assertThat(registry.find("DOMAIN_A", "first")).isNull();
+        assertThat(registry.find("DOMAIN_B", "second").allowedScopes()).containsExactly("scope.read");
+        assertThat(properties.getClients()).extracting(OAuth2ClientProperties.ClientConfig::getClientId)
+                .containsExactly("second");
+        assertThat(events).containsExactly(new ClientRegistryRefreshedEvent(1));
+
+        write(file, "oauth2:\n  clients: [unclosed\n", Instant.now().plusSeconds(60));
+        assertThat(reloader.reloadIfChanged()).isFalse();
+        assertThat(registry.find("DOMAIN_B", "second")).isNotNull();
+        assertThat(events).hasSize(1);
+    }
+
+    private static String client(String clientId, String domain) {
+        return """
+                oauth2:
+                  clients:
+                    - client-id: %s
+                      client-secret: hash
+                      identity-domain: %s
+                      allowed-scopes:
+                        - scope.read
+                      rate-limit:
+                        requests-per-second: 5
+                        burst: 10
+                """.formatted(clientId, domain);
+    }
+
+    private static OAuth2ClientProperties.ClientConfig clientConfig(String clientId, String domain) {
+        OAuth2ClientProperties.ClientConfig client = new OAuth2ClientProperties.ClientConfig();
+        client.setClientId(clientId);
+        client.setClientSecret("hash");
+        client.setIdentityDomain(domain);
+        client.setAllowedScopes(List.of("scope.read"));
+        OAuth2ClientProperties.Limit limit = new OAuth2ClientProperties.Limit();
+        limit.setRequestsPerSecond(5);
+        limit.setBurst(10);
+        client.setRateLimit(limit);
+        return client;
+    }
+
+    private static void write(Path file, String content, Instant modified) throws IOException {
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.from(modified));
+    }
+}
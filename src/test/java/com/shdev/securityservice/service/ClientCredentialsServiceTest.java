@@ -0,0 +1,199 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.exception.RateLimitExceededException;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.TestKeys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for ClientCredentialsService.
+ */
+@DisplayName("ClientCredentialsService Tests")
+class ClientCredentialsServiceTest {
+
+    private static final String CLIENT_ID = "TEST_CLIENT";
+    private static final String SECRET = "s3cret";
+    private static final String DOMAIN = "TEST_DOMAIN";
+
+    private final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+    private final AtomicInteger bcryptCalls = new AtomicInteger();
+
+    private OAuth2ClientProperties properties;
+    private ClientRegistry registry;
+    private ClientCredentialsService service;
+
+    @BeforeEach
+    void setUp() {
+        OAuth2ClientProperties.ClientConfig client = new OAuth2ClientProperties.ClientConfig();
+        client.setClientId(CLIENT_ID);
+        client.setClientSecret(bcrypt.encode(SECRET));
+        client.setIdentityDomain(DOMAIN);
+        client.setAllowedScopes(List.of("scope.read"));
+
+        properties = new OAuth2ClientProperties();
+        properties.setClients(List.of(client));
+        properties.getFailedAuthentication().setBackoffThreshold(3);
+        properties.getFailedAuthentication().setInitialBackoff(Duration.ofMinutes(1));
+
+        PasswordEncoder countingEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                bcryptCalls.incrementAndGet();
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        };
+        CredentialVerificationCache credentialCache = new CredentialVerificationCache(properties);
+        FailedCredentialCache failedCache = new FailedCredentialCache(properties);
+        registry = new ClientRegistry(properties, event -> {
+            credentialCache.onClientRegistryRefreshed((ClientRegistryRefreshedEvent) event);
+            failedCache.onClientRegistryRefreshed((ClientRegistryRefreshedEvent) event);
+        });
+        service = new ClientCredentialsService(registry, countingEncoder, credentialCache, failedCache, new CryptoPools(properties),
+                TestKeys.metrics(new JwtProperties()));
+    }
+
+    /**
+     * Test: A verified secret is not checked with BCrypt again
+     * Given: A configured client
+     * When: The same valid credentials are validated twice
+     * Then: Both validations succeed and BCrypt runs once
+     */
+    @Test
+    @DisplayName("Repeated valid credentials skip BCrypt")
+    void repeatedValidCredentialsSkipBcrypt() {
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+
+        assertThat(bcryptCalls).hasValue(1);
+    }
+
+    /**
+     * Test: A wrong secret is rejected even after a successful verification
+     * Given: A client whose secret was already verified
+     * When: A different secret is presented
+     * Then: Validation fails after a BCrypt check
+     */
+    @Test
+    @DisplayName("Wrong secret is rejected after a cached verification")
+    void wrongSecretIsRejected() {
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+        assertThat(service.validateCredentials(CLIENT_ID, "wrong", DOMAIN)).isEmpty();
+
+        assertThat(bcryptCalls).hasValue(2);
+    }
+
+    /**
+     * Test: Changing the configured secret invalidates the cached verification
+     * Given: A client whose secret was already verified
+     * When: The client's configured BCrypt hash changes and the registry is refreshed
+     * Then: The old secret is checked with BCrypt again and rejected
+     */
+    @Test
+    @DisplayName("Changed client secret invalidates the cache")
+    void changedSecretInvalidatesCache() {
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+
+        properties.getClients().getFirst().setClientSecret(bcrypt.encode("rotated"));
+        registry.refresh();
+
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isEmpty();
+        assertThat(bcryptCalls).hasValue(2);
+    }
+
+    /**
+     * Test: Unknown clients and domains cost one BCrypt check like known ones
+     * Given: A configured client
+     * When: Credentials for another client ID or domain are validated twice
+     * Then: Validation fails, each is checked against the dummy hash once, and repeats are answered from the cache
+     */
+    @Test
+    @DisplayName("Unknown client or domain is checked against a dummy hash once")
+    void unknownClientIsRejected() {
+        assertThat(service.validateCredentials("OTHER_CLIENT", SECRET, DOMAIN)).isEmpty();
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, "OTHER_DOMAIN")).isEmpty();
+        assertThat(service.validateCredentials("OTHER_CLIENT", SECRET, DOMAIN)).isEmpty();
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, "OTHER_DOMAIN")).isEmpty();
+
+        assertThat(bcryptCalls).hasValue(2);
+    }
+
+    /**
+     * Test: A repeated wrong secret is rejected without BCrypt
+     * Given: A wrong secret that already failed once
+     * When: It is presented again
+     * Then: Validation fails without another BCrypt check, while the right secret still succeeds
+     */
+    @Test
+    @DisplayName("Repeated wrong secret skips BCrypt")
+    void repeatedWrongSecretSkipsBcrypt() {
+        assertThat(service.validateCredentials(CLIENT_ID, "wrong", DOMAIN)).isEmpty();
+        assertThat(service.validateCredentials(CLIENT_ID, "wrong", DOMAIN)).isEmpty();
+        assertThat(bcryptCalls).hasValue(1);
+
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+        assertThat(bcryptCalls).hasValue(2);
+    }
+
+    /**
+     * Test: Repeated failures back the client ID off, except for an already verified secret
+     * Given: A back-off threshold of 3 failures and an initial back-off of one minute
+     * When: Three different wrong secrets are presented
+     * Then: Further attempts, even with the right secret, are rejected as rate-limited with the remaining back-off
+     * and without BCrypt, unless that secret was verified before
+     */
+    @Test
+    @DisplayName("Repeated failures back the client off")
+    void repeatedFailuresBackOff() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(service.validateCredentials(CLIENT_ID, "guess-" + i, DOMAIN)).isEmpty();
+        }
+        assertThatThrownBy(() -> service.validateCredentials(CLIENT_ID, SECRET, DOMAIN))
+                .isInstanceOf(RateLimitExceededException.class)
+                .satisfies(e -> assertThat(((RateLimitExceededException) e).getRetryAfter())
+                        .isPositive()
+                        .isLessThanOrEqualTo(Duration.ofMinutes(1)));
+        assertThat(bcryptCalls).hasValue(3);
+
+        registry.refresh();
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+        for (int i = 0; i < 3; i++) {
+            assertThat(service.validateCredentials(CLIENT_ID, "guess-" + i, DOMAIN)).isEmpty();
+        }
+        assertThat(service.validateCredentials(CLIENT_ID, SECRET, DOMAIN)).isPresent();
+        assertThat(bcryptCalls).hasValue(7);
+    }
+
+    /**
+     * Test: Registered clients carry pre-resolved scopes and default roles
+     * Given: A client configured without roles
+     * When: Its credentials are validated
+     * Then: The USER role is applied and only configured scopes are allowed
+     */
+    @Test
+    @DisplayName("Default roles and allowed scopes are resolved once")
+    void defaultRolesAndScopesAreResolved() {
+        RegisteredClient client = service.validateCredentials(CLIENT_ID, SECRET, DOMAIN).orElseThrow();
+
+        assertThat(client.roles()).containsExactly(ClientRegistry.DEFAULT_ROLE);
+        assertThat(service.isScopeAllowed(client, "scope.read")).isTrue();
+        assertThat(service.isScopeAllowed(client, "scope.write")).isFalse();
+    }
+}
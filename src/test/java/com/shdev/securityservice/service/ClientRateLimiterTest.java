@@ -0,0 +1,133 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.exception.RateLimitExceededException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for ClientRateLimiter and TokenBucket.
+ */
+@DisplayName("ClientRateLimiter Tests")
+class ClientRateLimiterTest {
+
+    private OAuth2ClientProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        OAuth2ClientProperties.Limit premium = new OAuth2ClientProperties.Limit();
+        premium.setRequestsPerSecond(1);
+        premium.setBurst(5);
+        OAuth2ClientProperties.ClientConfig client = new OAuth2ClientProperties.ClientConfig();
+        client.setClientId("PREMIUM_CLIENT");
+        client.setIdentityDomain("TEST_DOMAIN");
+        client.setRateLimit(premium);
+
+        properties = new OAuth2ClientProperties();
+        properties.setClients(List.of(client));
+        properties.getRateLimit().getPerClient().setRequestsPerSecond(1);
+        properties.getRateLimit().getPerClient().setBurst(2);
+    }
+
+    /**
+     * Test: A bucket allows its burst, then refills at the configured rate
+     * Given: A bucket of 2 requests refilled at 10 per second
+     * When: Requests arrive at the same instant and then 100ms later
+     * Then: Two pass, the third waits 100ms, and one more passes after 100ms
+     */
+    @Test
+    @DisplayName("A bucket allows its burst, then refills at the configured rate")
+    void bucketAllowsBurstThenRefills() {
+        long now = 0;
+        TokenBucket bucket = new TokenBucket(10, 2, now);
+
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isZero();
+        assertThat(bucket.tryAcquire(now)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        long later = now + TimeUnit.MILLISECONDS.toNanos(100);
+        assertThat(bucket.tryAcquire(later)).isZero();
+        assertThat(bucket.tryAcquire(later)).isPositive();
+    }
+
+    /**
+     * Test: Per-client limits override the default
+     * Given: A default burst of 2 and a configured client with a burst of 5
+     * When: Each client sends requests back to back
+     * Then: The unconfigured client is rejected on its third request with a Retry-After, the configured one on its sixth
+     */
+    @Test
+    @DisplayName("Per-client limits override the default")
+    void perClientLimitsOverrideDefault() {
+        ClientRateLimiter limiter = new ClientRateLimiter(properties);
+
+        for (int i = 0; i < 2; i++) {
+            limiter.acquire("TEST_DOMAIN", "OTHER_CLIENT", null);
+        }
+        assertThatThrownBy(() -> limiter.acquire("TEST_DOMAIN", "OTHER_CLIENT", null))
+                .isInstanceOf(RateLimitExceededException.class)
+                .satisfies(e -> assertThat(((RateLimitExceededException) e).getRetryAfter())
+                        .isPositive()
+                        .isLessThanOrEqualTo(Duration.ofSeconds(1)));
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("TEST_DOMAIN", "PREMIUM_CLIENT", null);
+        }
+        assertThatThrownBy(() -> limiter.acquire("TEST_DOMAIN", "PREMIUM_CLIENT", null)).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    /**
+     * Test: The same client ID in two domains has separate buckets and limits
+     * Given: A configured client with a burst of 5 in one domain and the default burst of 2 elsewhere
+     * When: The client ID is used in another domain until it is rejected
+     * Then: It is rejected on its third request there with the rejection message of the client limit, while the
+     * configured client keeps its full burst of 5
+     */
+    @Test
+    @DisplayName("The same client ID in two domains has separate buckets and limits")
+    void clientIdsAreScopedByDomain() {
+        ClientRateLimiter limiter = new ClientRateLimiter(properties);
+
+        for (int i = 0; i < 2; i++) {
+            limiter.acquire("OTHER_DOMAIN", "PREMIUM_CLIENT", null);
+        }
+        assertThatThrownBy(() -> limiter.acquire("OTHER_DOMAIN", "PREMIUM_CLIENT", null))
+                .isInstanceOf(RateLimitExceededException.class)
+                .hasMessage("Too many requests for this client, retry later");
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("TEST_DOMAIN", "PREMIUM_CLIENT", null);
+        }
+        assertThatThrownBy(() -> limiter.acquire("TEST_DOMAIN", "PREMIUM_CLIENT", null))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+
+    /**
+     * Test: The address limit applies across client IDs
+     * Given: An address burst of 3
+     * When: One address rotates through distinct client IDs
+     * Then: The fourth request is rejected, while another address is unaffected
+     */
+    @Test
+    @DisplayName("The address limit applies across client IDs")
+    void addressLimitAppliesAcrossClients() {
+        properties.getRateLimit().getPerAddress().setRequestsPerSecond(1);
+        properties.getRateLimit().getPerAddress().setBurst(3);
+        ClientRateLimiter limiter = new ClientRateLimiter(properties);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("TEST_DOMAIN", "PROBE_" + i, "203.0.113.7");
+        }
+        assertThatThrownBy(() -> limiter.acquire("TEST_DOMAIN", "PROBE_3", "203.0.113.7")).isInstanceOf(RateLimitExceededException.class);
+        assertThatCode(() -> limiter.acquire("TEST_DOMAIN", "PROBE_4", "198.51.100.1")).doesNotThrowAnyException();
+    }
+}
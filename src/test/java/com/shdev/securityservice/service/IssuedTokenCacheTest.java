@@ -0,0 +1,98 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.jwt.IssuedToken;
+import com.shdev.securityservice.jwt.JwtKeysRotatedEvent;
+import com.shdev.securityservice.jwt.JwtProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test class for IssuedTokenCache.
+ */
+@DisplayName("IssuedTokenCache Tests")
+class IssuedTokenCacheTest {
+
+    private final IssuedTokenCache cache = new IssuedTokenCache(new JwtProperties());
+    private final AtomicInteger signed = new AtomicInteger();
+
+    /**
+     * Test: Identical requests reuse the issued token
+     * Given: A token that is far from expiry
+     * When: The same request is made twice
+     * Then: The token is signed once and returned both times
+     */
+    @Test
+    @DisplayName("Identical requests reuse the issued token")
+    void identicalRequestsReuseToken() {
+        IssuedToken first = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(3600));
+        IssuedToken second = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(3600));
+
+        assertThat(second).isSameAs(first);
+        assertThat(signed).hasValue(1);
+    }
+
+    /**
+     * Test: Different scopes or roles get their own tokens
+     * Given: Requests differing only in scope or roles
+     * When: Tokens are requested
+     * Then: Each request signs its own token
+     */
+    @Test
+    @DisplayName("Different scopes and roles are not shared")
+    void differentRequestsAreNotShared() {
+        cache.getOrIssue("client", "domain", "scope.a", List.of("USER"), () -> sign(3600));
+        cache.getOrIssue("client", "domain", "scope.b", List.of("USER"), () -> sign(3600));
+        cache.getOrIssue("client", "domain", "scope.a", List.of("ADMIN"), () -> sign(3600));
+
+        assertThat(signed).hasValue(3);
+    }
+
+    /**
+     * Test: Tokens inside the refresh margin are replaced
+     * Given: A token expiring within the default five minute refresh margin
+     * When: The same request is made twice
+     * Then: A new token is signed for the second request
+     */
+    @Test
+    @DisplayName("Tokens inside the refresh margin are replaced")
+    void tokensNearExpiryAreReplaced() {
+        IssuedToken first = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(60));
+        IssuedToken second = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(60));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(signed).hasValue(2);
+    }
+
+    /**
+     * Test: Key rotation discards cached tokens
+     * Given: A cached token
+     * When: Keys are only retired, then new keys are activated
+     * Then: The token is still reused after the retirement and signed again after the activation
+     */
+    @Test
+    @DisplayName("Key rotation discards cached tokens")
+    void keyRotationDiscardsTokens() {
+        IssuedToken first = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(3600));
+
+        cache.onKeysRotated(new JwtKeysRotatedEvent(List.of(), List.of("KeyPair_domain_v1")));
+        IssuedToken afterRetirement = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(3600));
+        cache.onKeysRotated(new JwtKeysRotatedEvent(List.of("KeyPair_domain_v2"), List.of()));
+        IssuedToken afterRotation = cache.getOrIssue("client", "domain", "scope", List.of("USER"), () -> sign(3600));
+
+        assertThat(afterRetirement).isSameAs(first);
+        assertThat(afterRotation).isNotSameAs(first);
+        assertThat(signed).hasValue(2);
+    }
+
+    private IssuedToken sign(long lifetimeSeconds) {
+        int n = signed.incrementAndGet();
+        Instant now = Instant.now();
+        return new IssuedToken("token-" + n, "jti-" + n, now, now.plusSeconds(lifetimeSeconds));
+    }
+}
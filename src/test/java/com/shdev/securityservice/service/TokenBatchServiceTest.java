@@ -0,0 +1,163 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.audit.AuditLog;
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.dto.TokenInfoResult;
+import com.shdev.securityservice.dto.TokenResult;
+import com.shdev.securityservice.exception.InvalidRequestException;
+import com.shdev.securityservice.exception.ServiceOverloadedException;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.reference.ReferenceTokenStore;
+import com.shdev.securityservice.revocation.RevocationStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for TokenBatchService.
+ */
+@DisplayName("TokenBatchService Tests")
+class TokenBatchServiceTest {
+
+    private static final RegisteredClient CLIENT = new RegisteredClient(
+            "client", TestKeys.DOMAIN, "hash", Set.of("scope.read", "scope.write"), List.of("USER"), false, false);
+
+    @TempDir
+    Path keyDir;
+
+    private OAuth2ClientProperties clientProperties;
+    private CryptoPools cryptoPools;
+    private TokenService tokenService;
+    private TokenBatchService batchService;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        TokenMetrics metrics = TestKeys.metrics(properties);
+        clientProperties = new OAuth2ClientProperties();
+        clientProperties.getBatch().setMaxTokens(10);
+        clientProperties.getBatch().setParallelism(4);
+        cryptoPools = new CryptoPools(clientProperties);
+        RevocationStore revocationStore = new RevocationStore(properties);
+        tokenService = new TokenService(
+                TestKeys.generator(properties, keyRing, metrics),
+                TestKeys.validator(properties, keyRing, revocationStore, cryptoPools, metrics),
+                new IssuedTokenCache(properties),
+                revocationStore,
+                new ReferenceTokenStore(clientProperties, properties, metrics),
+                cryptoPools,
+                new AuditLog(clientProperties));
+        ClientCredentialsService clientCredentialsService = new ClientCredentialsService(
+                new ClientRegistry(clientProperties, event -> {
+                }),
+                new BCryptPasswordEncoder(4),
+                new CredentialVerificationCache(clientProperties),
+                new FailedCredentialCache(clientProperties),
+                cryptoPools,
+                metrics);
+        batchService = new TokenBatchService(tokenService, clientCredentialsService, new AuditLog(clientProperties),
+                clientProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchService.shutdown();
+        cryptoPools.shutdown();
+    }
+
+    /**
+     * Test: Each token gets its own result in request order
+     * Given: A valid token, a tampered token and a blank entry
+     * When: The batch is validated
+     * Then: The valid token returns its info and the others return OAuth2 errors
+     */
+    @Test
+    @DisplayName("Batch validation returns per-token results in order")
+    void validateTokensReturnsPerTokenResults() {
+        String token = tokenService.generateToken(CLIENT, "scope.read").accessToken();
+        String tampered = token.substring(0, token.length() - 4) + "AAAA";
+
+        List<TokenInfoResult> results = batchService.validateTokens(List.of(token, tampered, " ", token));
+
+        assertThat(results).hasSize(4);
+        assertThat(results.get(0).tokenInfo().subject()).isEqualTo("client");
+        assertThat(results.get(1).error()).isEqualTo("invalid_token");
+        assertThat(results.get(2).error()).isEqualTo("invalid_request");
+        assertThat(results.get(3)).isEqualTo(results.get(0));
+    }
+
+    /**
+     * Test: Batches over the configured limit are rejected
+     * Given: A limit of 10 tokens
+     * When: An empty batch or a batch of 11 tokens is validated
+     * Then: Both are rejected as invalid requests
+     */
+    @Test
+    @DisplayName("Empty and oversized batches are rejected")
+    void batchSizeIsLimited() {
+        List<String> oversized = new ArrayList<>(Collections.nCopies(11, "token"));
+
+        assertThatThrownBy(() -> batchService.validateTokens(List.of()))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThatThrownBy(() -> batchService.validateTokens(oversized))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("limit is 10");
+    }
+
+    /**
+     * Test: A batch that does not fit in the worker queue is shed as a whole
+     * Given: A batch service whose worker queue holds 5 items
+     * When: A batch of 6 tokens is validated
+     * Then: It fails with ServiceOverloadedException and is counted, while a batch of 5 is still served
+     */
+    @Test
+    @DisplayName("A batch that does not fit in the worker queue is shed")
+    void oversizedForQueueIsShed() {
+        String token = tokenService.generateToken(CLIENT, "scope.read").accessToken();
+        clientProperties.getBatch().setQueueDepth(5);
+        TokenBatchService smallQueue = new TokenBatchService(tokenService, null, new AuditLog(clientProperties),
+                clientProperties);
+
+        assertThatThrownBy(() -> smallQueue.validateTokens(Collections.nCopies(6, token)))
+                .isInstanceOf(ServiceOverloadedException.class);
+        assertThat(smallQueue.rejectedCount()).isEqualTo(1);
+        assertThat(smallQueue.validateTokens(Collections.nCopies(5, token))).hasSize(5);
+        smallQueue.shutdown();
+    }
+
+    /**
+     * Test: One token is issued per allowed scope
+     * Given: A client allowed two scopes
+     * When: Tokens for both scopes, a duplicate and a disallowed scope are requested
+     * Then: Each distinct scope gets a result in order, the disallowed one an OAuth2 error
+     */
+    @Test
+    @DisplayName("Batch issuance returns per-scope results")
+    void generateTokensReturnsPerScopeResults() {
+        List<TokenResult> results = batchService.generateTokens(CLIENT, List.of("scope.read", "scope.write", "scope.read", "scope.admin"));
+
+        assertThat(results).extracting(TokenResult::scope).containsExactly("scope.read", "scope.write", "scope.admin");
+        assertThat(tokenService.validateToken(results.get(0).token().accessToken()).scope()).containsExactly("scope.read");
+        assertThat(tokenService.validateToken(results.get(1).token().accessToken()).scope()).containsExactly("scope.write");
+        assertThat(results.get(2).token()).isNull();
+        assertThat(results.get(2).error()).isEqualTo("invalid_request");
+    }
+}
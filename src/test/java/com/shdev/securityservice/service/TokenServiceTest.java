@@ -0,0 +1,90 @@
+package com.shdev.securityservice.service;
+
+import com.shdev.securityservice.audit.AuditLog;
+import com.shdev.securityservice.concurrent.CryptoPools;
+import com.shdev.securityservice.config.OAuth2ClientProperties;
+import com.shdev.securityservice.exception.InvalidRequestException;
+import com.shdev.securityservice.exception.InvalidTokenException;
+import com.shdev.securityservice.jwt.JwtAlgorithm;
+import com.shdev.securityservice.jwt.JwtKeyRing;
+import com.shdev.securityservice.jwt.JwtProperties;
+import com.shdev.securityservice.jwt.TestKeys;
+import com.shdev.securityservice.metrics.TokenMetrics;
+import com.shdev.securityservice.reference.ReferenceTokenStore;
+import com.shdev.securityservice.revocation.RevocationStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test class for TokenService.
+ */
+@DisplayName("TokenService Tests")
+class TokenServiceTest {
+
+    private static final RegisteredClient CLIENT = new RegisteredClient(
+            "client", TestKeys.DOMAIN, "hash", Set.of("scope.read"), List.of("USER"), false, false);
+    private static final RegisteredClient SAME_ID_OTHER_DOMAIN = new RegisteredClient(
+            "client", "OTHER_DOMAIN", "hash", Set.of("scope.read"), List.of("USER"), false, false);
+
+    @TempDir
+    Path keyDir;
+
+    private CryptoPools cryptoPools;
+    private RevocationStore revocationStore;
+    private TokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = TestKeys.properties(keyDir, JwtAlgorithm.HS256);
+        JwtKeyRing keyRing = TestKeys.keyRing(properties);
+        TokenMetrics metrics = TestKeys.metrics(properties);
+        OAuth2ClientProperties clientProperties = new OAuth2ClientProperties();
+        cryptoPools = new CryptoPools(clientProperties);
+        revocationStore = new RevocationStore(properties);
+        tokenService = new TokenService(
+                TestKeys.generator(properties, keyRing, metrics),
+                TestKeys.validator(properties, keyRing, revocationStore, cryptoPools, metrics),
+                new IssuedTokenCache(properties),
+                revocationStore,
+                new ReferenceTokenStore(clientProperties, properties, metrics),
+                cryptoPools,
+                new AuditLog(clientProperties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        revocationStore.shutdown();
+        cryptoPools.shutdown();
+    }
+
+    /**
+     * Test: Only the client a token was issued to can revoke it
+     * Given: A token issued to a client, and a client with the same ID in another identity domain
+     * When: The other domain's client revokes the token, then the owner does
+     * Then: The first revocation is refused and leaves the token valid, the second one revokes it
+     */
+    @Test
+    @DisplayName("A client with the same ID in another domain cannot revoke a token")
+    void revocationRequiresSameDomain() {
+        String token = tokenService.generateToken(CLIENT, "scope.read").accessToken();
+
+        assertThatThrownBy(() -> tokenService.revokeToken(SAME_ID_OTHER_DOMAIN, token, "127.0.0.1"))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(tokenService.validateToken(token).client()).isEqualTo("client");
+
+        tokenService.revokeToken(CLIENT, token, "127.0.0.1");
+        assertThatThrownBy(() -> tokenService.validateToken(token))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessage("Token has been revoked");
+    }
+}